@@ -60,4 +60,45 @@ public interface ICPUControl {
      * @return true represents a block move, else false if not executing
      */
     boolean blockMoveInProgress();
+
+    /**
+     * End execution. start() returns and the CPU may not be restarted.
+     */
+    void terminate();
+
+    /**
+     * T states executed since the CPU was created. Unlike the bus clock this is never reset.
+     *
+     * @return Total T states
+     */
+    long getElapsedTStates();
+
+    /**
+     * Report if the CPU has executed a HALT instruction and is waiting for an interrupt
+     *
+     * @return True if halted
+     */
+    boolean isHalted();
+
+    /**
+     * Set an address at which to raise a BREAKPOINT event, before the instruction at that address is executed
+     *
+     * @param address Address 0x0000 to 0xFFFF, or -1 for no breakpoint
+     */
+    void setBreakpoint(int address);
+
+    /**
+     * Set the elapsed T state count at which to raise a T_STATE_LIMIT event
+     *
+     * @param elapsedTStates T state count, or Long.MAX_VALUE for no limit
+     */
+    void setTStateLimit(long elapsedTStates);
+
+    /**
+     * Set the listener for execution events. Events are only checked at time slice boundaries (plus one address compare
+     * per instruction for the breakpoint) so there is no other per instruction cost.
+     *
+     * @param listener The listener, or null for none
+     */
+    void setExecutionListener(IExecutionListener listener);
 }
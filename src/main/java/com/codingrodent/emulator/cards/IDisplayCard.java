@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards;
+
+public interface IDisplayCard {
+
+    /**
+     * Paint the current frame to the screen. Called on the Swing event thread by the frame scheduler once per emulated
+     * frame
+     */
+    void paintFrame();
+
+    /**
+     * Width of the current frame as returned by getFrame()
+     *
+     * @return Width in pixels
+     */
+    int getFrameWidth();
+
+    /**
+     * Height of the current frame as returned by getFrame()
+     *
+     * @return Height in pixels
+     */
+    int getFrameHeight();
+
+    /**
+     * Copy the current frame, unscaled, as one int (xxRRGGBB) per pixel in row order. Works with or without a GUI.
+     * Call from the CPU thread (e.g. from a frame listener) for a frame that is not mid-update.
+     *
+     * @param pixels Destination, at least width * height in size
+     */
+    void getFrame(int[] pixels);
+}
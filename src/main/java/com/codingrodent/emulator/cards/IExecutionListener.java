@@ -23,43 +23,26 @@
  *
  */
 
-package com.codingrodent.emulator.utilities;
+package com.codingrodent.emulator.cards;
 
-import java.util.Arrays;
+public interface IExecutionListener {
 
-class Sector implements IBTreeData {
-
-    private final int sector;
-    private byte[] data;
-
-    Sector(int sector) {
-        this.sector = sector;
-    }
-
-    public byte[] getData() {
-        return Arrays.copyOf(data, data.length);
-    }
-
-    public void setData(byte[] data) {
-        this.data = Arrays.copyOf(data, data.length);
-    }
+    /**
+     * Events raised by the CPU thread while executing
+     */
+    enum Event {SLICE, BREAKPOINT, T_STATE_LIMIT, HALT}
 
     /**
-     * Transform the track / sector values into a unique b-tree locator
+     * Called on the CPU thread at the end of each time slice (a few thousand T states), when the breakpoint address is
+     * reached, when the T state limit is reached or, at a slice boundary, when the CPU is halted
      *
-     * @return b-tree value
+     * @param event What happened
+     * @return True to stop the CPU
      */
-    @Override
-    public int getValue() {
-        return sector;
-    }
+    boolean executionEvent(Event event);
 
     /**
-     * Destroy and data in the node
+     * Called on the CPU thread after the CPU has stopped at the request of executionEvent()
      */
-    @Override
-    public void erase() {
-        data = null;
-    }
-
+    void executionStopped();
 }
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards;
+
+public interface ITextDisplay {
+
+    /**
+     * Number of visible character columns
+     *
+     * @return Columns per line
+     */
+    int getScreenColumns();
+
+    /**
+     * Number of visible character rows
+     *
+     * @return Lines on the screen
+     */
+    int getScreenRows();
+
+    /**
+     * Copy the visible screen, top line first, one char per character cell holding the raw video byte (0..255). Does not
+     * allocate, so may be polled every frame.
+     *
+     * @param screen Destination, at least columns * rows in size
+     */
+    void readScreen(char[] screen);
+
+    /**
+     * Snapshot of the visible screen as one string per line, top line first
+     *
+     * @return Screen lines
+     */
+    String[] getScreenLines();
+
+    /**
+     * A count incremented every time a visible character changes. Pollers need only re-read the screen when it moves.
+     *
+     * @return Change count
+     */
+    long getScreenVersion();
+}
@@ -25,10 +25,10 @@
 
 package com.codingrodent.emulator.cards.common;
 
-import com.codingrodent.emulator.utilities.DiskImage;
+import com.codingrodent.emulator.utilities.*;
 
 import javax.swing.*;
-import java.io.File;
+import java.io.*;
 
 public abstract class FDC17xx extends BaseCard {
     protected final static int HEAD_BIT = 0x08;
@@ -60,9 +60,9 @@ public abstract class FDC17xx extends BaseCard {
                     case 256:
                         return 0x01;
                     case 512:
-                        return 0x10;
+                        return 0x02;
                     case 1024:
-                        return 0x11;
+                        return 0x03;
                 }
             case FDC_1795:
             case FDC_1797:
@@ -72,42 +72,83 @@ public abstract class FDC17xx extends BaseCard {
                     case 512:
                         return 0x01;
                     case 1024:
-                        return 0x10;
+                        return 0x02;
                     case 128:
-                        return 0x11;
+                        return 0x03;
                 }
         }
         return 0x00;
     }
 
     /**
-     * Check for any ANADisk images and load if available
+     * Check for any ANADisk or compressed images and insert them if available. They are read when first used.
      */
     protected void processANADiskImages() {
         if (null != cardProperties) {
             String ANADisk = cardProperties.get("ANADisk0");
             if (null != ANADisk) {
-                systemContext.logInfoEvent("Loading an ANADisk image into drive 0 - " + ANADisk);
-                disk0.loadANADisk(new File(ANADisk));
+                deferANADiskImage(ANADisk, disk0, 0);
             }
             ANADisk = cardProperties.get("ANADisk1");
             if (null != ANADisk) {
-                systemContext.logInfoEvent("Loading an ANADisk image into drive 1 - " + ANADisk);
-                disk1.loadANADisk(new File(ANADisk));
+                deferANADiskImage(ANADisk, disk1, 1);
             }
             ANADisk = cardProperties.get("ANADisk2");
             if (null != ANADisk) {
-                systemContext.logInfoEvent("Loading an ANADisk image into drive 2 - " + ANADisk);
-                disk2.loadANADisk(new File(ANADisk));
+                deferANADiskImage(ANADisk, disk2, 2);
             }
             ANADisk = cardProperties.get("ANADisk3");
             if (null != ANADisk) {
-                systemContext.logInfoEvent("Loading an ANADisk image into drive 3 - " + ANADisk);
-                disk3.loadANADisk(new File(ANADisk));
+                deferANADiskImage(ANADisk, disk3, 3);
             }
         }
     }
 
+    /**
+     * Insert an ANADisk or compressed image into a drive, to be read when the drive is first used
+     *
+     * @param fileName Name of the file
+     * @param disk     Drive
+     * @param drive    Drive number
+     */
+    private void deferANADiskImage(String fileName, DiskImage disk, int drive) {
+        File file = checkDiskImage(fileName);
+        disk.deferLoad(image -> {
+            systemContext.logInfoEvent("Loading a disk image into drive " + drive + " - " + fileName);
+            insertDiskImage(image, file);
+        }, fileName);
+    }
+
+    /**
+     * Read an image into a drive, a compressed image if the file has the signature of one and otherwise ANADisk
+     *
+     * @param disk Drive
+     * @param file Image file
+     * @throws IOException Thrown if a compressed image can't be opened
+     */
+    private void insertDiskImage(DiskImage disk, File file) throws IOException {
+        if (CompressedImage.isCompressedImage(file)) {
+            disk.openCompressedImage(file);
+        } else {
+            disk.ejectDisk();
+            disk.loadANADisk(file);
+        }
+    }
+
+    /**
+     * Make sure a configured disk image exists, without reading it
+     *
+     * @param fileName Name of the file
+     * @return The file
+     */
+    private File checkDiskImage(String fileName) {
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            throw new RuntimeException("Unable to load disk image. File not found : " + fileName);
+        }
+        return file;
+    }
+
     /**
      * Query the user for a floppy disk file name and save
      *
@@ -122,11 +163,20 @@ public abstract class FDC17xx extends BaseCard {
             File file = fc.getSelectedFile();
             String fileName = file.getAbsolutePath();
             systemContext.logDebugEvent("Saving disk image to " + fileName);
-            switch (drive) {
-                default -> disk0.dumpANADiskToFile(fileName, fdc);
-                case 1 -> disk1.dumpANADiskToFile(fileName, fdc);
-                case 2 -> disk2.dumpANADiskToFile(fileName, fdc);
-                case 3 -> disk3.dumpANADiskToFile(fileName, fdc);
+            DiskImage disk = switch (drive) {
+                default -> disk0;
+                case 1 -> disk1;
+                case 2 -> disk2;
+                case 3 -> disk3;
+            };
+            try {
+                if (fileName.toLowerCase().endsWith(CompressedImage.EXTENSION)) {
+                    disk.saveCompressedImage(file);
+                } else {
+                    disk.dumpANADiskToFile(fileName, fdc);
+                }
+            } catch (IOException e) {
+                systemContext.logErrorEvent("Unable to save disk image : " + fileName + ", " + e.getMessage());
             }
         }
     }
@@ -144,38 +194,46 @@ public abstract class FDC17xx extends BaseCard {
             File file = fc.getSelectedFile();
             String fileName = file.getAbsolutePath();
             systemContext.logDebugEvent("Loading disk file from " + fileName);
-            switch (drive) {
-                default -> {
-                    disk0.ejectDisk();
-                    disk0.loadANADisk(new File(fileName));
-                }
-                case 1 -> {
-                    disk1.ejectDisk();
-                    disk1.loadANADisk(new File(fileName));
-                }
-                case 2 -> {
-                    disk2.ejectDisk();
-                    disk2.loadANADisk(new File(fileName));
-                }
-                case 3 -> {
-                    disk3.ejectDisk();
-                    disk3.loadANADisk(new File(fileName));
+            try {
+                switch (drive) {
+                    default -> insertDiskImage(disk0, file);
+                    case 1 -> insertDiskImage(disk1, file);
+                    case 2 -> insertDiskImage(disk2, file);
+                    case 3 -> insertDiskImage(disk3, file);
                 }
+            } catch (IOException e) {
+                systemContext.logErrorEvent("Unable to load disk image : " + fileName + ", " + e.getMessage());
             }
         }
     }
 
     /**
-     * Check for any disk dump images and load if available
+     * Write any changed sectors back to their image files without waiting for the flush interval
+     */
+    protected void flushDisks() {
+        disk0.scheduleFlush();
+        disk1.scheduleFlush();
+        disk2.scheduleFlush();
+        disk3.scheduleFlush();
+    }
+
+    /**
+     * Check for any disk dump images and insert them if available. They are opened when first used.
      */
     protected void processDumpDiskImages() {
+        long flushInterval = Long.parseLong(cardProperties.getOrDefault("FlushInterval", "2000"));
+        disk0.setFlushInterval(flushInterval);
+        disk1.setFlushInterval(flushInterval);
+        disk2.setFlushInterval(flushInterval);
+        disk3.setFlushInterval(flushInterval);
         String dumpDisk = cardProperties.get("Dump0");
         if (null != dumpDisk) {
             int tracks = Integer.parseInt(cardProperties.getOrDefault("Dump0_Tracks", "-1"));
             int sectors = Integer.parseInt(cardProperties.getOrDefault("Dump0_Sectors", "-1"));
             int sides = Integer.parseInt(cardProperties.getOrDefault("Dump0_Sides", "-1"));
             int size = Integer.parseInt(cardProperties.getOrDefault("Dump0_Size", "-1"));
-            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, 0);
+            boolean overlay = Boolean.parseBoolean(cardProperties.getOrDefault("Dump0_Overlay", "false"));
+            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, overlay, 0);
         }
         dumpDisk = cardProperties.get("Dump1");
         if (null != dumpDisk) {
@@ -183,7 +241,8 @@ public abstract class FDC17xx extends BaseCard {
             int sectors = Integer.parseInt(cardProperties.getOrDefault("Dump1_Sectors", "-1"));
             int sides = Integer.parseInt(cardProperties.getOrDefault("Dump1_Sides", "-1"));
             int size = Integer.parseInt(cardProperties.getOrDefault("Dump1_Size", "-1"));
-            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, 1);
+            boolean overlay = Boolean.parseBoolean(cardProperties.getOrDefault("Dump1_Overlay", "false"));
+            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, overlay, 1);
         }
         dumpDisk = cardProperties.get("Dump2");
         if (null != dumpDisk) {
@@ -191,7 +250,8 @@ public abstract class FDC17xx extends BaseCard {
             int sectors = Integer.parseInt(cardProperties.getOrDefault("Dump2_Sectors", "-1"));
             int sides = Integer.parseInt(cardProperties.getOrDefault("Dump2_Sides", "-1"));
             int size = Integer.parseInt(cardProperties.getOrDefault("Dump2_Size", "-1"));
-            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, 2);
+            boolean overlay = Boolean.parseBoolean(cardProperties.getOrDefault("Dump2_Overlay", "false"));
+            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, overlay, 2);
         }
         dumpDisk = cardProperties.get("Dump3");
         if (null != dumpDisk) {
@@ -199,22 +259,23 @@ public abstract class FDC17xx extends BaseCard {
             int sectors = Integer.parseInt(cardProperties.getOrDefault("Dump3_Sectors", "-1"));
             int sides = Integer.parseInt(cardProperties.getOrDefault("Dump3_Sides", "-1"));
             int size = Integer.parseInt(cardProperties.getOrDefault("Dump3_Size", "-1"));
-            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, 3);
+            boolean overlay = Boolean.parseBoolean(cardProperties.getOrDefault("Dump3_Overlay", "false"));
+            loadDumpDiskImage(dumpDisk, tracks, sectors, sides, size, overlay, 3);
         }
     }
 
     /**
-     * Load a dump format disk
+     * Insert a dump format disk, to be opened when the drive is first used
      *
      * @param fileName Name of the file
      * @param tracks   Tracks per side
      * @param sectors  Sectors per track
      * @param sides    Number of sides
      * @param size     Size of sectors
+     * @param overlay  True to keep changes in memory rather than writing them back to the file
      * @param disk     Drive number
      */
-    private void loadDumpDiskImage(String fileName, int tracks, int sectors, int sides, int size, int disk) {
-        systemContext.logInfoEvent("Loading a disk dump image image into drive " + disk + " - " + fileName);
+    private void loadDumpDiskImage(String fileName, int tracks, int sectors, int sides, int size, boolean overlay, int disk) {
         if ((tracks < 1) || (tracks > 255)) {
             systemContext.logInfoEvent("Illegal track value : " + tracks);
             return;
@@ -233,15 +294,17 @@ public abstract class FDC17xx extends BaseCard {
             return;
         }
         //
-        try {
-            switch (disk) {
-                default -> disk0.diskDumpReader(new File(fileName), tracks, sectors, size, sides);
-                case 1 -> disk1.diskDumpReader(new File(fileName), tracks, sectors, size, sides);
-                case 2 -> disk2.diskDumpReader(new File(fileName), tracks, sectors, size, sides);
-                case 3 -> disk3.diskDumpReader(new File(fileName), tracks, sectors, size, sides);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to load disk image. " + e.getMessage());
+        File file = checkDiskImage(fileName);
+        int imageSides = sides;
+        DiskImage.DiskLoader loader = image -> {
+            systemContext.logInfoEvent("Loading a disk dump image image into drive " + disk + " - " + fileName);
+            image.openDumpImage(file, tracks, sectors, size, imageSides, overlay);
+        };
+        switch (disk) {
+            default -> disk0.deferLoad(loader, fileName);
+            case 1 -> disk1.deferLoad(loader, fileName);
+            case 2 -> disk2.deferLoad(loader, fileName);
+            case 3 -> disk3.deferLoad(loader, fileName);
         }
     }
 
@@ -251,7 +314,7 @@ public abstract class FDC17xx extends BaseCard {
     }
 
     /**
-     * inner class for the file filter (.dsk)
+     * inner class for the file filter (.dmp and .ndz)
      */
     private static class dskFileFilter extends javax.swing.filechooser.FileFilter {
         @Override
@@ -264,7 +327,7 @@ public abstract class FDC17xx extends BaseCard {
                     return false;
                 }
                 String fileType = f.getName().substring(place).toLowerCase();
-                return (0 == fileType.compareTo(".dmp"));
+                return (0 == fileType.compareTo(".dmp")) || (0 == fileType.compareTo(CompressedImage.EXTENSION));
             }
         }
 
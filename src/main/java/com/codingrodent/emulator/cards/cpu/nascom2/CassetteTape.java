@@ -26,13 +26,26 @@
 package com.codingrodent.emulator.cards.cpu.nascom2;
 
 import com.codingrodent.emulator.emulator.SystemContext;
+import com.codingrodent.microprocessor.IMemory;
 
 import javax.swing.*;
 import java.io.*;
 
 class CassetteTape {
     private static final int TAPE_DRIVE_LED = 0x010;
+    // NAS-SYS 3 R / V command, block search loop and the end of load / checksum error exits
+    static final int NAS_SYS_READ = 0x0666;
+    static final int NAS_SYS_READ_END = 0x0677;
+    static final int NAS_SYS_READ_ERROR = 0x06BC;
+    private static final int[] NAS_SYS_READ_CODE = {0x06, 0x03, 0x4F, 0xCF, 0xB9, 0x20, 0xF9, 0x10, 0xFA, 0xFE, 0xFF};
+    private static final int NAS_SYS_COMMAND = 0x0C2B;
+    private static final int NAS_SYS_ARGUMENT_COUNT = 0x0C0B;
+    private static final int NAS_SYS_ARGUMENT = 0x0C0C;
+    private static final int SYNC_LENGTH = 4;
+    private static final int BLOCK_SYNC = 0xFF;
+    private static final int END_SYNC = 0x1B;
     private final SystemContext systemContext;
+    private boolean fastLoad;
     private boolean tapeLED;
     private FileInputStream tapeFileInput;
     private FileOutputStream tapeFileOutput;
@@ -101,6 +114,134 @@ class CassetteTape {
         }
     }
 
+    /**
+     * Read the next byte of the input tape
+     *
+     * @return Tape byte, or -1 at the end of the tape
+     */
+    private int readTapeByte() {
+        return (null == tapeFileInput) ? -1 : readDataFromUART();
+    }
+
+    /**
+     * Turn the fast load trap on or off
+     *
+     * @param fastLoad True to load tapes straight into memory
+     */
+    void setFastLoad(boolean fastLoad) {
+        this.fastLoad = fastLoad;
+    }
+
+    /**
+     * Is the fast load trap on
+     *
+     * @return True if tapes are loaded straight into memory
+     */
+    boolean isFastLoad() {
+        return fastLoad;
+    }
+
+    /**
+     * Called when the CPU reaches the NAS-SYS 3 tape block search. If fast loading, the rest of the tape is read here,
+     * each block written to memory as the R command would (or only checked for V), and the CPU skips past the load
+     * loop. Block format is a sync of four 0xFF, start address, length (0 for 256), block number, header checksum,
+     * data and data checksum. The last block is number 0 and four 0x1B also end the load.
+     *
+     * @param memory Memory as seen by the CPU
+     * @return Address to continue execution from, NAS_SYS_READ to run the ROM code as normal
+     */
+    int fastLoad(IMemory memory) {
+        if (!fastLoad || (null == tapeFileInput) || !isNasSysRead(memory)) {
+            return NAS_SYS_READ;
+        }
+        int command = memory.readByte(NAS_SYS_COMMAND);
+        if (('R' != command) && ('V' != command)) {
+            return NAS_SYS_READ;
+        }
+        while (true) {
+            int sync = findSync();
+            if (sync < 0) {
+                // tape ran out, leave NAS-SYS waiting as a real machine would
+                return NAS_SYS_READ;
+            }
+            if (END_SYNC == sync) {
+                return NAS_SYS_READ_END;
+            }
+            int[] header = new int[5];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = readTapeByte();
+                if (header[i] < 0) {
+                    return NAS_SYS_READ;
+                }
+            }
+            if (((header[0] + header[1] + header[2] + header[3]) & 0xFF) != header[4]) {
+                return NAS_SYS_READ_ERROR;
+            }
+            int address = header[0] | (header[1] << 8);
+            if (0 != memory.readByte(NAS_SYS_ARGUMENT_COUNT)) {
+                address = address + memory.readWord(NAS_SYS_ARGUMENT);
+            }
+            int length = (0 == header[2]) ? 256 : header[2];
+            int checksum = 0;
+            for (int i = 0; i < length; i++) {
+                int value = readTapeByte();
+                if (value < 0) {
+                    return NAS_SYS_READ;
+                }
+                if ('R' == command) {
+                    memory.writeByte((address + i) & 0xFFFF, value);
+                }
+                checksum = checksum + value;
+            }
+            int value = readTapeByte();
+            if (value < 0) {
+                return NAS_SYS_READ;
+            }
+            if ((checksum & 0xFF) != value) {
+                return NAS_SYS_READ_ERROR;
+            }
+            if (0 == header[3]) {
+                return NAS_SYS_READ_END;
+            }
+        }
+    }
+
+    /**
+     * Check that the NAS-SYS 3 block search is where expected
+     *
+     * @param memory Memory as seen by the CPU
+     * @return True if the ROM code matches
+     */
+    private boolean isNasSysRead(IMemory memory) {
+        for (int i = 0; i < NAS_SYS_READ_CODE.length; i++) {
+            if (NAS_SYS_READ_CODE[i] != memory.readByte(NAS_SYS_READ + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skip the tape to the end of the next sync, four of the same byte, either a block or end of tape sync
+     *
+     * @return Sync byte, or -1 at the end of the tape
+     */
+    private int findSync() {
+        int previous = -1;
+        int count = 0;
+        while (true) {
+            int value = readTapeByte();
+            if (value < 0) {
+                return -1;
+            }
+            count = (value == previous) ? count + 1 : 1;
+            previous = value;
+            if ((SYNC_LENGTH == count) && ((BLOCK_SYNC == value) || (END_SYNC == value))) {
+                return value;
+            }
+        }
+    }
+
     /**
      * Read status from the UART status register, port 2
      *
@@ -119,7 +260,7 @@ class CassetteTape {
      *
      * @param readFileName The file to read from
      */
-    private void setTapeRead(String readFileName) {
+    void setTapeRead(String readFileName) {
         if (null != tapeFileInput) {
             try {
                 tapeFileInput.close();
@@ -34,6 +34,7 @@ class Keyboard implements IBaseDevice {
     private final int[] buffer = {0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff};
     private final int[] portBuffer = {0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff, 0x00ff};
     private int position;
+    private KeyboardInjector injector;
 
     /*
      * The Nascom keyboard is painful.  A keystroke is a set of byte query / returns to
@@ -79,12 +80,24 @@ class Keyboard implements IBaseDevice {
      * Reset keyboard byte buffer
      */
     private void resetBuffer() {
+        if (null != injector) {
+            injector.scan();
+        }
         synchronized (buffer) {
             System.arraycopy(buffer, 0, portBuffer, 0, buffer.length);
         }
         position = 0;
     }
 
+    /**
+     * Attach a text injector, to be told of the start of each keyboard scan
+     *
+     * @param injector The injector
+     */
+    void setInjector(KeyboardInjector injector) {
+        this.injector = injector;
+    }
+
     /**
      * translate a keystroke into a table for the keyboard port to place bytes into local buffer
      *
@@ -96,4 +109,18 @@ class Keyboard implements IBaseDevice {
         }
     }
 
+    /**
+     * Press or release some keys, leaving the rest of the keyboard as it is
+     *
+     * @param keyBits Bits of the keys in each byte of the scan sequence
+     * @param down    True to press the keys, false to release them
+     */
+    void setKeys(int[] keyBits, boolean down) {
+        synchronized (buffer) {
+            for (int i = 0; i < buffer.length; i++) {
+                buffer[i] = down ? buffer[i] & ~keyBits[i] : buffer[i] | keyBits[i];
+            }
+        }
+    }
+
 }
@@ -0,0 +1,263 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards.cpu.nascom2;
+
+import java.util.Arrays;
+
+/**
+ * Types text into the Nascom keyboard in step with the keyboard scan. Each key (with any shift / ctrl) is held down for
+ * a number of complete scans of the keyboard, then released for the same number of scans, before the next key is
+ * pressed. As the timing is counted in scans rather than host time, text is entered as fast as the monitor will accept
+ * it at any emulation speed.
+ * <p>
+ * Upper case letters are typed unshifted and lower case letters shifted, as on the real keyboard. The special keys are
+ * typed using '\b' (backspace), '\n' or '\r' (enter), ESCAPE (shift enter) and the KEY_xxx cursor constants.
+ */
+public class KeyboardInjector {
+
+    public final static char KEY_UP = '\uE000';
+    public final static char KEY_DOWN = '\uE001';
+    public final static char KEY_LEFT = '\uE002';
+    public final static char KEY_RIGHT = '\uE003';
+    public final static char ESCAPE = '\u001B';
+    private final static int DEFAULT_SCANS_PER_STATE = 2;
+    private final static int UNMAPPED = -1;
+    private final static int SHIFT = 0x0100;
+    private final static int CTRL = 0x0200;
+    private final static int[] keyTable = new int[128];
+    private final static int[] cursorTable = new int[4];
+
+    static {
+        Arrays.fill(keyTable, UNMAPPED);
+        String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        int[] letterKeys = {key(4, 4), key(1, 1), key(7, 3), key(2, 3), key(3, 3), key(1, 3), key(7, 0), key(1, 0), key(4, 5), key(2, 0), key(3, 0), key(4, 0), key(3, 1), key(2, 1), key(5, 5), key(6, 5), key(5, 4), key(7, 5), key(3, 4), key(1, 5), key(3, 5), key(7, 1), key(4, 3), key(1, 4), key(2, 5), key(2, 4)};
+        for (int i = 0; i < letters.length(); i++) {
+            keyTable[letters.charAt(i)] = letterKeys[i];
+            keyTable[Character.toLowerCase(letters.charAt(i))] = letterKeys[i] | SHIFT;
+            // control characters, other than those with their own key
+            keyTable[letters.charAt(i) - '@'] = letterKeys[i] | CTRL;
+        }
+        int[] digitKeys = {key(6, 2), key(6, 4), key(6, 3), key(5, 3), key(7, 2), key(1, 2), key(2, 2), key(3, 2), key(4, 2), key(5, 2)};
+        for (int i = 0; i < digitKeys.length; i++) {
+            keyTable['0' + i] = digitKeys[i];
+        }
+        keyTable['\b'] = key(0, 0);
+        keyTable['\n'] = key(0, 1);
+        keyTable['\r'] = key(0, 1);
+        keyTable[ESCAPE] = key(0, 1) | SHIFT;
+        keyTable[' '] = key(7, 4);
+        keyTable['-'] = key(0, 2);
+        keyTable['@'] = key(0, 5);
+        keyTable[','] = key(4, 1);
+        keyTable['.'] = key(5, 1);
+        keyTable['/'] = key(6, 1);
+        keyTable[';'] = key(5, 0);
+        keyTable[':'] = key(6, 0);
+        keyTable['['] = key(6, 6);
+        keyTable[']'] = key(7, 6);
+        // shifted symbols, matching KeyboardHandler
+        keyTable['!'] = digitKeys[1] | SHIFT;
+        keyTable['#'] = digitKeys[3] | SHIFT;
+        keyTable['$'] = digitKeys[4] | SHIFT;
+        keyTable['%'] = digitKeys[5] | SHIFT;
+        keyTable['&'] = digitKeys[6] | SHIFT;
+        keyTable['\''] = digitKeys[7] | SHIFT;
+        keyTable['('] = digitKeys[8] | SHIFT;
+        keyTable[')'] = digitKeys[9] | SHIFT;
+        keyTable['^'] = digitKeys[0] | SHIFT;
+        keyTable['"'] = key(0, 5) | SHIFT;
+        keyTable['*'] = key(6, 0) | SHIFT;
+        keyTable['+'] = key(5, 0) | SHIFT;
+        keyTable['='] = key(0, 2) | SHIFT;
+        keyTable['<'] = key(4, 1) | SHIFT;
+        keyTable['>'] = key(5, 1) | SHIFT;
+        keyTable['?'] = key(6, 1) | SHIFT;
+        keyTable['\\'] = key(6, 6) | SHIFT;
+        keyTable['_'] = key(7, 6) | SHIFT;
+        keyTable['{'] = key(5, 0) | CTRL;
+        keyTable['}'] = key(0, 2) | CTRL | SHIFT;
+        //
+        cursorTable[KEY_UP - KEY_UP] = key(1, 6);
+        cursorTable[KEY_DOWN - KEY_UP] = key(3, 6);
+        cursorTable[KEY_LEFT - KEY_UP] = key(2, 6);
+        cursorTable[KEY_RIGHT - KEY_UP] = key(4, 6);
+    }
+
+    private final Keyboard keyboard;
+    private final int[] keys = new int[8]; // bits of the key being typed
+    private final StringBuilder pending = new StringBuilder();
+    private int scansPerState = DEFAULT_SCANS_PER_STATE;
+    private int scansRemaining;
+    private boolean keyDown;
+    private long keysTyped;
+
+    /**
+     * Attach to the keyboard device
+     *
+     * @param keyboard The keyboard
+     */
+    KeyboardInjector(Keyboard keyboard) {
+        this.keyboard = keyboard;
+    }
+
+    /**
+     * Encode a key position in the keyboard matrix
+     *
+     * @param sequenceByte Which byte in the scan sequence, 0..7
+     * @param bit          Which bit in the byte
+     * @return Key code
+     */
+    private static int key(int sequenceByte, int bit) {
+        return (sequenceByte << 4) | bit;
+    }
+
+    /**
+     * Look up the key code for a character
+     *
+     * @param c The character
+     * @return The key code or UNMAPPED
+     */
+    private static int keyCode(char c) {
+        if (c < keyTable.length) {
+            return keyTable[c];
+        }
+        if ((c >= KEY_UP) && (c <= KEY_RIGHT)) {
+            return cursorTable[c - KEY_UP];
+        }
+        return UNMAPPED;
+    }
+
+    /**
+     * Check if a character can be typed
+     *
+     * @param c The character
+     * @return True if there is a key (combination) for the character
+     */
+    public static boolean canType(char c) {
+        return UNMAPPED != keyCode(c);
+    }
+
+    /**
+     * Queue text to be typed. The whole string is checked before anything is queued.
+     *
+     * @param text The text to type
+     */
+    public void type(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!canType(text.charAt(i))) {
+                throw new RuntimeException("No key for character <0x" + Integer.toHexString(text.charAt(i)) + "> at position " + i);
+            }
+        }
+        synchronized (pending) {
+            pending.append(text);
+        }
+    }
+
+    /**
+     * Set how many complete keyboard scans each key down and key up is held for. The default is 2.
+     *
+     * @param scansPerState Scan count, at least 1
+     */
+    public void setScansPerState(int scansPerState) {
+        if (scansPerState < 1) {
+            throw new RuntimeException("Scans per key state must be at least one, <" + scansPerState + ">");
+        }
+        this.scansPerState = scansPerState;
+    }
+
+    /**
+     * Discard any text not yet typed
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.setLength(0);
+        }
+    }
+
+    /**
+     * Report if all queued text has been typed and the last key released
+     *
+     * @return True if idle
+     */
+    public boolean isIdle() {
+        synchronized (pending) {
+            return (0 == pending.length()) && !keyDown && (scansRemaining <= 0);
+        }
+    }
+
+    /**
+     * Number of characters not yet typed
+     *
+     * @return Character count
+     */
+    public int getPending() {
+        synchronized (pending) {
+            return pending.length();
+        }
+    }
+
+    /**
+     * Number of characters typed since the injector was created
+     *
+     * @return Character count
+     */
+    public long getKeysTyped() {
+        return keysTyped;
+    }
+
+    /**
+     * Called by the keyboard at the start of each scan (the reset pulse), before the key state is latched for the scan.
+     * Moves on to the next key state once the current one has been seen by enough complete scans.
+     */
+    void scan() {
+        synchronized (pending) {
+            if ((scansRemaining > 0) && (--scansRemaining > 0)) {
+                return;
+            }
+            if (keyDown) {
+                // release the key, to be seen by the next scans. Keys held down on the host keyboard stay down.
+                keyboard.setKeys(keys, false);
+                keyDown = false;
+                scansRemaining = scansPerState;
+            } else if (pending.length() > 0) {
+                int code = keyCode(pending.charAt(0));
+                pending.deleteCharAt(0);
+                Arrays.fill(keys, 0);
+                keys[code >> 4 & 0x07] |= 1 << (code & 0x0F);
+                if (0 != (code & SHIFT)) {
+                    keys[0] |= 0x10;
+                }
+                if (0 != (code & CTRL)) {
+                    keys[0] |= 0x08;
+                }
+                keyboard.setKeys(keys, true);
+                keyDown = true;
+                keysTyped++;
+                scansRemaining = scansPerState;
+            }
+        }
+    }
+}
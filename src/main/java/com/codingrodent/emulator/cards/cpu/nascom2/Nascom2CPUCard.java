@@ -27,31 +27,50 @@ package com.codingrodent.emulator.cards.cpu.nascom2;
 
 import com.codingrodent.emulator.cards.*;
 import com.codingrodent.emulator.emulator.SystemContext;
+import com.codingrodent.emulator.emulator.display.FrameScheduler;
 import com.codingrodent.emulator.nas80Bus.INasBus;
 import com.codingrodent.emulator.utilities.*;
 import com.codingrodent.microprocessor.*;
+import com.codingrodent.microprocessor.Z80.CPUConstants;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.io.IOException;
 import java.util.Map;
 
-public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
+public class Nascom2CPUCard implements ICard, ICPUControl, INasBus, IDisplayCard, ITextDisplay {
     private final static String TAPE = "Tape";
     private final static String LOAD_TAPE = "Load Tape";
     private final static String SAVE_TAPE = "Save Tape";
     private final static String STOP_LOADING = "Stop Loading Tape";
     private final static String STOP_SAVING = "Stop Saving Tape";
-    private final IMemory memory;
+    private final static String FAST_LOAD = "Fast Load";
+    private final static int FRAME_MHZ_AT_MAX_SPEED = 4;
+    private final static long SLICE_T_STATES = 4000;
+    private final OnboardMemory memory;
     private final IBaseDevice ioDevices;
     private final Z80CPU processor;
     private final SystemContext systemContext = SystemContext.createInstance();
     private final KeyboardHandler keyboardHandler;
+    private final KeyboardInjector keyboardInjector;
     private String cardName;
     private Map<String, String> cardProperties;
-    private boolean run;
+    private final Object runLock = new Object();
+    private volatile boolean run;
+    private volatile boolean terminated;
+    private volatile boolean limitChanged;
     private int NMICounter;
     private boolean nupMode = false;
+    private StandardDisplayDevice display;
+    private int frameRate = FrameScheduler.DEFAULT_FRAME_RATE;
+    private volatile long tStatesPerFrame;
+    private int mhz = 4;
+    private int breakpoint = -1;
+    private long tStateLimit = Long.MAX_VALUE;
+    private IExecutionListener executionListener;
+    private int[] startRegisters;
+    private volatile boolean tapeFastLoad;
+    private JCheckBoxMenuItem fastLoadMenuItem;
 
     /**
      * Standard constructor to produce a Nascom 2 CPU card
@@ -63,6 +82,8 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         //
         Keyboard keyboard = new Keyboard();
         keyboardHandler = new KeyboardHandler(keyboard);
+        keyboardInjector = new KeyboardInjector(keyboard);
+        keyboard.setInjector(keyboardInjector);
         ((OnboardIO) ioDevices).setKeyboard(keyboard);
         ((OnboardIO) ioDevices).setCPUCard(this);
         //
@@ -71,6 +92,9 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         //
         // Add the controls for the tape
         JFrame screenFrame = systemContext.getPrimaryDisplay();
+        if (null == screenFrame) {
+            return;
+        }
         JMenuBar menuBar = screenFrame.getJMenuBar();
         JMenu menu = new JMenu(TAPE);
         menuBar.add(menu);
@@ -86,6 +110,9 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         JMenuItem stopSaveMenuItem = new JMenuItem(STOP_SAVING);
         menu.add(stopSaveMenuItem);
         stopSaveMenuItem.addActionListener(this);
+        fastLoadMenuItem = new JCheckBoxMenuItem(FAST_LOAD);
+        menu.add(fastLoadMenuItem);
+        fastLoadMenuItem.addActionListener(this);
     }
 
     /**
@@ -93,7 +120,6 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
      */
     @Override
     public void initialise() {
-        StandardDisplayDevice display;
         try {
             FileHandler fileHandler = new FileHandler();
             MemoryChunk videoROM = fileHandler.readHexDumpFile(cardProperties.get("VideoROM"));
@@ -122,6 +148,11 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         if (null != property) {
             nupMode = "true".equals(property);
         }
+        property = cardProperties.get("FrameRate");
+        if (null != property) {
+            frameRate = Integer.parseInt(property);
+        }
+        setTapeFastLoad("true".equals(cardProperties.get("TapeFastLoad")));
     }
 
     /**
@@ -245,6 +276,22 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         } else if (STOP_SAVING.equals(menuCommand)) {
             System.out.println("-- Stop saving --");
             ((OnboardIO) ioDevices).stopSaving();
+        } else if (FAST_LOAD.equals(menuCommand)) {
+            setTapeFastLoad(fastLoadMenuItem.getState());
+        }
+    }
+
+    /**
+     * Turn the tape fast load trap on or off. When on, the NAS-SYS 3 R and V commands read the whole tape at once
+     * instead of a byte per UART poll.
+     *
+     * @param fastLoad True to load tapes straight into memory
+     */
+    private void setTapeFastLoad(boolean fastLoad) {
+        tapeFastLoad = fastLoad;
+        ((OnboardIO) ioDevices).setTapeFastLoad(fastLoad);
+        if (null != fastLoadMenuItem) {
+            fastLoadMenuItem.setState(fastLoad);
         }
     }
 
@@ -263,21 +310,90 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         }
         processor.setProgramCounter(startAddress);
         processor.setResetAddress(startAddress);
-        processor.setMHz(4);
+        if (null != startRegisters) {
+            CPUConstants.RegisterNames[] names = CPUConstants.RegisterNames.values();
+            for (int i = 0; i < names.length; i++) {
+                processor.setRegisterValue(names[i], startRegisters[i]);
+            }
+        }
+        setSpeedMHz(mhz);
         processor.setNUPMode(nupMode);
-        while (true) {
+        FrameScheduler frameScheduler = systemContext.getCardController().getFrameScheduler();
+        frameScheduler.setFrameRate(frameRate);
+        long elapsed = processor.getElapsedTStates();
+        long nextFrame = elapsed + tStatesPerFrame;
+        long nextSlice = nextSlice(elapsed);
+        while (!terminated) {
             if (run) {
+                if (limitChanged) {
+                    // the T state limit may have moved since the slice end was worked out
+                    limitChanged = false;
+                    nextSlice = nextSlice(processor.getElapsedTStates());
+                }
                 processNascomNMI();
+                if (tapeFastLoad && (CassetteTape.NAS_SYS_READ == processor.getProgramCounter())) {
+                    processor.setProgramCounter(((OnboardIO) ioDevices).tapeFastLoad(memory));
+                }
                 processor.execute();
+                if (processor.getProgramCounter() == breakpoint) {
+                    executionEvent(IExecutionListener.Event.BREAKPOINT);
+                }
+                // everything else is only looked at on time slice boundaries
+                if (processor.getElapsedTStates() >= nextSlice) {
+                    elapsed = processor.getElapsedTStates();
+                    nextSlice = nextSlice(elapsed);
+                    if (elapsed >= nextFrame) {
+                        nextFrame = elapsed + tStatesPerFrame;
+                        frameScheduler.frame();
+                    }
+                    if (elapsed >= tStateLimit) {
+                        executionEvent(IExecutionListener.Event.T_STATE_LIMIT);
+                    } else if (processor.getHalt()) {
+                        executionEvent(IExecutionListener.Event.HALT);
+                    } else {
+                        executionEvent(IExecutionListener.Event.SLICE);
+                    }
+                }
             } else {
-                try {
-                    Thread.sleep(250);
-                } catch (InterruptedException ex1) {
-                    systemContext.logErrorEvent("Sleep in main execution thread interrupted - weird!");
+                synchronized (runLock) {
+                    try {
+                        while (!run && !terminated) {
+                            runLock.wait(250);
+                        }
+                    } catch (InterruptedException ex1) {
+                        systemContext.logErrorEvent("Wait in main execution thread interrupted - weird!");
+                    }
                 }
             }
         }
+        systemContext.logInfoEvent("Execution terminated");
+    }
+
+    /**
+     * Calculate the end of the next time slice, which is cut short by any T state limit ahead
+     *
+     * @param elapsed Elapsed T states
+     * @return Elapsed T states at which the slice ends
+     */
+    private long nextSlice(long elapsed) {
+        long next = elapsed + SLICE_T_STATES;
+        if ((tStateLimit > elapsed) && (tStateLimit < next)) {
+            next = tStateLimit;
+        }
+        return next;
+    }
 
+    /**
+     * Pass an execution event to the listener (if any), stopping if requested
+     *
+     * @param event The event
+     */
+    private void executionEvent(IExecutionListener.Event event) {
+        IExecutionListener listener = executionListener;
+        if ((null != listener) && listener.executionEvent(event)) {
+            run = false;
+            listener.executionStopped();
+        }
     }
 
     /**
@@ -295,7 +411,74 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
     @Override
     public void restart() {
         systemContext.logInfoEvent("Restart Execution");
-        run = true;
+        synchronized (runLock) {
+            limitChanged = true;
+            run = true;
+            runLock.notifyAll();
+        }
+    }
+
+    /**
+     * End execution. start() returns and the CPU may not be restarted.
+     */
+    @Override
+    public void terminate() {
+        synchronized (runLock) {
+            terminated = true;
+            run = false;
+            runLock.notifyAll();
+        }
+    }
+
+    /**
+     * T states executed since the CPU was created
+     *
+     * @return Total T states
+     */
+    @Override
+    public long getElapsedTStates() {
+        return processor.getElapsedTStates();
+    }
+
+    /**
+     * Report if the CPU has executed a HALT instruction
+     *
+     * @return True if halted
+     */
+    @Override
+    public boolean isHalted() {
+        return processor.getHalt();
+    }
+
+    /**
+     * Set an address at which to raise a BREAKPOINT event. Set while the CPU is stopped.
+     *
+     * @param address Address 0x0000 to 0xFFFF, or -1 for no breakpoint
+     */
+    @Override
+    public void setBreakpoint(int address) {
+        breakpoint = address;
+    }
+
+    /**
+     * Set the elapsed T state count at which to raise a T_STATE_LIMIT event. Set while the CPU is stopped.
+     *
+     * @param elapsedTStates T state count, or Long.MAX_VALUE for no limit
+     */
+    @Override
+    public void setTStateLimit(long elapsedTStates) {
+        tStateLimit = elapsedTStates;
+        limitChanged = true;
+    }
+
+    /**
+     * Set the listener for execution events
+     *
+     * @param listener The listener, or null for none
+     */
+    @Override
+    public void setExecutionListener(IExecutionListener listener) {
+        executionListener = listener;
     }
 
     /**
@@ -305,7 +488,142 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
      */
     @Override
     public void setSpeedMHz(int mhz) {
+        this.mhz = mhz;
         processor.setMHz(mhz);
+        // frames are locked to emulated time, flat out runs are paced as if at 4MHz
+        tStatesPerFrame = (mhz <= 0 ? FRAME_MHZ_AT_MAX_SPEED : mhz) * 1_000_000L / frameRate;
+    }
+
+    /**
+     * Take a copy of the processor registers, in CPUConstants.RegisterNames order. Only meaningful while the CPU is
+     * stopped.
+     *
+     * @return Register values
+     */
+    public int[] getRegisters() {
+        CPUConstants.RegisterNames[] names = CPUConstants.RegisterNames.values();
+        int[] registers = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            registers[i] = processor.getRegisterValue(names[i]);
+        }
+        return registers;
+    }
+
+    /**
+     * Set the register values to be loaded when execution starts, in place of the reset state and start address.
+     * Used to resume from a machine snapshot.
+     *
+     * @param registers Register values as returned by getRegisters()
+     */
+    public void setStartRegisters(int[] registers) {
+        if (registers.length != CPUConstants.RegisterNames.values().length) {
+            throw new RuntimeException("Register set does not match this processor, <" + registers.length + "> values");
+        }
+        startRegisters = registers.clone();
+    }
+
+    /**
+     * Get the keyboard text injector, used to type text / scripts into the machine
+     *
+     * @return The injector
+     */
+    public KeyboardInjector getKeyboardInjector() {
+        return keyboardInjector;
+    }
+
+    /**
+     * Paint the current frame to the screen
+     */
+    @Override
+    public void paintFrame() {
+        display.paintFrame();
+    }
+
+    /**
+     * Width of the current frame as returned by getFrame()
+     *
+     * @return Width in pixels
+     */
+    @Override
+    public int getFrameWidth() {
+        return display.getFrameWidth();
+    }
+
+    /**
+     * Height of the current frame as returned by getFrame()
+     *
+     * @return Height in pixels
+     */
+    @Override
+    public int getFrameHeight() {
+        return display.getFrameHeight();
+    }
+
+    /**
+     * A count incremented every time a visible character changes
+     *
+     * @return Change count
+     */
+    @Override
+    public long getScreenVersion() {
+        return display.getScreenVersion();
+    }
+
+    /**
+     * Number of visible character columns
+     *
+     * @return Columns per line
+     */
+    @Override
+    public int getScreenColumns() {
+        return display.getColumns();
+    }
+
+    /**
+     * Number of visible character rows
+     *
+     * @return Lines on the screen
+     */
+    @Override
+    public int getScreenRows() {
+        return display.getRows();
+    }
+
+    /**
+     * Copy the visible screen, top line first
+     *
+     * @param screen Destination, at least columns * rows in size
+     */
+    @Override
+    public void readScreen(char[] screen) {
+        display.readScreen(screen);
+    }
+
+    /**
+     * Snapshot of the visible screen as one string per line, top line first
+     *
+     * @return Screen lines
+     */
+    @Override
+    public String[] getScreenLines() {
+        int columns = display.getColumns();
+        char[] screen = new char[columns * display.getRows()];
+        display.readScreen(screen);
+        String[] lines = new String[display.getRows()];
+        for (int row = 0; row < lines.length; row++) {
+            lines[row] = new String(screen, row * columns, columns);
+        }
+        return lines;
+    }
+
+    /**
+     * Copy the current frame
+     *
+     * @param pixels Destination, at least width * height in size
+     */
+    @Override
+    public void getFrame(int[] pixels) {
+        display.getFrame(pixels);
     }
 
     /**
@@ -360,6 +678,32 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
         return false;
     }
 
+    /**
+     * Write a block of data to the onboard memory
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    @Override
+    public void memoryWriteBlock(int address, short[] data, int offset, int length) {
+        memory.writeBlock(address, data, offset, length);
+    }
+
+    /**
+     * Read a block of data as seen by the CPU
+     *
+     * @param address First address to read from
+     * @param data    Array to read into
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to read
+     */
+    @Override
+    public void memoryReadBlock(int address, short[] data, int offset, int length) {
+        memory.readBlock(address, data, offset, length);
+    }
+
     /**
      * ead data from the memory bus taking into account the RAMDIS signal
      *
@@ -436,13 +780,14 @@ public class Nascom2CPUCard implements ICard, ICPUControl, INasBus {
     }
 
     /**
-     * Recover the number of T states executed by the CPU
+     * Recover the number of T states executed by the CPU since it was created. This never goes backwards, so bus cards
+     * can use it to time events.
      *
      * @return long
      */
     @Override
     public long getClock() {
-        return processor.getTStates();
+        return processor.getElapsedTStates();
     }
 
     /**
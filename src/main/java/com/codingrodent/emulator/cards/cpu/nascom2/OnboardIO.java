@@ -27,7 +27,7 @@ package com.codingrodent.emulator.cards.cpu.nascom2;
 
 import com.codingrodent.emulator.emulator.SystemContext;
 import com.codingrodent.emulator.nas80Bus.INasBus;
-import com.codingrodent.microprocessor.IBaseDevice;
+import com.codingrodent.microprocessor.*;
 
 class OnboardIO implements IBaseDevice {
     private static final int NMIFlag = 0x08;
@@ -170,4 +170,23 @@ class OnboardIO implements IBaseDevice {
         cassetteTape.closeOutput();
     }
 
+    /**
+     * Turn the tape fast load trap on or off
+     *
+     * @param fastLoad True to load tapes straight into memory
+     */
+    void setTapeFastLoad(boolean fastLoad) {
+        cassetteTape.setFastLoad(fastLoad);
+    }
+
+    /**
+     * Load the rest of the tape straight into memory when NAS-SYS starts reading it
+     *
+     * @param memory Memory as seen by the CPU
+     * @return Address to continue execution from
+     */
+    int tapeFastLoad(IMemory memory) {
+        return cassetteTape.fastLoad(memory);
+    }
+
 }
@@ -353,6 +353,42 @@ class OnboardMemory implements IMemory {
         }
     }
 
+    /**
+     * Write a block of data into the onboard memory. Addresses off the card are ignored, they are written directly to
+     * the other cards on the bus by the block write.
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    void writeBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            int location = address + i;
+            if (ramValid[location]) {
+                memory[location] = data[offset + i];
+            }
+            if (videoValid[location]) {
+                displayDevice.writeByte(location - videoRAMBase, data[offset + i]);
+            }
+        }
+    }
+
+    /**
+     * Read a block of data as seen by the CPU, from the onboard memory or the bus
+     *
+     * @param address First address to read from
+     * @param data    Array to read into
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to read
+     */
+    void readBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            int location = address + i;
+            data[offset + i] = (short) (onboard[location] ? memory[location] : nasBus.memoryRead(location));
+        }
+    }
+
     /*
      * write a word into memory, LSB, MSB order
      */
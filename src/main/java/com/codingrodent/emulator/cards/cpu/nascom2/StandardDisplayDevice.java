@@ -30,98 +30,64 @@ import com.codingrodent.emulator.utilities.MemoryChunk;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
 import java.awt.image.*;
 
 /*
  * convert video memory writes into bit displays
  */
-class StandardDisplayDevice implements ActionListener {
+class StandardDisplayDevice {
 
     private final static int rowBits = 8;                                // 8 bits per row
     private final static int columnBits = 16;                                // 16 bits per column
     private final static int rows = 16;                                // screen rows
     private final static int columns = 48;                                // screen columns
-    private final static int characters = 256;                                // character cells
     private final static int scale = 2;                                    // scale up character to make
     private final static int leftMargin = 0x000A;                            // non displayed cells on the
     private final static int rightMargin = 0x0007;                            // non displayed cells on the
     private final static int lineLength = 0x0040;                            // 64 bytes per line
     private final static int rightBorder = lineLength - rightMargin;
-    private final Image[] icons = new Image[characters];        // pre-rendered each character
+    private final static int frameWidth = columns * rowBits;                  // unscaled image size
+    private final static int frameHeight = rows * columnBits;
+    private final static int pixelOff = 0xFF000000;                          // xxRRGGBB
+    private final static int pixelOn = 0xFF00FF00;                           // xxRRGGBB
     private final JFrame screenFrame;                                        // standard video
     private final JComponent canvas;
     private final int[] shadowRAM = new int[1024];
     private final short[] rom;
-    private final VolatileImage imageBufferVolatile;
-    private final Graphics2D imageBufferGVolatile;
+    private final BufferedImage frameImage;
+    private final int[] framePixels;
+    private volatile long screenVersion;
 
     /*
-     * put up windows to hold the video display and register display
+     * put up windows to hold the video display and register display. With no primary display the device runs
+     * headless, still rendering into the frame buffer
      */
     StandardDisplayDevice(MemoryChunk romFile) {
         int size = romFile.getSize();
         rom = new short[size];
         System.arraycopy(romFile.getMemoryChunk(), 0, rom, 0, size);
+        //
+        frameImage = new BufferedImage(frameWidth, frameHeight, BufferedImage.TYPE_INT_RGB);
+        framePixels = ((DataBufferInt) frameImage.getRaster().getDataBuffer()).getData();
         /* the nascom 48*16 video display */
         screenFrame = SystemContext.createInstance().getPrimaryDisplay();
-        //
-        canvas = new JPanel();
-        screenFrame.getContentPane().add(BorderLayout.CENTER, canvas);
-        canvas.setPreferredSize(new Dimension(columns * rowBits * scale, rows * columnBits * scale));
-        canvas.setMinimumSize(new Dimension(columns * rowBits, rows * columnBits));
-        //screenFrame.addWindowListener(new WindowHandler());
-        // Set up the panel, enable this close and enable event handling
-        // screenFrame.enableEvents(AWTEvent.WINDOW_EVENT_MASK | AWTEvent.KEY_EVENT_MASK | AWTEvent.ACTION_EVENT_MASK);
-        // and show the window
-        screenFrame.pack();
-        //screenFrame.setResizable(true);
-        screenFrame.setVisible(true);
-        //
-        imageBufferVolatile = canvas.createVolatileImage(columns * rowBits * scale, rows * columnBits * scale);
-        imageBufferGVolatile = imageBufferVolatile.createGraphics();
+        if (null == screenFrame) {
+            canvas = null;
+        } else {
+            canvas = new JPanel();
+            screenFrame.getContentPane().add(BorderLayout.CENTER, canvas);
+            canvas.setPreferredSize(new Dimension(frameWidth * scale, frameHeight * scale));
+            canvas.setMinimumSize(new Dimension(frameWidth, frameHeight));
+            // and show the window
+            screenFrame.pack();
+            screenFrame.setVisible(true);
+        }
         //
         reset();
-        //
-        Timer timer = new Timer(50, this);
-        timer.setCoalesce(true);
-        timer.setRepeats(true);
-        timer.start();
     }
 
     /**
-     * Generate an image matching a character cell from the video ROM.
-     *
-     * @param cell The character cell to be used, 0..255
-     * @return Generate an Image class representing one 8 x 16 pixel character
-     */
-    private Image getImageIcon(int cell) {
-        int romAddress = cell * 16; // 16 bytes per character
-        int offset = 0; // offset into byte buffer
-        int[] pic = new int[rowBits * columnBits]; // pixel data byte buffer
-        int charValue; // one byte from the ROM
-        int bitMask;
-        int pixelOff = 0x00000000; // xxRRGGBB
-        int pixelOn = 0xFF00FF00; // xxRRGGBB
-        for (int i = 0; i < columnBits; i++) {
-            bitMask = 0x80; // scan 8 bits, mask = 10000000, shift right
-            charValue = rom[romAddress + i];
-            for (int bit = 0; bit < rowBits; bit++) {
-                if ((bitMask & charValue) == 0) {
-                    pic[offset++] = pixelOff;
-                } else {
-                    pic[offset++] = pixelOn;
-                }
-                bitMask = bitMask >>> 1;
-            }
-        }
-        Image baseImage = canvas.createImage(new MemoryImageSource(rowBits, columnBits, pic, 0, rowBits));
-        baseImage = baseImage.getScaledInstance(rowBits * scale, columnBits * scale, Image.SCALE_DEFAULT);
-        return baseImage;
-    }
-
-    /**
-     * Paint a character (int) at (row, column)
+     * Paint a character (int) at (row, column) directly from the video ROM
      *
      * @param row       The character row 0..15
      * @param column    The character column 0..47
@@ -129,7 +95,17 @@ class StandardDisplayDevice implements ActionListener {
      */
     private void printByte(int row, int column, int character) {
         row = (row + 1) % rows;
-        imageBufferGVolatile.drawImage(icons[character], column * rowBits * scale, row * columnBits * scale, Color.BLACK, null);
+        int romAddress = character * columnBits; // 16 bytes per character
+        int position = row * columnBits * frameWidth + column * rowBits;
+        for (int line = 0; line < columnBits; line++) {
+            int charValue = rom[romAddress + line];
+            int bitMask = 0x80; // scan 8 bits, mask = 10000000, shift right
+            for (int bit = 0; bit < rowBits; bit++) {
+                framePixels[position + bit] = ((bitMask & charValue) == 0) ? pixelOff : pixelOn;
+                bitMask = bitMask >>> 1;
+            }
+            position = position + frameWidth;
+        }
     }
 
     /**
@@ -141,9 +117,6 @@ class StandardDisplayDevice implements ActionListener {
                 printByte(row, column, 65); // A character
             }
         }
-        for (int character = 0; character < characters; character++) {
-            icons[character] = getImageIcon(character);
-        }
     }
 
     /**
@@ -152,7 +125,7 @@ class StandardDisplayDevice implements ActionListener {
      * @param address Address of the character cell
      * @param data    The byte to write into video ram
      */
-    void writeByte(int address, int data) {
+    synchronized void writeByte(int address, int data) {
         int column, row;
         if (shadowRAM[address] != data) {
             shadowRAM[address] = data;
@@ -161,33 +134,108 @@ class StandardDisplayDevice implements ActionListener {
                 row = (address >>> 6);
                 column = column - leftMargin;
                 printByte(row, column, data);
+                screenVersion++;
             }
         }
     }
 
+    /**
+     * Copy the visible characters from the video RAM. The top line displayed is held in the last row of video RAM (see
+     * printByte()), and the margin cells either side of each row are not shown.
+     *
+     * @param screen Destination, at least 48 * 16 in size
+     */
+    synchronized void readScreen(char[] screen) {
+        int position = 0;
+        for (int row = 0; row < rows; row++) {
+            int address = ((row + rows - 1) % rows) * lineLength + leftMargin;
+            for (int column = 0; column < columns; column++) {
+                screen[position++] = (char) shadowRAM[address++];
+            }
+        }
+    }
+
+    /**
+     * A count incremented every time a visible character changes
+     *
+     * @return Change count
+     */
+    long getScreenVersion() {
+        return screenVersion;
+    }
+
+    /**
+     * Number of visible character columns
+     *
+     * @return Columns per line
+     */
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Number of visible character rows
+     *
+     * @return Lines on the screen
+     */
+    int getRows() {
+        return rows;
+    }
+
     /**
      * Add the keyboard handler to the mainboard
      *
      * @param keyboardHandler handler for key input
      */
     void addKeyboardHandler(KeyboardHandler keyboardHandler) {
-        screenFrame.addKeyListener(keyboardHandler);
-        screenFrame.addWindowFocusListener(keyboardHandler);
+        if (null != screenFrame) {
+            screenFrame.addKeyListener(keyboardHandler);
+            screenFrame.addWindowFocusListener(keyboardHandler);
+        }
     }
 
     /**
-     * Action for the timer. Paint the graphics buffer to the screen
+     * Paint the graphics buffer to the screen. Called once per frame by the frame scheduler
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
+    void paintFrame() {
+        if (null == canvas) {
+            return;
+        }
         Dimension displaySize = canvas.getSize();
-        float scale = Math.min(displaySize.width / (float) (48 * 8), displaySize.height / (float) (16 * 16));
+        float scale = Math.min(displaySize.width / (float) frameWidth, displaySize.height / (float) frameHeight);
         scale = Math.min(Math.max(1, scale), StandardDisplayDevice.scale);
-        displaySize.width = (int) (48 * 8 * scale + 0.5);
-        displaySize.height = (int) (16 * 16 * scale + 0.5);
-        canvas.getGraphics().drawImage(imageBufferVolatile,
+        displaySize.width = (int) (frameWidth * scale + 0.5);
+        displaySize.height = (int) (frameHeight * scale + 0.5);
+        canvas.getGraphics().drawImage(frameImage,
                 0, 0, displaySize.width, displaySize.height, // dst
-                0, 0, 48 * 8 * StandardDisplayDevice.scale, 16 * 16 * StandardDisplayDevice.scale,     // src
+                0, 0, frameWidth, frameHeight,     // src
                 null);
     }
+
+    /**
+     * Width of the unscaled frame
+     *
+     * @return Width in pixels
+     */
+    int getFrameWidth() {
+        return frameWidth;
+    }
+
+    /**
+     * Height of the unscaled frame
+     *
+     * @return Height in pixels
+     */
+    int getFrameHeight() {
+        return frameHeight;
+    }
+
+    /**
+     * Copy the current unscaled frame, one int (xxRRGGBB) per pixel in row order
+     *
+     * @param pixels Destination, at least width * height in size
+     */
+    void getFrame(int[] pixels) {
+        System.arraycopy(framePixels, 0, pixels, 0, framePixels.length);
+    }
 }
@@ -37,6 +37,7 @@ class Z80CPU extends Z80Core {
     private boolean maxSpeed;
     private boolean nupMode;
     private long lastTime;
+    private long elapsedTStates;
 
     /**
      * Standard constructor
@@ -67,9 +68,19 @@ class Z80CPU extends Z80Core {
             tStatesPerMS = mhz * 1000L;
         }
         lastTime = System.nanoTime();
+        elapsedTStates = elapsedTStates + getTStates();
         resetTStates();
     }
 
+    /**
+     * T states executed since the processor was created. Unlike getTStates() this is not reset by the throttling logic.
+     *
+     * @return Total T states
+     */
+    long getElapsedTStates() {
+        return elapsedTStates + getTStates();
+    }
+
     /**
      * Start / stop the performance counting mode
      *
@@ -127,6 +138,7 @@ class Z80CPU extends Z80Core {
                     }
                 }
                 lastTime = System.nanoTime();
+                elapsedTStates = elapsedTStates + getTStates();
                 resetTStates();
             }
         }
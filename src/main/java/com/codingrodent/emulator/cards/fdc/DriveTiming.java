@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards.fdc;
+
+/**
+ * Timing of one floppy drive as seen by the 17xx controller, in CPU T states. In turbo mode every command completes at
+ * once. In accurate mode head steps, head settling, disk rotation and the data rate take as long as they do on a
+ * 300 RPM 5.25" drive with the controller clocked at 1MHz.
+ */
+class DriveTiming {
+    private final static int[] STEP_RATE_MS = {6, 12, 20, 30};
+    private final static int SETTLE_MS = 30;
+    private final static int REVOLUTION_MS = 200;
+    private final static int BYTE_US = 32;
+    private final static int SEARCH_REVOLUTIONS = 5;
+    private final static int VERIFY_BIT = 0x04;
+    private final static int DELAY_BIT = 0x04;
+    private final boolean accurate;
+    private final long tStatesPerMS;
+
+    /**
+     * @param accurate True for real drive timing, false for turbo
+     * @param mhz      CPU clock speed the T states are counted at
+     */
+    DriveTiming(boolean accurate, int mhz) {
+        this.accurate = accurate;
+        this.tStatesPerMS = mhz * 1000L;
+    }
+
+    /**
+     * @return True if the drive runs at real speed
+     */
+    boolean isAccurate() {
+        return accurate;
+    }
+
+    /**
+     * Time taken by a type I command
+     *
+     * @param steps   Number of head steps
+     * @param command Command, giving the step rate and verify flag
+     * @return T states
+     */
+    long getStepTime(int steps, int command) {
+        if (!accurate) {
+            return 0;
+        }
+        long time = steps * STEP_RATE_MS[command & 0x03] * tStatesPerMS;
+        if (0 != (command & VERIFY_BIT)) {
+            time = time + SETTLE_MS * tStatesPerMS;
+        }
+        return time;
+    }
+
+    /**
+     * Head settle time of a type II or III command
+     *
+     * @param command Command, giving the delay flag
+     * @return T states
+     */
+    long getSettleTime(int command) {
+        return (accurate && (0 != (command & DELAY_BIT))) ? SETTLE_MS * tStatesPerMS : 0;
+    }
+
+    /**
+     * Time until a point on the track reaches the head
+     *
+     * @param now      Current T state
+     * @param position Point on the track, 0 being the index hole and 1 a full revolution
+     * @return T states
+     */
+    long getRotationTime(long now, double position) {
+        if (!accurate) {
+            return 0;
+        }
+        long revolution = REVOLUTION_MS * tStatesPerMS;
+        long target = (long) (position * revolution);
+        return Math.floorMod(target - now, revolution);
+    }
+
+    /**
+     * Where the head is on the track
+     *
+     * @param now Current T state
+     * @return Position, 0 being the index hole and 1 a full revolution
+     */
+    double getPosition(long now) {
+        long revolution = REVOLUTION_MS * tStatesPerMS;
+        return Math.floorMod(now, revolution) / (double) revolution;
+    }
+
+    /**
+     * Time spent looking for a sector that is not there before giving up
+     *
+     * @return T states
+     */
+    long getSearchTime() {
+        return accurate ? SEARCH_REVOLUTIONS * REVOLUTION_MS * tStatesPerMS : 0;
+    }
+
+    /**
+     * Time taken for one data byte to pass the head
+     *
+     * @return T states
+     */
+    long getByteTime() {
+        return accurate ? BYTE_US * tStatesPerMS / 1000 : 0;
+    }
+}
@@ -26,6 +26,8 @@
 package com.codingrodent.emulator.cards.fdc;
 
 import com.codingrodent.emulator.cards.common.FDC17xx;
+import com.codingrodent.emulator.utilities.DiskTrack;
+import com.codingrodent.emulator.utilities.RawTrack;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -43,8 +45,6 @@ public class NascomFloppyController extends FDC17xx {
     private final static int drivePort = 0xE4;
     private final static int intrqPort = 0xE5;
 
-    //    private final static int XEBEC_DATA = 0xE7;
-    //    private final static int XEBEC_CTRL = 0xE6;
     //    private final static int NOTREADY        = 0x80;
     //    private final static int WRITEPROTECT    = 0x40;
     private final static int HEAD = 0x20;
@@ -68,10 +68,10 @@ public class NascomFloppyController extends FDC17xx {
     private final static int READ_ADDRESS = 7;
     private final static int READ_TRACK = 8;
     private final static int WRITE_TRACK = 9;
-    private final static int FORCE_INTERRUPT = 10;
     private final static int IDLE = 255;
     private final static int maxTrack = 80;
-    private final static int TRACK_LENGTH = 0x1856;
+    private final static int TRACK_LENGTH = RawTrack.TRACK_LENGTH;
+    private final static int MULTIPLE_BIT = 0x10;
     private int statusRegister;
     private int commandRegister;
     private int trackRegister;
@@ -89,17 +89,26 @@ public class NascomFloppyController extends FDC17xx {
 
     private int command;
     private int idByteCounter;
-    private int[] readBuffer;
-    private byte[] writeBuffer;
+    private final byte[] addressBuffer = new byte[6];
+    private byte[] dataBuffer;
+    private final byte[] sectorBuffer = new byte[1024];
+    private DiskTrack dataTrack;
+    private int dataSector;
+    private int dataEnd;
     private int bufferPosition;
     private int sectorPosition;
-    private byte[] sectorBuffer;
     private int formatTrack;
     private int formatSector;
     private int formatSide;
     private int formatLength;
     private boolean trackWriteStarted;
     private long commandTime;
+    private final DriveTiming[] driveTiming = {new DriveTiming(false, 4), new DriveTiming(false, 4), new DriveTiming(false, 4), new DriveTiming(false, 4)};
+    private DriveTiming timing;
+    private Runnable pendingEvent;
+    private long eventTime;
+    private long nextByteTime;
+    private int addressIndex;
 
     /*
      * constructor forces general reset
@@ -114,9 +123,18 @@ public class NascomFloppyController extends FDC17xx {
      */
     @Override
     public void initialise() {
-        // Load files in Anadisk format (.dmp)
+        // Turbo or accurate timing per drive
+        if (null != cardProperties) {
+            int mhz = Integer.parseInt(cardProperties.getOrDefault("ClockMHz", "4"));
+            for (int drive = 0; drive < driveTiming.length; drive++) {
+                String mode = cardProperties.getOrDefault("Drive" + drive + "_Timing", "turbo");
+                driveTiming[drive] = new DriveTiming("accurate".equalsIgnoreCase(mode), mhz);
+            }
+        }
+        timing = driveTiming[0];
+        // Insert files in Anadisk format (.dmp), read on first use
         processANADiskImages();
-        // Load files in disk dump format (.dsk)
+        // Insert files in disk dump format (.dsk), opened on first use
         processDumpDiskImages();
     }
 
@@ -153,8 +171,12 @@ public class NascomFloppyController extends FDC17xx {
         //        multiple = false;
         //
         bufferPosition = -1;
-        readBuffer = new int[0];
+        dataTrack = null;
+        dataEnd = 0;
         selectedDisk = disk0;
+        timing = driveTiming[0];
+        pendingEvent = null;
+        nextByteTime = 0;
         //
         idByteCounter = 0;
     }
@@ -189,6 +211,10 @@ public class NascomFloppyController extends FDC17xx {
                                 } else {
                                     if ("Load Disk 3".equals(menuCommand)) {
                                         loadDisk(3);
+                                    } else {
+                                        if ("Flush Disks".equals(menuCommand)) {
+                                            flushDisks();
+                                        }
                                     }
                                 }
                             }
@@ -208,7 +234,7 @@ public class NascomFloppyController extends FDC17xx {
     @Override
     public boolean isInputPort(int address) {
         return switch (address) {
-            case statusPort, trackPort, sectorPort, dataPort, drivePort, intrqPort, 0xE6, 0xE7 -> true;
+            case statusPort, trackPort, sectorPort, dataPort, drivePort, intrqPort -> true;
             default -> false;
         };
     }
@@ -222,7 +248,7 @@ public class NascomFloppyController extends FDC17xx {
     @Override
     public boolean isOutputPort(int address) {
         return switch (address) {
-            case commandPort, trackPort, sectorPort, dataPort, drivePort, 0xE6, 0xE7 -> true;
+            case commandPort, trackPort, sectorPort, dataPort, drivePort -> true;
             default -> false;
         };
     }
@@ -241,15 +267,6 @@ public class NascomFloppyController extends FDC17xx {
             case sectorPort -> writeSector(data);
             case dataPort -> writeData(data);
             case drivePort -> writeDrive(data);
-
-            //
-            //            case XEBEC_CTRL:
-            //                xebecController.ioWrite(address, data);
-            //                break;
-            //
-            //            case XEBEC_DATA:
-            //                xebecController.ioWrite(address, data);
-            //                break;
             default -> {
             }
         }
@@ -290,6 +307,9 @@ public class NascomFloppyController extends FDC17xx {
      */
     private void attachGUIComponents() {
         JFrame screenFrame = systemContext.getPrimaryDisplay();
+        if (null == screenFrame) {
+            return;
+        }
         JMenuBar menuBar = screenFrame.getJMenuBar();
         // save a floppy disk
         JMenu menu = new JMenu("Save Disk");
@@ -309,6 +329,11 @@ public class NascomFloppyController extends FDC17xx {
         JMenuItem disk3Menu = new JMenuItem("Save Disk 3");
         disk3Menu.addActionListener(this);
         menu.add(disk3Menu);
+
+        menu.addSeparator();
+        JMenuItem flushMenu = new JMenuItem("Flush Disks");
+        flushMenu.addActionListener(this);
+        menu.add(flushMenu);
         //
         menuBar.add(menu);
 
@@ -417,17 +442,21 @@ public class NascomFloppyController extends FDC17xx {
      */
     private int readStatus() {
         //System.out.println("Read status : "+util.getByte(statusRegister));
+        runPendingEvent();
         testTimeout();
-        return statusRegister;
+        return waitingForData() ? statusRegister & ~DRQ : statusRegister;
     }
 
     private void testTimeout() {
         long t = nasBus.getClock() - commandTime;
 
-        if ((!(IDLE == command)) && (t > 100000)) {
+        if ((!(IDLE == command)) && (null == pendingEvent) && (t > 100000)) {
             //System.out.println(t);
             statusRegister = LOST_DATA;
             intrqRegister = INTRQ; //  INTRQ
+            if ((WRITE_SECTOR == command) && (-1 != bufferPosition)) {
+                sectorWritten();
+            }
             command = IDLE;
             //
             sectorPosition = -1;
@@ -471,15 +500,24 @@ public class NascomFloppyController extends FDC17xx {
      * @return The data value from the sector
      */
     private int readData() {
+        runPendingEvent();
         commandTime = nasBus.getClock();
+        if (waitingForData()) {
+            return dataRegister;
+        }
         if (-1 != bufferPosition) {
-            dataRegister = readBuffer[bufferPosition++];
+            dataRegister = (null == dataTrack) ? dataBuffer[bufferPosition++] & 0xFF : dataTrack.readByte(bufferPosition++);
             intrqRegister = DRQB; // data ready (DRQ)
+            nextByteTime = nextByteTime + timing.getByteTime();
         }
-        if (bufferPosition == readBuffer.length) {
-            bufferPosition = -1; //  no data available
-            statusRegister = 0; //  reset status register
-            intrqRegister = INTRQ; //  INTRQ
+        if (bufferPosition == dataEnd) {
+            if ((READ_SECTOR == command) && isMultipleRecord()) {
+                nextRecord(this::readSectorCMD);
+            } else {
+                bufferPosition = -1; //  no data available
+                statusRegister = 0; //  reset status register
+                intrqRegister = INTRQ; //  INTRQ
+            }
         }
         //System.out.println(dataRegister);
         return dataRegister;
@@ -491,8 +529,116 @@ public class NascomFloppyController extends FDC17xx {
      * @return Register value
      */
     private int readIntrq() {
+        runPendingEvent();
         testTimeout();
-        return intrqRegister;
+        return waitingForData() ? intrqRegister & ~DRQB : intrqRegister;
+    }
+
+    /**
+     * In accurate mode the next data byte is only ready once it has reached the head
+     *
+     * @return True if a transfer is waiting on the disk
+     */
+    private boolean waitingForData() {
+        return (-1 != bufferPosition) && (nasBus.getClock() < nextByteTime);
+    }
+
+    /**
+     * Start the next phase of a command after a delay. In turbo mode there is no delay and the phase runs now,
+     * otherwise the controller is busy until the CPU clock reaches the event time.
+     *
+     * @param delay T states to wait
+     * @param event Next phase of the command
+     */
+    private void schedule(long delay, Runnable event) {
+        if (0 == delay) {
+            event.run();
+        } else {
+            statusRegister = BUSY;
+            intrqRegister = 0;
+            eventTime = nasBus.getClock() + delay;
+            pendingEvent = event;
+        }
+    }
+
+    /**
+     * Run a scheduled command phase if its time has come
+     */
+    private void runPendingEvent() {
+        if ((null != pendingEvent) && (nasBus.getClock() >= eventTime)) {
+            Runnable event = pendingEvent;
+            pendingEvent = null;
+            commandTime = nasBus.getClock();
+            event.run();
+        }
+    }
+
+    /**
+     * Time from a type II command until the sector is under the head
+     *
+     * @param settle Head settle time before the search starts
+     * @return T states
+     */
+    private long getSectorTime(long settle) {
+        DiskTrack diskTrack = selectedDisk.getTrack(track, side);
+        int index = (null == diskTrack) ? DiskTrack.ABSENT : diskTrack.getSectorIndex(sector);
+        if (DiskTrack.ABSENT == index) {
+            return settle + timing.getSearchTime();
+        }
+        return settle + timing.getRotationTime(nasBus.getClock() + settle, index / (double) diskTrack.getSectorCount());
+    }
+
+    /**
+     * Check the m flag of a type II command
+     *
+     * @return True if the command carries on through the following sectors
+     */
+    private boolean isMultipleRecord() {
+        return (commandRegister & MULTIPLE_BIT) != 0;
+    }
+
+    /**
+     * Move a multiple record command on to the next sector. The command carries on until a sector is not found, which
+     * ends it with Record Not Found as on the real chip, or until a Force Interrupt.
+     *
+     * @param command Sector command to restart
+     */
+    private void nextRecord(Runnable command) {
+        bufferPosition = -1;
+        sector = (sector + 1) & 0xFF;
+        sectorRegister = sector;
+        schedule(getSectorTime(0), command);
+    }
+
+    /**
+     * Time from a Read Address command until the next ID field is under the head. Turbo mode always finds the first
+     * sector on the track.
+     *
+     * @return T states
+     */
+    private long getAddressTime() {
+        long settle = timing.getSettleTime(commandRegister);
+        DiskTrack diskTrack = selectedDisk.getTrack(track, side);
+        int count = (null == diskTrack) ? 0 : diskTrack.getSectorCount();
+        addressIndex = 0;
+        if (0 == count) {
+            return settle + timing.getSearchTime();
+        }
+        long start = nasBus.getClock() + settle;
+        if (timing.isAccurate()) {
+            addressIndex = (int) Math.ceil(timing.getPosition(start) * count) % count;
+        }
+        return settle + timing.getRotationTime(start, addressIndex / (double) count);
+    }
+
+    /**
+     * Time from a type III track command until the index hole
+     *
+     * @return T states
+     */
+    private long getIndexTime() {
+        long settle = timing.getSettleTime(commandRegister);
+        return settle + timing.getRotationTime(nasBus.getClock() + settle, 0);
     }
 
     /**
@@ -507,47 +653,46 @@ public class NascomFloppyController extends FDC17xx {
             case 0x00:
                 if ((commandRegister & 0x10) == 0) {
                     command = RESTORE;
-                    restoreCMD();
+                    schedule(timing.getStepTime(track, commandRegister), this::restoreCMD);
                 } else {
                     command = SEEK;
-                    seekCMD();
+                    schedule(timing.getStepTime(Math.abs(dataRegister - track), commandRegister), this::seekCMD);
                 }
                 break;
 
             case 0x20:
                 command = STEP;
-                step();
+                schedule(timing.getStepTime(1, commandRegister), this::step);
                 break;
 
             case 0x40:
                 command = STEP_IN;
-                stepIn();
+                schedule(timing.getStepTime(1, commandRegister), this::stepIn);
                 break;
 
             case 0x60:
                 command = STEP_OUT;
-                stepOut();
+                schedule(timing.getStepTime(1, commandRegister), this::stepOut);
                 break;
 
             case 0x80:
                 commandTime = nasBus.getClock();
                 command = READ_SECTOR;
-                readSectorCMD();
+                schedule(getSectorTime(timing.getSettleTime(commandRegister)), this::readSectorCMD);
                 break;
 
             case 0xA0:
                 commandTime = nasBus.getClock();
                 command = WRITE_SECTOR;
-                writeSectorCMD();
+                schedule(getSectorTime(timing.getSettleTime(commandRegister)), this::writeSectorCMD);
                 break;
 
             case 0xC0:
                 if ((commandRegister & 0x10) == 0) {
                     commandTime = nasBus.getClock();
                     command = READ_ADDRESS;
-                    ReadAddressCMD();
+                    schedule(getAddressTime(), this::ReadAddressCMD);
                 } else {
-                    command = FORCE_INTERRUPT;
                     InterruptCMD();
                 }
                 break;
@@ -556,11 +701,11 @@ public class NascomFloppyController extends FDC17xx {
                 if ((commandRegister & 0x10) == 0) {
                     commandTime = nasBus.getClock();
                     command = READ_TRACK;
-                    ReadTrackCMD();
+                    schedule(getIndexTime(), this::ReadTrackCMD);
                 } else {
                     commandTime = nasBus.getClock();
                     command = WRITE_TRACK;
-                    writeTrackCMD();
+                    schedule(getIndexTime(), this::writeTrackCMD);
                 }
                 break;
             default:
@@ -656,49 +801,63 @@ public class NascomFloppyController extends FDC17xx {
     }
 
     /**
-     * Read a sector from the disk and copy it into an internal buffer for reading
+     * Point the data cursor at a sector on the current track
+     *
+     * @return True if the sector exists
+     */
+    private boolean selectSectorData() {
+        DiskTrack diskTrack = selectedDisk.getTrack(track, side);
+        int offset = (null == diskTrack) ? DiskTrack.ABSENT : diskTrack.getOffset(sector);
+        if (DiskTrack.ABSENT == offset) {
+            return false;
+        }
+        dataTrack = diskTrack;
+        dataSector = sector;
+        bufferPosition = offset;
+        dataEnd = offset + diskTrack.getLength(sector);
+        nextByteTime = nasBus.getClock() + timing.getByteTime();
+        return true;
+    }
+
+    /**
+     * Start reading a sector. Data is streamed straight from the disk image as the data register is read.
      */
     private void readSectorCMD() {
-        int value;
-        byte[] localSectorBuffer = selectedDisk.getSector(track, sector, side);
-        if (null == localSectorBuffer) {
+        if (!selectSectorData()) {
             command = IDLE;
             bufferPosition = -1; //  no data available
             statusRegister = RNF; //  set Record not found bit
             intrqRegister = INTRQ; //  INTRQ
         } else {
-            int length = localSectorBuffer.length;
-            readBuffer = new int[length];
-            for (int position = 0; position < length; position++) {
-                value = localSectorBuffer[position];
-                if (value < 0) {
-                    value = value + 256;
-                }
-                readBuffer[position] = value;
-            }
-            bufferPosition = 0;
             statusRegister = DRQ | BUSY; //  set busy and drq bits
             intrqRegister = DRQB; // drq bit
         }
     }
 
     /**
-     *
+     * Start writing a sector. Data is streamed straight into the disk image as the data register is written.
      */
     private void writeSectorCMD() {
-        byte[] loadedSector = selectedDisk.getSector(track, sector, side);
-        if (null == loadedSector) {
+        if (!selectSectorData()) {
+            command = IDLE;
+            bufferPosition = -1; //  no data available
             statusRegister = 0x10; // set record not found bit
             intrqRegister = INTRQ; //  INTRQ
         } else {
-            writeBuffer = new byte[loadedSector.length];
-            bufferPosition = 0;
             statusRegister = statusRegister | DRQ | BUSY; //  set busy and drq bits
             intrqRegister = DRQB; // drq
         }
     }
 
+    /**
+     * Stop the command in progress. A sector part way through being written keeps the bytes already sent.
+     */
     private void InterruptCMD() {
+        if ((WRITE_SECTOR == command) && (-1 != bufferPosition)) {
+            sectorWritten();
+        }
+        bufferPosition = -1; //  no data available
+        pendingEvent = null;
         statusRegister = 0x00; // All clear
         intrqRegister = INTRQ; // INTRQ
         command = IDLE;
@@ -707,28 +866,26 @@ public class NascomFloppyController extends FDC17xx {
     private void ReadAddressCMD() {
         // read track to find first valid sector (if any)
         int length;
-        sector = -1;
-        for (int i = 0; i < 255; i++) {
-            if (null != selectedDisk.getSector(track, i, side)) {
-                sector = i;
-                break;
-            }
-        }
-        if (-1 != sector) {
-            length = switch (selectedDisk.getSector(track, sector, side).length) {
-                default -> 0x00;
-                case 256 -> 0x01;
-                case 512 -> 0x02;
-                case 1024 -> 0x03;
-            };
+        DiskTrack diskTrack = selectedDisk.getTrack(track, side);
+        sector = (null == diskTrack) ? DiskTrack.ABSENT : diskTrack.getSectorAt(addressIndex);
+        if (DiskTrack.ABSENT != sector) {
+            length = getLengthCode(FDC_1793, diskTrack.getLength(sector));
+            dataTrack = null;
+            dataBuffer = addressBuffer;
             bufferPosition = 0;
-            readBuffer = new int[6];
-            readBuffer[0] = track;
-            readBuffer[1] = side;
-            readBuffer[2] = sector;
-            readBuffer[3] = length;
-            readBuffer[4] = 0;
-            readBuffer[5] = 0;
+            dataEnd = addressBuffer.length;
+            nextByteTime = nasBus.getClock() + timing.getByteTime();
+            addressBuffer[0] = (byte) track;
+            addressBuffer[1] = (byte) side;
+            addressBuffer[2] = (byte) sector;
+            addressBuffer[3] = (byte) length;
+            // CRC covers the three 0xA1 bytes and 0xFE mark in front of the ID
+            int crc = 0xFFFF;
+            for (int value : new int[]{0xA1, 0xA1, 0xA1, 0xFE, track, side, sector, length}) {
+                crc = RawTrack.updateCRC(crc, value);
+            }
+            addressBuffer[4] = (byte) (crc >> 8);
+            addressBuffer[5] = (byte) crc;
             //
             // The 1793 writes the track value into the sector register for a Read Address command. Weird!
             sectorRegister = track;
@@ -747,19 +904,26 @@ public class NascomFloppyController extends FDC17xx {
     }
 
     /**
-     *
+     * Read a whole track as raw bytes, gaps, address marks and CRCs included, starting from the index hole. The raw
+     * track is built from the sectors and kept until the track is written.
      */
     private void ReadTrackCMD() {
-        intrqRegister = INTRQ; // INTRQ
-        command = IDLE;
+        DiskTrack diskTrack = selectedDisk.getTrack(track, side);
+        dataBuffer = (null == diskTrack) ? RawTrack.encode(null, track, side, FDC_1793) : diskTrack.getRawTrack(track, side, FDC_1793);
+        dataTrack = null;
+        bufferPosition = 0;
+        dataEnd = dataBuffer.length;
+        nextByteTime = nasBus.getClock() + timing.getByteTime();
+        statusRegister = DRQ | BUSY; //  set busy and drq bits
+        intrqRegister = DRQB; // drq bit
     }
 
     /**
      *
      */
     private void writeTrackCMD() {
-        writeBuffer = new byte[TRACK_LENGTH + 1024];
         bufferPosition = 0;
+        nextByteTime = nasBus.getClock() + timing.getByteTime();
         statusRegister = DRQ | BUSY; //  set busy & drq bits
         intrqRegister = DRQB; //  data request
         sectorPosition = -1;
@@ -801,23 +965,26 @@ public class NascomFloppyController extends FDC17xx {
      * @param data The data written to the port
      */
     private void writeData(int data) {
+        runPendingEvent();
         commandTime = nasBus.getClock();
         dataRegister = data;
-        if ((-1 != bufferPosition) && (IDLE != command)) {
+        if ((-1 != bufferPosition) && (IDLE != command) && (null == pendingEvent)) {
+            nextByteTime = nextByteTime + timing.getByteTime();
             if (WRITE_TRACK != command) {
-                writeBuffer[bufferPosition++] = (byte) data;
-                if (bufferPosition == writeBuffer.length) {
-                    bufferPosition = -1; //  no data available
-                    statusRegister = 0; //  reset status register
-                    intrqRegister = INTRQ; //  INTRQ
-                    selectedDisk.putSector(track, sector, side, writeBuffer);
-                    command = IDLE;
+                dataTrack.writeByte(bufferPosition++, data);
+                if (bufferPosition == dataEnd) {
+                    sectorWritten();
+                    if (isMultipleRecord()) {
+                        nextRecord(this::writeSectorCMD);
+                    } else {
+                        bufferPosition = -1; //  no data available
+                        statusRegister = 0; //  reset status register
+                        intrqRegister = INTRQ; //  INTRQ
+                        command = IDLE;
+                    }
                 }
             } else {
                 if (-1 != sectorPosition) {
-                    if (data > 127) {
-                        data = data - 256;
-                    }
                     sectorBuffer[sectorPosition++] = (byte) data;
                     if (formatLength == sectorPosition) {
                         sectorPosition = -1;
@@ -825,7 +992,7 @@ public class NascomFloppyController extends FDC17xx {
                             selectedDisk.eraseTrack(formatTrack, formatSide);
                             trackWriteStarted = true;
                         }
-                        selectedDisk.putSector(formatTrack, formatSector, formatSide, sectorBuffer);
+                        selectedDisk.putSector(formatTrack, formatSector, formatSide, sectorBuffer, formatLength);
                     }
                 } else {
                     if (0xFE == data) {
@@ -839,15 +1006,12 @@ public class NascomFloppyController extends FDC17xx {
                                     case 2 -> formatSector = data;
                                     case 3 -> formatSide = data;
                                     case 4 -> formatTrack = track;
-                                    case 1 -> {
-                                        switch (data) {
-                                            default -> sectorBuffer = new byte[128];
-                                            case 0x01 -> sectorBuffer = new byte[256];
-                                            case 0x02 -> sectorBuffer = new byte[512];
-                                            case 0x03 -> sectorBuffer = new byte[1024];
-                                        }
-                                        formatLength = sectorBuffer.length;
-                                    }
+                                    case 1 -> formatLength = switch (data) {
+                                        default -> 128;
+                                        case 0x01 -> 256;
+                                        case 0x02 -> 512;
+                                        case 0x03 -> 1024;
+                                    };
                                 }
                             }
                         }
@@ -864,6 +1028,13 @@ public class NascomFloppyController extends FDC17xx {
         }
     }
 
+    /**
+     * Flag the sector just written as changed so it is saved back to its image at the next flush
+     */
+    private void sectorWritten() {
+        dataTrack.markDirty(dataSector);
+    }
+
     /**
      * Write to the drive control register
      *
@@ -875,39 +1046,49 @@ public class NascomFloppyController extends FDC17xx {
         switch (data & 0x1F) {
             case 0x01 -> {
                 selectedDisk = disk0;
+                timing = driveTiming[0];
                 side = 0;
             }
             case 0x11 -> {
                 selectedDisk = disk0;
+                timing = driveTiming[0];
                 side = 1;
             }
             case 0x02 -> {
                 selectedDisk = disk1;
+                timing = driveTiming[1];
                 side = 0;
             }
             case 0x12 -> {
                 selectedDisk = disk1;
+                timing = driveTiming[1];
                 side = 1;
             }
             //
             case 0x04 -> {
                 selectedDisk = disk2;
+                timing = driveTiming[2];
                 side = 0;
             }
             case 0x14 -> {
                 selectedDisk = disk2;
+                timing = driveTiming[2];
                 side = 1;
             }
             case 0x08 -> {
                 selectedDisk = disk3;
+                timing = driveTiming[3];
                 side = 0;
             }
             case 0x18 -> {
                 selectedDisk = disk3;
+                timing = driveTiming[3];
                 side = 1;
             }
             default -> System.out.println("Illegal drive selection");
         }
+        // read a disk inserted at start up the first time its drive is used
+        selectedDisk.mount();
         // which side to select
         if ((data & 0x10) == 0) {
             side = 0;
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards.hdc;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A hard disk held in an image file of fixed size. The file is mapped into memory a window at a time, so the controller
+ * reads and writes the file directly without copying sectors. Recently used windows are kept mapped in a small cache.
+ */
+final class HardDiskImage implements Closeable {
+
+    final static int WINDOW_SIZE = 64 * 1024;
+    private final static int WINDOW_SHIFT = 16;
+    private final static int WINDOW_MASK = WINDOW_SIZE - 1;
+    private final File file;
+    private final FileChannel channel;
+    private final long size;
+    private final boolean readOnly;
+    private final Map<Long, MappedByteBuffer> windows;
+    private long lastWindow = -1;
+    private MappedByteBuffer lastBuffer;
+
+    /**
+     * Open a hard disk image, creating or extending the file to the size given
+     *
+     * @param file          Image file
+     * @param size          Size of the disk in bytes, or 0 to take the size of an existing file
+     * @param cachedWindows Number of windows of the file to keep mapped, at least 1
+     * @throws IOException Thrown if the file can't be opened or sized
+     */
+    HardDiskImage(File file, long size, int cachedWindows) throws IOException {
+        if (cachedWindows < 1) {
+            throw new IllegalArgumentException("Hard disk cache must hold at least one window, not " + cachedWindows);
+        }
+        this.file = file;
+        FileChannel opened;
+        boolean writable = true;
+        try {
+            opened = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        } catch (IOException e) {
+            opened = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            writable = false;
+        }
+        channel = opened;
+        readOnly = !writable;
+        try {
+            if (0 == size) {
+                size = channel.size();
+            }
+            if (size <= 0) {
+                throw new IOException("Hard disk image has no size : " + file);
+            }
+            if (channel.size() < size) {
+                if (readOnly) {
+                    throw new IOException("Hard disk image is read only and shorter than " + size + " bytes : " + file);
+                }
+                // Writing the last byte extends the file, sparse where the file system allows
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.size = size;
+        windows = new LinkedHashMap<>(cachedWindows, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+                return size() > cachedWindows;
+            }
+        };
+    }
+
+    /**
+     * Get the size of the disk
+     *
+     * @return Size in bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Check if the image can be written
+     *
+     * @return True if the image file could only be opened for reading
+     */
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Read a byte
+     *
+     * @param position Position on the disk
+     * @return Byte value 0 to 255
+     * @throws IOException Thrown if the file can't be mapped
+     */
+    int readByte(long position) throws IOException {
+        return getWindow(position).get((int) (position & WINDOW_MASK)) & 0xFF;
+    }
+
+    /**
+     * Write a byte
+     *
+     * @param position Position on the disk
+     * @param value    Byte value
+     * @throws IOException Thrown if the file can't be mapped
+     */
+    void writeByte(long position, int value) throws IOException {
+        getWindow(position).put((int) (position & WINDOW_MASK), (byte) value);
+    }
+
+    /**
+     * Fill part of the disk with one value
+     *
+     * @param position Position on the disk
+     * @param length   Number of bytes
+     * @param value    Byte value
+     * @throws IOException Thrown if the file can't be mapped
+     */
+    void fill(long position, long length, int value) throws IOException {
+        byte[] block = new byte[WINDOW_SIZE];
+        Arrays.fill(block, (byte) value);
+        long end = position + length;
+        while (position < end) {
+            int offset = (int) (position & WINDOW_MASK);
+            int count = (int) Math.min(WINDOW_SIZE - offset, end - position);
+            getWindow(position).put(offset, block, 0, count);
+            position = position + count;
+        }
+    }
+
+    /**
+     * Find the mapped window holding a position, mapping it if it is not in the cache
+     *
+     * @param position Position on the disk
+     * @return The window
+     * @throws IOException Thrown if the file can't be mapped
+     */
+    private MappedByteBuffer getWindow(long position) throws IOException {
+        long window = position >>> WINDOW_SHIFT;
+        if (window == lastWindow) {
+            return lastBuffer;
+        }
+        MappedByteBuffer buffer = windows.get(window);
+        if (null == buffer) {
+            long start = window << WINDOW_SHIFT;
+            FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+            buffer = channel.map(mode, start, Math.min(WINDOW_SIZE, size - start));
+            windows.put(window, buffer);
+        }
+        lastWindow = window;
+        lastBuffer = buffer;
+        return buffer;
+    }
+
+    /**
+     * Make sure all writes have reached the image file
+     */
+    void flush() {
+        if (!readOnly) {
+            for (MappedByteBuffer buffer : windows.values()) {
+                buffer.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        windows.clear();
+        lastWindow = -1;
+        lastBuffer = null;
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
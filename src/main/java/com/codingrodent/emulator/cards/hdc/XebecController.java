@@ -0,0 +1,534 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.cards.hdc;
+
+import com.codingrodent.emulator.cards.common.BaseCard;
+
+import java.io.*;
+
+/**
+ * Xebec S1410 hard disk controller on the SASI bus, at ports E6 (control and status) and E7 (data).
+ * <p>
+ * The host puts the controller ID (bit 0) on the data port and raises SEL on the control port. The controller answers
+ * with BSY and asks for a six byte command, then moves through data, status and message phases, each byte handshaken
+ * with REQ. C/D, I/O and MSG on the status port give the phase.
+ * <p>
+ * Config entries:
+ * <ul><li>Drive0, Drive1 - hard disk image files, created if missing</li>
+ *     <li>Drive<i>n</i>_Size - size of the disk, e.g. 10M or 5120K (default the size of an existing file, else 10M)</li>
+ *     <li>BlockSize - 256 or 512 byte sectors (default 256)</li>
+ *     <li>CacheSize - number of 64K windows of each image to keep mapped (default 16)</li>
+ * </ul>
+ */
+public class XebecController extends BaseCard {
+
+    private final static int CONTROL_PORT = 0xE6;
+    private final static int DATA_PORT = 0xE7;
+    // status port bits
+    private final static int REQ = 0x01;
+    private final static int BSY = 0x02;
+    private final static int MSG = 0x04;
+    private final static int CD = 0x08;
+    private final static int IO = 0x10;
+    // control port bits
+    private final static int SEL = 0x01;
+    private final static int RST = 0x02;
+    // commands
+    private final static int TEST_DRIVE_READY = 0x00;
+    private final static int RECALIBRATE = 0x01;
+    private final static int REQUEST_SENSE = 0x03;
+    private final static int FORMAT_DRIVE = 0x04;
+    private final static int CHECK_TRACK_FORMAT = 0x05;
+    private final static int FORMAT_TRACK = 0x06;
+    private final static int FORMAT_BAD_TRACK = 0x07;
+    private final static int READ = 0x08;
+    private final static int WRITE = 0x0A;
+    private final static int SEEK = 0x0B;
+    private final static int INITIALISE_DRIVE = 0x0C;
+    private final static int READ_ECC_BURST = 0x0D;
+    private final static int READ_BUFFER = 0x0E;
+    private final static int WRITE_BUFFER = 0x0F;
+    private final static int RAM_DIAGNOSTIC = 0xE0;
+    private final static int DRIVE_DIAGNOSTIC = 0xE3;
+    private final static int CONTROLLER_DIAGNOSTIC = 0xE4;
+    // sense error codes
+    private final static int NO_ERROR = 0x00;
+    private final static int WRITE_FAULT = 0x03;
+    private final static int NOT_READY = 0x04;
+    private final static int INVALID_COMMAND = 0x20;
+    private final static int ILLEGAL_ADDRESS = 0x21;
+    //
+    private final static int CHECK_CONDITION = 0x02;
+    private final static int FORMAT_FILL = 0xE5;
+    private final static long DEFAULT_SIZE = 10 * 1024 * 1024;
+    private final static int DEFAULT_CACHE_SIZE = 16;
+    //
+    private final HardDiskImage[] drives = new HardDiskImage[2];
+    private final byte[] command = new byte[6];
+    private int blockSize = 256;
+    private byte[] sectorBuffer = new byte[256];
+    private Phase phase = Phase.BUS_FREE;
+    private int dataLatch;
+    private int control;
+    private int commandLength;
+    private int lun;
+    private int senseError;
+    private long senseAddress;
+    private long transferPosition;
+    private long transferEnd;
+    private byte[] transferBuffer;
+
+    /**
+     * One off initialisation carried out after card object creation
+     */
+    @Override
+    public void initialise() {
+        if (null == cardProperties) {
+            return;
+        }
+        blockSize = Integer.parseInt(cardProperties.getOrDefault("BlockSize", "256"));
+        if ((256 != blockSize) && (512 != blockSize)) {
+            String msg = "Xebec block size must be 256 or 512, not " + blockSize;
+            systemContext.logFatalEvent(getCardDetails() + ": " + msg);
+            throw new RuntimeException(msg);
+        }
+        sectorBuffer = new byte[blockSize];
+        int cacheSize = Integer.parseInt(cardProperties.getOrDefault("CacheSize", Integer.toString(DEFAULT_CACHE_SIZE)));
+        if (cacheSize < 1) {
+            systemContext.logErrorEvent(getCardDetails() + ": cache size must be at least 1, not " + cacheSize + ", using " + DEFAULT_CACHE_SIZE);
+            cacheSize = DEFAULT_CACHE_SIZE;
+        }
+        for (int drive = 0; drive < drives.length; drive++) {
+            String fileName = cardProperties.get("Drive" + drive);
+            if (null != fileName) {
+                File file = new File(fileName);
+                long size = parseSize(cardProperties.getOrDefault("Drive" + drive + "_Size", file.isFile() ? "0" : Long.toString(DEFAULT_SIZE)));
+                try {
+                    drives[drive] = new HardDiskImage(file, size, cacheSize);
+                } catch (IOException e) {
+                    String msg = "Unable to open hard disk image <" + fileName + ">, " + e.getMessage();
+                    systemContext.logFatalEvent(getCardDetails() + ": " + msg);
+                    throw new RuntimeException(msg);
+                }
+                systemContext.logInfoEvent(getCardDetails() + " drive " + drive + " - " + fileName + " " + drives[drive].getSize() / 1024 + "K");
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Decode a size in bytes, with an optional K or M suffix
+     *
+     * @param value Size string
+     * @return Size in bytes
+     */
+    private static long parseSize(String value) {
+        String size = value.trim().toUpperCase();
+        long scale = 1;
+        if (size.endsWith("K")) {
+            scale = 1024;
+        } else if (size.endsWith("M")) {
+            scale = 1024 * 1024;
+        }
+        if (1 != scale) {
+            size = size.substring(0, size.length() - 1);
+        }
+        return Long.parseLong(size) * scale;
+    }
+
+    /**
+     * Get the details of the card by the author
+     *
+     * @return Card name string
+     */
+    @Override
+    public String getCardDetails() {
+        return "Xebec S1410 Hard Disk Controller - Version 1.0";
+    }
+
+    /**
+     * Reset the card
+     */
+    @Override
+    public void reset() {
+        phase = Phase.BUS_FREE;
+        control = 0;
+        dataLatch = 0;
+        commandLength = 0;
+        senseError = NO_ERROR;
+        senseAddress = 0;
+        transferBuffer = null;
+        for (HardDiskImage drive : drives) {
+            if (null != drive) {
+                drive.flush();
+            }
+        }
+    }
+
+    /**
+     * Does the card support input at the address specified
+     *
+     * @param address The address to test
+     * @return True is port, else false
+     */
+    @Override
+    public boolean isInputPort(int address) {
+        return (CONTROL_PORT == address) || (DATA_PORT == address);
+    }
+
+    /**
+     * Does the card support output at the address specified
+     *
+     * @param address The address to test
+     * @return True is port, else false
+     */
+    @Override
+    public boolean isOutputPort(int address) {
+        return (CONTROL_PORT == address) || (DATA_PORT == address);
+    }
+
+    /**
+     * Write to the control or data port
+     *
+     * @param address Address being written to
+     * @param data    Data being written
+     */
+    @Override
+    public void ioWrite(int address, int data) {
+        switch (address) {
+            case CONTROL_PORT -> writeControl(data);
+            case DATA_PORT -> writeData(data);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Read the status or data port
+     *
+     * @param address Address to read from
+     * @return Value read from the port
+     */
+    @Override
+    public int ioRead(int address) {
+        return switch (address) {
+            case CONTROL_PORT -> readStatus();
+            case DATA_PORT -> readData();
+            default -> BUS_FLOAT;
+        };
+    }
+
+    /**
+     * Write a byte into ram
+     *
+     * @param address The address to be written to
+     * @param data    The byte to be written
+     * @return True if no more memory writes to be performed
+     */
+    @Override
+    public boolean memoryWrite(int address, int data, boolean ramdis) {
+        return false;
+    }
+
+    /**
+     * Read data from the memory bus taking into account the RAMDIS signal
+     *
+     * @param address The address to read from
+     * @param ramdis  RAMDIS bus signal
+     * @return The byte read
+     */
+    @Override
+    public int memoryRead(int address, boolean ramdis) {
+        return NO_MEMORY_PRESENT;
+    }
+
+    /**
+     * Read a byte from memory
+     *
+     * @param address Address to read from
+     * @return Byte of data
+     */
+    @Override
+    public int memoryRead(int address) {
+        return NO_MEMORY_PRESENT;
+    }
+
+    /**
+     * Will a read to an address cause RAMDIS (i.e. ROM) to be asserted
+     *
+     * @param address The address to read from
+     * @return true if RAMDIS is to be asserted, else false
+     */
+    @Override
+    public boolean assertRAMDIS(int address) {
+        return false;
+    }
+
+    /**
+     * Will a read to an address may cause RAMDIS (i.e. ROM) to be asserted. For example, a paged out ROM will cause RAMDIS to be asserted. That is, RAMDIS may occur at this address.
+     *
+     * @param address The address to read from
+     * @return true if RAMDIS is to be asserted, else false
+     */
+    @Override
+    public boolean assertRAMDISCapable(int address) {
+        return false;
+    }
+
+    /**
+     * Drive the SEL and RST lines. The controller is selected on a rising SEL with its ID on the data bus.
+     *
+     * @param data Control bits
+     */
+    private void writeControl(int data) {
+        if (0 != (data & RST)) {
+            reset();
+            return;
+        }
+        if ((0 != (data & SEL)) && (0 == (control & SEL)) && (Phase.BUS_FREE == phase) && (0 != (dataLatch & 0x01))) {
+            commandLength = 0;
+            phase = Phase.COMMAND;
+        }
+        control = data;
+    }
+
+    /**
+     * Read the bus status lines for the current phase
+     *
+     * @return Status bits
+     */
+    private int readStatus() {
+        return switch (phase) {
+            case BUS_FREE -> 0;
+            case COMMAND -> BSY | REQ | CD;
+            case DATA_IN -> BSY | REQ | IO;
+            case DATA_OUT -> BSY | REQ;
+            case STATUS -> BSY | REQ | CD | IO;
+            case MESSAGE -> BSY | REQ | MSG | CD | IO;
+        };
+    }
+
+    /**
+     * Take a byte from the host - a command byte, or data to be written
+     *
+     * @param data Byte from the host
+     */
+    private void writeData(int data) {
+        dataLatch = data & 0xFF;
+        switch (phase) {
+            case COMMAND -> {
+                command[commandLength++] = (byte) data;
+                if (commandLength == command.length) {
+                    executeCommand();
+                }
+            }
+            case DATA_OUT -> {
+                try {
+                    if (null != transferBuffer) {
+                        transferBuffer[(int) transferPosition] = (byte) data;
+                    } else {
+                        drives[lun].writeByte(transferPosition, data);
+                    }
+                } catch (IOException e) {
+                    systemContext.logErrorEvent(getCardDetails() + ": write failed, " + e.getMessage());
+                    finish(WRITE_FAULT);
+                    return;
+                }
+                if (++transferPosition == transferEnd) {
+                    finish(NO_ERROR);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Pass a byte to the host - data read, then the status and message bytes
+     *
+     * @return Byte for the host
+     */
+    private int readData() {
+        switch (phase) {
+            case DATA_IN -> {
+                int value;
+                try {
+                    value = (null != transferBuffer) ? transferBuffer[(int) transferPosition] & 0xFF : drives[lun].readByte(transferPosition);
+                } catch (IOException e) {
+                    systemContext.logErrorEvent(getCardDetails() + ": read failed, " + e.getMessage());
+                    finish(NOT_READY);
+                    return 0;
+                }
+                if (++transferPosition == transferEnd) {
+                    finish(NO_ERROR);
+                }
+                return value;
+            }
+            case STATUS -> {
+                phase = Phase.MESSAGE;
+                return (lun << 5) | ((NO_ERROR == senseError) ? 0 : CHECK_CONDITION);
+            }
+            case MESSAGE -> {
+                phase = Phase.BUS_FREE;
+                return 0;
+            }
+            default -> {
+                return dataLatch;
+            }
+        }
+    }
+
+    /**
+     * Decode and run a command once all six bytes have arrived
+     */
+    private void executeCommand() {
+        int opcode = command[0] & 0xFF;
+        lun = (command[1] >> 5) & 0x01;
+        long block = ((command[1] & 0x1F) << 16) | ((command[2] & 0xFF) << 8) | (command[3] & 0xFF);
+        int count = (0 == (command[4] & 0xFF)) ? 256 : command[4] & 0xFF;
+        HardDiskImage drive = drives[lun];
+        if (REQUEST_SENSE != opcode) {
+            senseError = NO_ERROR;
+        }
+        // Commands that need no drive
+        switch (opcode) {
+            case REQUEST_SENSE -> {
+                byte[] sense = new byte[4];
+                sense[0] = (byte) (senseError | ((NO_ERROR == senseError) ? 0 : 0x80));
+                sense[1] = (byte) ((lun << 5) | ((senseAddress >> 16) & 0x1F));
+                sense[2] = (byte) (senseAddress >> 8);
+                sense[3] = (byte) senseAddress;
+                senseError = NO_ERROR;
+                startBufferTransfer(Phase.DATA_IN, sense);
+                return;
+            }
+            case RAM_DIAGNOSTIC, CONTROLLER_DIAGNOSTIC -> {
+                finish(NO_ERROR);
+                return;
+            }
+            case READ_BUFFER -> {
+                startBufferTransfer(Phase.DATA_IN, sectorBuffer);
+                return;
+            }
+            case WRITE_BUFFER -> {
+                startBufferTransfer(Phase.DATA_OUT, sectorBuffer);
+                return;
+            }
+            default -> {
+            }
+        }
+        if (null == drive) {
+            finish(NOT_READY);
+            return;
+        }
+        long blocks = drive.getSize() / blockSize;
+        senseAddress = block;
+        switch (opcode) {
+            case TEST_DRIVE_READY, RECALIBRATE, DRIVE_DIAGNOSTIC -> finish(NO_ERROR);
+            case SEEK, CHECK_TRACK_FORMAT, FORMAT_BAD_TRACK -> finish((block < blocks) ? NO_ERROR : ILLEGAL_ADDRESS);
+            case READ, WRITE -> {
+                if (block + count > blocks) {
+                    finish(ILLEGAL_ADDRESS);
+                } else if ((WRITE == opcode) && drive.isReadOnly()) {
+                    finish(WRITE_FAULT);
+                } else {
+                    transferBuffer = null;
+                    transferPosition = block * blockSize;
+                    transferEnd = transferPosition + (long) count * blockSize;
+                    phase = (READ == opcode) ? Phase.DATA_IN : Phase.DATA_OUT;
+                }
+            }
+            case FORMAT_DRIVE -> format(drive, 0, blocks);
+            case FORMAT_TRACK -> {
+                long blocksPerTrack = (256 == blockSize) ? 32 : 17;
+                long start = block - block % blocksPerTrack;
+                format(drive, start, Math.min(blocksPerTrack, blocks - start));
+            }
+            case INITIALISE_DRIVE -> startBufferTransfer(Phase.DATA_OUT, new byte[8]); // geometry comes from the image size
+            case READ_ECC_BURST -> startBufferTransfer(Phase.DATA_IN, new byte[1]);
+            default -> {
+                systemContext.logWarnEvent(getCardDetails() + ": unknown command " + Integer.toHexString(opcode));
+                finish(INVALID_COMMAND);
+            }
+        }
+    }
+
+    /**
+     * Fill a run of blocks with the format byte
+     *
+     * @param drive  Drive to format
+     * @param block  First block
+     * @param blocks Number of blocks
+     */
+    private void format(HardDiskImage drive, long block, long blocks) {
+        if ((block < 0) || (blocks <= 0)) {
+            finish(ILLEGAL_ADDRESS);
+        } else if (drive.isReadOnly()) {
+            finish(WRITE_FAULT);
+        } else {
+            try {
+                drive.fill(block * blockSize, blocks * blockSize, FORMAT_FILL);
+                finish(NO_ERROR);
+            } catch (IOException e) {
+                systemContext.logErrorEvent(getCardDetails() + ": format failed, " + e.getMessage());
+                finish(WRITE_FAULT);
+            }
+        }
+    }
+
+    /**
+     * Move data between the host and a controller buffer
+     *
+     * @param direction DATA_IN or DATA_OUT
+     * @param buffer    Buffer to transfer
+     */
+    private void startBufferTransfer(Phase direction, byte[] buffer) {
+        transferBuffer = buffer;
+        transferPosition = 0;
+        transferEnd = buffer.length;
+        phase = direction;
+    }
+
+    /**
+     * End a command and move to the status phase
+     *
+     * @param error Sense error code, NO_ERROR for success
+     */
+    private void finish(int error) {
+        if (NO_ERROR != error) {
+            senseError = error;
+        }
+        transferBuffer = null;
+        phase = Phase.STATUS;
+    }
+
+    /**
+     * SASI bus phases
+     */
+    private enum Phase {
+        BUS_FREE, COMMAND, DATA_IN, DATA_OUT, STATUS, MESSAGE
+    }
+}
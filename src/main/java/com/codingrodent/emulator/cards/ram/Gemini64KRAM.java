@@ -28,11 +28,14 @@ package com.codingrodent.emulator.cards.ram;
 import com.codingrodent.emulator.cards.common.MemoryCard;
 import com.codingrodent.emulator.utilities.Utilities;
 
+import java.util.Arrays;
+
 public class Gemini64KRAM extends MemoryCard {
 
     private final short[] memory = new short[MEMORY_SIZE];
     private final boolean[] valid = new boolean[MEMORY_SIZE];
     private int page;
+    private int baseAddress, topAddress;
     private int readMask, writeMask;
     private boolean pageModeReadEnabled;
     private boolean pageModeWriteEnabled;
@@ -41,7 +44,6 @@ public class Gemini64KRAM extends MemoryCard {
      * One off initialisation carried out after card object creation
      */
     public void initialise() {
-        int baseAddress, topAddress;
         for (int address = 0; address < MEMORY_SIZE; address++) {
             memory[address] = 0;
         }
@@ -155,6 +157,25 @@ public class Gemini64KRAM extends MemoryCard {
         return false;
     }
 
+    /**
+     * Write a block of data into ram
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    @Override
+    public void memoryWriteBlock(int address, short[] data, int offset, int length) {
+        if (pageModeWriteEnabled) {
+            int start = Math.max(address, baseAddress);
+            int end = Math.min(address + length, topAddress);
+            if (start < end) {
+                System.arraycopy(data, offset + start - address, memory, start, end - start);
+            }
+        }
+    }
+
     /**
      * Read data from the memory bus taking into account the RAMDIS signal
      *
@@ -186,6 +207,24 @@ public class Gemini64KRAM extends MemoryCard {
         }
     }
 
+    /**
+     * Read a block of data from memory
+     *
+     * @param address First address to read from
+     * @param data    Array to read into
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to read
+     */
+    @Override
+    public void memoryReadBlock(int address, short[] data, int offset, int length) {
+        Arrays.fill(data, offset, offset + length, (short) NO_MEMORY_PRESENT);
+        int start = Math.max(address, baseAddress);
+        int end = Math.min(address + length, topAddress);
+        if (start < end) {
+            System.arraycopy(memory, start, data, offset + start - address, end - start);
+        }
+    }
+
     /**
      * Write data to the io bus
      *
@@ -141,6 +141,23 @@ public class Nascom32KRAMA extends MemoryCard {
         return false;
     }
 
+    /**
+     * Write a block of data into ram
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    @Override
+    public void memoryWriteBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (ramValid[address + i]) {
+                memory[address + i] = data[offset + i];
+            }
+        }
+    }
+
     /**
      * Read data from the memory bus taking into account the RAMDIS signal
      *
@@ -172,6 +189,21 @@ public class Nascom32KRAMA extends MemoryCard {
         }
     }
 
+    /**
+     * Read a block of data from memory
+     *
+     * @param address First address to read from
+     * @param data    Array to read into
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to read
+     */
+    @Override
+    public void memoryReadBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            data[offset + i] = (ramValid[address + i] || romValid[address + i]) ? memory[address + i] : BUS_FLOAT;
+        }
+    }
+
     /**
      * Will a read to an address cause RAMDIS (i.e. ROM) to be asserted
      *
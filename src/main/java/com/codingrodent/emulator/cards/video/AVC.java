@@ -25,15 +25,15 @@
 
 package com.codingrodent.emulator.cards.video;
 
+import com.codingrodent.emulator.cards.IDisplayCard;
 import com.codingrodent.emulator.cards.common.BaseCard;
+import com.codingrodent.emulator.emulator.SystemContext;
 
-import javax.swing.*;
 import java.awt.*;
-import java.awt.event.*;
 import java.awt.image.MemoryImageSource;
 import java.util.Arrays;
 
-public class AVC extends BaseCard implements ActionListener {
+public class AVC extends BaseCard implements IDisplayCard {
 
     private final static int SCALE_SMALL = 3;
     private final static int SCALE_LARGE = 2;
@@ -47,15 +47,30 @@ public class AVC extends BaseCard implements ActionListener {
     private final static int MEMORY_OFFSET = 2;                                    // zero pixel is at 8002H
     private final static int BYTES_PER_LINE = AVC_COLUMNS_SMALL / 8;
     private final static int MEMORY_SIZE = 0x4000;
+    private final static int MEMORY_BYTES_PER_LINE = 0x40;
     private final static int hHIGH_RES_BIT = 0x08;
+    // Pixel buffers are held in memory order (one memory line per image line, borders included) and are duplicated
+    // so that a window starting anywhere in the first copy is always contiguous. A CRTC start address change only
+    // moves the read offset into these buffers - no pixels need to be re-expanded.
+    private final static int SCAN_SMALL = MEMORY_BYTES_PER_LINE * 8;
+    private final static int SCAN_LARGE = MEMORY_BYTES_PER_LINE * 16;
+    private final static int RING_SMALL = MEMORY_SIZE * 8;
+    private final static int RING_LARGE = MEMORY_SIZE * 16;
+    // 6845 registers of interest
+    private final static int CRTC_REGISTER_MASK = 0x1F;
+    private final static int CRTC_HORIZONTAL_DISPLAYED = 1;
+    private final static int CRTC_VERTICAL_DISPLAYED = 6;
+    private final static int CRTC_MAX_SCAN_LINE = 9;
+    private final static int CRTC_START_ADDRESS_H = 12;
+    private final static int CRTC_START_ADDRESS_L = 13;
     //
     private final int[] red = new int[MEMORY_SIZE];
     private final int[] green = new int[MEMORY_SIZE];
     private final int[] blue = new int[MEMORY_SIZE];
-    private final int[] smallColourBuffer = new int[AVC_ROWS * AVC_COLUMNS_SMALL];
-    private final int[] largeColourBuffer = new int[AVC_ROWS * AVC_COLUMNS_LARGE];
+    private final int[] smallColourBuffer = new int[RING_SMALL * 2];
+    private final int[] largeColourBuffer = new int[RING_LARGE * 2];
     private final int[] palette = new int[8];
-    private final int[] CRTCRegisters = new int[255];                        // CRTC mirror registers
+    private final int[] CRTCRegisters = new int[CRTC_REGISTER_MASK + 1];     // CRTC mirror registers
     //
     private boolean redSelected = false;
     private boolean greenSelected = false;
@@ -69,6 +84,9 @@ public class AVC extends BaseCard implements ActionListener {
     private int lastB2 = 0x80;
     private Image smallImage, largeImage;
     private int CRTCRegister = 0;                                    // register selected
+    private volatile int displayStart = 0;                           // CRTC start address (R12/R13)
+    private volatile int displayBytes = BYTES_PER_LINE;              // displayed bytes per line (R1)
+    private volatile int displayRows = AVC_ROWS;                     // displayed raster lines (R6 * (R9 + 1))
     private AVCFrame avcFrame;
 
     /*
@@ -83,9 +101,6 @@ public class AVC extends BaseCard implements ActionListener {
      */
     @Override
     public void initialise() {
-        avcFrame = new AVCFrame("Nascom 2 AVC Model B");
-        avcFrame.getContentPane().setBackground(Color.BLACK);
-        //
         // Block colour palette settings
         palette[0] = AVC_BLACK;
         palette[1] = AVC_BLUE;
@@ -98,32 +113,32 @@ public class AVC extends BaseCard implements ActionListener {
         //
         //  Fill small colour buffer with default pattern
         for (int row = 0; row < AVC_ROWS; row++) {
-            for (int column = 0; column < AVC_COLUMNS_SMALL; column++) {
-                smallColourBuffer[row * AVC_COLUMNS_SMALL + column] = AVC_BLACK | row * column; // row * column;
+            for (int column = 0; column < SCAN_SMALL; column++) {
+                setPixel(smallColourBuffer, RING_SMALL, row * SCAN_SMALL + column, AVC_BLACK | row * column); // row * column;
             }
         }
         //  Fill large colour buffer with default pattern
         for (int row = 0; row < AVC_ROWS; row++) {
-            for (int column = 0; column < AVC_COLUMNS_LARGE; column++) {
-                largeColourBuffer[row * AVC_COLUMNS_LARGE + column] = AVC_BLACK | row * column; // row * column;
+            for (int column = 0; column < SCAN_LARGE; column++) {
+                setPixel(largeColourBuffer, RING_LARGE, row * SCAN_LARGE + column, AVC_BLACK | row * column); // row * column;
             }
         }
+        // No window when running headless, the pixel buffers are still maintained
+        if (null == SystemContext.createInstance().getPrimaryDisplay()) {
+            return;
+        }
         // Create images for display
-        smallImage = Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(AVC_COLUMNS_SMALL, AVC_ROWS, smallColourBuffer, 0, AVC_COLUMNS_SMALL));
-        largeImage = Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(AVC_COLUMNS_LARGE, AVC_ROWS, largeColourBuffer, 0, AVC_COLUMNS_LARGE));
+        smallImage = createDisplayImage(false);
+        largeImage = createDisplayImage(true);
         //
+        avcFrame = new AVCFrame("Nascom 2 AVC Model B");
+        avcFrame.getContentPane().setBackground(Color.BLACK);
         avcFrame.getContentPane().setPreferredSize(new Dimension(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL));
         smallImage.setAccelerationPriority(1.0f);
         //
         avcFrame.setResizable(false);
         avcFrame.pack();
         avcFrame.setVisible(true);
-        //
-        // Set image redisplay timer
-        Timer timer = new Timer(50, this);
-        timer.setCoalesce(true);
-        timer.setRepeats(true);
-        timer.start();
     }
 
     /**
@@ -176,6 +191,8 @@ public class AVC extends BaseCard implements ActionListener {
     public void reset() {
         // reset the control register mirrors
         Arrays.fill(CRTCRegisters, 0);
+        CRTCRegister = 0;
+        updateDisplayGeometry();
         redSelected = false;
         greenSelected = false;
         blueSelected = false;
@@ -193,26 +210,84 @@ public class AVC extends BaseCard implements ActionListener {
     }
 
     /**
-     * Repaint AVC image on demand - scheduled defined by timer
-     * (non-Javadoc)
-     *
-     * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+     * Repaint AVC image on demand - scheduled by the frame scheduler
      */
     @Override
-    public void actionPerformed(ActionEvent e) {
+    public void paintFrame() {
+        if (null == avcFrame) {
+            return;
+        }
+        int rows = displayRows;
         if (highResSelected) {
-            largeImage = Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(AVC_COLUMNS_LARGE, AVC_ROWS, largeColourBuffer, 0, AVC_COLUMNS_LARGE));
+            largeImage = createDisplayImage(true);
             largeImage.setAccelerationPriority(1.0f);
-            Image doubleImage = largeImage.getScaledInstance(AVC_COLUMNS_LARGE * SCALE_LARGE, AVC_ROWS * SCALE_LARGE, Image.SCALE_FAST);
+            Image doubleImage = largeImage.getScaledInstance(displayBytes * 16 * SCALE_LARGE, rows * SCALE_LARGE, Image.SCALE_FAST);
             avcFrame.getContentPane().getGraphics().drawImage(doubleImage, 0, 0, null);
         } else {
-            smallImage = Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(AVC_COLUMNS_SMALL, AVC_ROWS, smallColourBuffer, 0, AVC_COLUMNS_SMALL));
+            smallImage = createDisplayImage(false);
             smallImage.setAccelerationPriority(1.0f);
-            Image doubleImage = smallImage.getScaledInstance(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL, Image.SCALE_FAST);
+            Image doubleImage = smallImage.getScaledInstance(displayBytes * 8 * SCALE_SMALL, rows * SCALE_SMALL, Image.SCALE_FAST);
             avcFrame.getContentPane().getGraphics().drawImage(doubleImage, 0, 0, null);
         }
     }
 
+    /**
+     * Width of the current frame as returned by getFrame()
+     *
+     * @return Width in pixels
+     */
+    @Override
+    public int getFrameWidth() {
+        return displayBytes * (highResSelected ? 16 : 8);
+    }
+
+    /**
+     * Height of the current frame as returned by getFrame()
+     *
+     * @return Height in pixels
+     */
+    @Override
+    public int getFrameHeight() {
+        return displayRows;
+    }
+
+    /**
+     * Copy the displayed window of the current frame, unscaled
+     *
+     * @param pixels Destination, at least width * height in size
+     */
+    @Override
+    public void getFrame(final int[] pixels) {
+        int width = getFrameWidth();
+        int rows = displayRows;
+        int first = (displayStart + MEMORY_OFFSET) & (MEMORY_SIZE - 1);
+        int[] buffer = highResSelected ? largeColourBuffer : smallColourBuffer;
+        int scan = highResSelected ? SCAN_LARGE : SCAN_SMALL;
+        int position = first * (highResSelected ? 16 : 8);
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(buffer, position, pixels, row * width, width);
+            position = position + scan;
+        }
+    }
+
+    /**
+     * Build an image which views the pixel buffer through the current CRTC window. The start address only changes the
+     * offset into the buffer, so a hardware scroll never requires the pixels to be regenerated.
+     *
+     * @param highRes True for the 768 pixel wide image, else the 384 pixel image
+     * @return Image of the displayed area
+     */
+    private Image createDisplayImage(final boolean highRes) {
+        int first = (displayStart + MEMORY_OFFSET) & (MEMORY_SIZE - 1);
+        int bytes = displayBytes;
+        int rows = displayRows;
+        if (highRes) {
+            return Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(bytes * 16, rows, largeColourBuffer, first * 16, SCAN_LARGE));
+        } else {
+            return Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(bytes * 8, rows, smallColourBuffer, first * 8, SCAN_SMALL));
+        }
+    }
+
     /**
      * Write data to CRTC controller
      *
@@ -363,15 +438,8 @@ public class AVC extends BaseCard implements ActionListener {
      * @param address The address the data was written to
      */
     private void updatePixelByteLowRes(final int address) {
-        // calculate the (x,y) coordinates and update image buffer
-        int column = address & 0x003F;
-        int row = (address >> 6) & 0x00FF;
-        // out of border check
-        if ((column < MEMORY_OFFSET) || (column >= (BYTES_PER_LINE + MEMORY_OFFSET))) {
-            return;
-        }
-        column = column - MEMORY_OFFSET; // starts at 8002H for some unknown reason....
-        column = column * 8; // convert byte to pixel
+        // pixels are held in memory order, so border bytes are kept too as a start address change may bring them into view
+        int position = address * 8; // convert byte to pixel
         //
         int redByte, greenByte, blueByte;
         if (redDisplay)
@@ -402,7 +470,7 @@ public class AVC extends BaseCard implements ActionListener {
             if (0 != (bitPosition & blueByte)) {
                 pixelValue = pixelValue + 1;
             }
-            displaySmallAVCImageByte(row, column + i, pixelValue);
+            displaySmallAVCImageByte(position + i, pixelValue);
             bitPosition = bitPosition >> 1;
         }
     }
@@ -413,15 +481,8 @@ public class AVC extends BaseCard implements ActionListener {
      * @param address The address the data was written to
      */
     private void updatePixelByteHighRes(final int address) {
-        // calculate the (x,y) coordinates and update image buffer
-        int column = address & 0x003F;
-        int row = (address >> 6) & 0x00FF;
-        // out of border check
-        if ((column < MEMORY_OFFSET) || (column >= (BYTES_PER_LINE + MEMORY_OFFSET))) {
-            return;
-        }
-        column = column - MEMORY_OFFSET; // starts at 8002H for some unknown reason....
-        column = column * 8; // convert byte to pixel
+        // pixels are held in memory order, so border bytes are kept too as a start address change may bring them into view
+        int position = address * 16; // convert byte to pixel
         //
         int redByte, greenByte, blueByte;
         if (greenDisplay)
@@ -451,13 +512,13 @@ public class AVC extends BaseCard implements ActionListener {
             if (0 != (bitPosition & greenByte)) {
                 greenPixelValue = 2;
             }
-            int pixelColumn = column * 2 + i;
-            displayLargeAVCImageByte(row, pixelColumn + 8, redPixelValue);
-            displayLargeAVCImageByte(row, pixelColumn, greenPixelValue);
+            int pixelColumn = position + i;
+            displayLargeAVCImageByte(pixelColumn + 8, redPixelValue);
+            displayLargeAVCImageByte(pixelColumn, greenPixelValue);
             if (0 != (bitPosition & blueByte)) {
-                displayLargeAVCImageByteAddBlue(row, pixelColumn + i, 1);
+                displayLargeAVCImageByteAddBlue(pixelColumn + i, 1);
             } else {
-                displayLargeAVCImageByteAddBlue(row, pixelColumn + i, 0);
+                displayLargeAVCImageByteAddBlue(pixelColumn + i, 0);
             }
             bitPosition = bitPosition >> 1;
         }
@@ -480,12 +541,36 @@ public class AVC extends BaseCard implements ActionListener {
 
     /* write to the control port */
     private void CRTCControlWrite(final int data) {
-        CRTCRegister = data;
+        CRTCRegister = data & CRTC_REGISTER_MASK;
     }
 
     /* write to the data port */
     private void CRTCDataWrite(final int data) {
         CRTCRegisters[CRTCRegister] = data;
+        switch (CRTCRegister) {
+            case CRTC_HORIZONTAL_DISPLAYED, CRTC_VERTICAL_DISPLAYED, CRTC_MAX_SCAN_LINE, CRTC_START_ADDRESS_H, CRTC_START_ADDRESS_L -> updateDisplayGeometry();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Recalculate the displayed window from the CRTC registers. Unprogrammed (zero) size registers leave the
+     * power on default of 48 bytes by 256 lines in place.
+     */
+    private void updateDisplayGeometry() {
+        displayStart = ((CRTCRegisters[CRTC_START_ADDRESS_H] & 0x3F) << 8) | CRTCRegisters[CRTC_START_ADDRESS_L];
+        //
+        int bytes = CRTCRegisters[CRTC_HORIZONTAL_DISPLAYED];
+        if ((0 == bytes) || (bytes > MEMORY_BYTES_PER_LINE)) {
+            bytes = BYTES_PER_LINE;
+        }
+        int rows = CRTCRegisters[CRTC_VERTICAL_DISPLAYED] * ((CRTCRegisters[CRTC_MAX_SCAN_LINE] & 0x1F) + 1);
+        if ((0 == rows) || (rows > AVC_ROWS)) {
+            rows = AVC_ROWS;
+        }
+        displayBytes = bytes;
+        displayRows = rows;
     }
 
     /* write to the page control port */
@@ -522,64 +607,62 @@ public class AVC extends BaseCard implements ActionListener {
         // if the display has changed, reselect the image
         if ((data & 0x78) != (lastB2 & 0x78)) {
             highResSelected = (data & hHIGH_RES_BIT) != 0;
-            if (highResSelected) {
-                avcFrame.getContentPane().setPreferredSize(new Dimension(AVC_COLUMNS_LARGE * SCALE_LARGE, AVC_ROWS * SCALE_LARGE));
-                avcFrame.getContentPane().setSize(new Dimension(AVC_COLUMNS_LARGE * SCALE_LARGE, AVC_ROWS * SCALE_LARGE));
-            } else {
-                avcFrame.getContentPane().setPreferredSize(new Dimension(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL));
-                avcFrame.getContentPane().setSize(new Dimension(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL));
+            if (null != avcFrame) {
+                if (highResSelected) {
+                    avcFrame.getContentPane().setPreferredSize(new Dimension(AVC_COLUMNS_LARGE * SCALE_LARGE, AVC_ROWS * SCALE_LARGE));
+                    avcFrame.getContentPane().setSize(new Dimension(AVC_COLUMNS_LARGE * SCALE_LARGE, AVC_ROWS * SCALE_LARGE));
+                } else {
+                    avcFrame.getContentPane().setPreferredSize(new Dimension(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL));
+                    avcFrame.getContentPane().setSize(new Dimension(AVC_COLUMNS_SMALL * SCALE_SMALL, AVC_ROWS * SCALE_SMALL));
+                }
+                avcFrame.pack();
             }
-            avcFrame.pack();
             resetMemoryDisplay();
         }
         lastB2 = data;
     }
 
     /**
-     * update the complete 384 * 256 image
+     * Set a pixel in both copies of a pixel buffer
      *
-     * @param row        Row to set
-     * @param column     Column to set
+     * @param buffer   Pixel buffer
+     * @param ring     Size of one copy of the buffer
+     * @param position Pixel position in memory order
+     * @param value    ARGB value
+     */
+    private static void setPixel(final int[] buffer, final int ring, final int position, final int value) {
+        buffer[position] = value;
+        buffer[position + ring] = value;
+    }
+
+    /**
+     * update the complete 512 * 256 memory ordered image
+     *
+     * @param position   Pixel position in memory order
      * @param pixelValue Pixel value to set translated through a palette lookup
      */
-    private void displaySmallAVCImageByte(final int row, final int column, final int pixelValue) {
-        smallColourBuffer[row * AVC_COLUMNS_SMALL + column] = palette[pixelValue];
+    private void displaySmallAVCImageByte(final int position, final int pixelValue) {
+        setPixel(smallColourBuffer, RING_SMALL, position, palette[pixelValue]);
     }
 
     /**
-     * update the complete 768 * 256 image
+     * update the complete 1024 * 256 memory ordered image
      *
-     * @param row        Row to set
-     * @param column     Column to set
+     * @param position   Pixel position in memory order
      * @param pixelValue Pixel value to set translated through a palette lookup
      */
-    private void displayLargeAVCImageByte(final int row, final int column, final int pixelValue) {
-        try {
-            int position = row * AVC_COLUMNS_LARGE + column;
-            largeColourBuffer[position] = largeColourBuffer[position] & AVC_BLUE;
-            largeColourBuffer[position] = largeColourBuffer[position] | palette[pixelValue];
-        } catch (Exception e) {
-            System.out.println("Error (green) @ " + row + "/" + column);
-        }
+    private void displayLargeAVCImageByte(final int position, final int pixelValue) {
+        setPixel(largeColourBuffer, RING_LARGE, position, (largeColourBuffer[position] & AVC_BLUE) | palette[pixelValue]);
     }
 
     /**
      * Add the blue component to the high resolution image
      *
-     * @param row        Row to set
-     * @param column     Column to set
+     * @param position   Pixel position in memory order
      * @param pixelValue Pixel value to set translated through a palette lookup
      */
-    private void displayLargeAVCImageByteAddBlue(final int row, final int column, final int pixelValue) {
-        try {
-            int position = row * AVC_COLUMNS_LARGE + column;
-            largeColourBuffer[position] = largeColourBuffer[position] & 0xFFFFFF00;
-            largeColourBuffer[position] = largeColourBuffer[position] | palette[pixelValue];
-            //
-            largeColourBuffer[position + 1] = largeColourBuffer[position + 1] & 0xFFFFFF00;
-            largeColourBuffer[position + 1] = largeColourBuffer[position + 1] | palette[pixelValue];
-        } catch (Exception e) {
-            System.out.println("Error (blue) @ " + row + "/" + column);
-        }
+    private void displayLargeAVCImageByteAddBlue(final int position, final int pixelValue) {
+        setPixel(largeColourBuffer, RING_LARGE, position, (largeColourBuffer[position] & 0xFFFFFF00) | palette[pixelValue]);
+        setPixel(largeColourBuffer, RING_LARGE, position + 1, (largeColourBuffer[position + 1] & 0xFFFFFF00) | palette[pixelValue]);
     }
 }
\ No newline at end of file
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Expect style control of the emulated machine for scripts and CI. Each request runs the CPU until its condition is met
+ * (or its T state budget is used up, or the CPU halts), then stops the CPU and completes the returned future. Conditions
+ * are only checked at time slice boundaries, apart from the address compare needed for runUntilAddress(). The CPU runs
+ * at maximum speed unless told otherwise.
+ * <p>
+ * Only one request may be outstanding at a time - wait for each future before making the next request.
+ */
+public class Automation implements IExecutionListener {
+
+    public enum StopReason {TEXT, ADDRESS, T_STATES, HALT}
+
+    private final ICPUControl cpu;
+    private final ITextDisplay screen;
+    private final char[] screenBuffer;
+    private Thread cpuThread;
+    private volatile CompletableFuture<StopReason> request;
+    private StopReason stopReason;
+    private char[] text;
+    private boolean stopOnHalt;
+    private long screenVersion;
+
+    /**
+     * Attach to a CPU and its text display. Takes over the CPU execution listener.
+     *
+     * @param cpu    The CPU
+     * @param screen The text display to watch
+     */
+    public Automation(ICPUControl cpu, ITextDisplay screen) {
+        this.cpu = cpu;
+        this.screen = screen;
+        screenBuffer = new char[screen.getScreenColumns() * screen.getScreenRows()];
+        cpu.setSpeedMHz(-1);
+        cpu.setExecutionListener(this);
+    }
+
+    /**
+     * Run until some text is seen on the screen
+     *
+     * @param text       Text to look for, within one line or wrapping across lines
+     * @param maxTStates T state budget, or zero for no limit
+     * @return Completes with TEXT, T_STATES or HALT
+     */
+    public CompletableFuture<StopReason> runUntilText(String text, long maxTStates) {
+        this.text = text.toCharArray();
+        screenVersion = -1;
+        return run(-1, maxTStates, true);
+    }
+
+    /**
+     * Run until the program counter reaches an address
+     *
+     * @param address    Address 0x0000 to 0xFFFF
+     * @param maxTStates T state budget, or zero for no limit
+     * @return Completes with ADDRESS, T_STATES or HALT
+     */
+    public CompletableFuture<StopReason> runUntilAddress(int address, long maxTStates) {
+        if ((address < 0) || (address > 0xFFFF)) {
+            throw new RuntimeException("Address is not in the range 0x0000 to 0xFFFF, <" + address + ">");
+        }
+        text = null;
+        return run(address, maxTStates, true);
+    }
+
+    /**
+     * Run until the CPU halts
+     *
+     * @param maxTStates T state budget, or zero for no limit
+     * @return Completes with HALT or T_STATES
+     */
+    public CompletableFuture<StopReason> runUntilHalt(long maxTStates) {
+        text = null;
+        return run(-1, maxTStates, true);
+    }
+
+    /**
+     * Run for a number of T states, whatever happens
+     *
+     * @param tStates T states to run for
+     * @return Completes with T_STATES
+     */
+    public CompletableFuture<StopReason> runFor(long tStates) {
+        if (tStates <= 0) {
+            throw new RuntimeException("T states to run for must be greater than zero, <" + tStates + ">");
+        }
+        text = null;
+        return run(-1, tStates, false);
+    }
+
+    /**
+     * Check the screen for some text now
+     *
+     * @param text Text to look for
+     * @return True if found
+     */
+    public boolean screenContains(String text) {
+        screen.readScreen(screenBuffer);
+        return indexOf(screenBuffer, text.toCharArray()) >= 0;
+    }
+
+    /**
+     * End execution of the CPU
+     */
+    public void terminate() {
+        cpu.terminate();
+    }
+
+    /**
+     * Set up and start a request
+     *
+     * @param breakpoint Address to stop at or -1
+     * @param maxTStates T state budget, or zero for no limit
+     * @param stopOnHalt True to stop if the CPU halts
+     * @return The future for the request
+     */
+    private synchronized CompletableFuture<StopReason> run(int breakpoint, long maxTStates, boolean stopOnHalt) {
+        if ((null != request) && !request.isDone()) {
+            throw new RuntimeException("An automation request is already running");
+        }
+        CompletableFuture<StopReason> future = new CompletableFuture<>();
+        this.stopOnHalt = stopOnHalt;
+        stopReason = null;
+        cpu.setBreakpoint(breakpoint);
+        cpu.setTStateLimit(maxTStates > 0 ? cpu.getElapsedTStates() + maxTStates : Long.MAX_VALUE);
+        request = future;
+        if (null == cpuThread) {
+            cpuThread = new Thread(cpu::start, "CPU");
+            cpuThread.setDaemon(true);
+            cpuThread.start();
+        } else {
+            cpu.restart();
+        }
+        return future;
+    }
+
+    /**
+     * Called on the CPU thread at slice boundaries and breakpoints
+     *
+     * @param event What happened
+     * @return True to stop the CPU
+     */
+    @Override
+    public boolean executionEvent(Event event) {
+        switch (event) {
+            case BREAKPOINT -> stopReason = StopReason.ADDRESS;
+            case T_STATE_LIMIT -> stopReason = StopReason.T_STATES;
+            case HALT -> stopReason = stopOnHalt ? StopReason.HALT : null;
+            case SLICE -> {
+                if ((null != text) && (screen.getScreenVersion() != screenVersion)) {
+                    screenVersion = screen.getScreenVersion();
+                    screen.readScreen(screenBuffer);
+                    if (indexOf(screenBuffer, text) >= 0) {
+                        stopReason = StopReason.TEXT;
+                    }
+                }
+            }
+        }
+        return (null != stopReason) || (null == request);
+    }
+
+    /**
+     * Called on the CPU thread once stopped, completes the request
+     */
+    @Override
+    public void executionStopped() {
+        CompletableFuture<StopReason> future = request;
+        if (null != future) {
+            future.complete(stopReason);
+        }
+    }
+
+    /**
+     * Search for text in the screen without allocating
+     *
+     * @param screen Screen characters
+     * @param text   Text to find
+     * @return Position or -1
+     */
+    private static int indexOf(char[] screen, char[] text) {
+        int last = screen.length - text.length;
+        for (int i = 0; i <= last; i++) {
+            int j = 0;
+            while ((j < text.length) && (screen[i + j] == text[j])) {
+                j++;
+            }
+            if (j == text.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
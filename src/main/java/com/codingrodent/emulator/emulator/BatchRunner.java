@@ -0,0 +1,325 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.*;
+import com.codingrodent.emulator.emulator.display.FrameCapture;
+import com.codingrodent.emulator.nas80Bus.CardController;
+import com.codingrodent.emulator.utilities.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Non-interactive emulator run. Builds the machine from a configuration file without a GUI, loads programs, runs to a
+ * stop condition and writes the requested outputs. The result is reported as the exit status.
+ */
+public class BatchRunner {
+
+    public final static int EXIT_OK = 0;              // stop condition met (or the cycle count ran when that was all that was asked)
+    public final static int EXIT_LIMIT = 1;           // cycle limit reached before the stop condition
+    public final static int EXIT_USAGE = 2;           // bad command line
+    public final static int EXIT_ERROR = 3;           // failed to configure, load or write
+    public final static int EXIT_TIMEOUT = 4;         // wall clock timeout
+    private final static String USAGE = """
+            Usage: BatchEmulator [options]
+              --config <file>          Emulator configuration (default EmulatorInfo.json)
+              --load <file>            Load a .nas file
+              --load <file>@<addr>     Load a binary file at a hex address
+              --load-disk <image>:<name>
+                                       Load a file from a NAS-DOS disk image at its load address
+              --start <addr>           Start address (hex), overrides the CPU card setting
+              --cycles <n>             Stop after n T states
+              --until-halt             Stop when the CPU halts
+              --until-address <addr>   Stop when the PC reaches a hex address
+              --until-text <text>      Stop when the text is on the screen
+              --timeout <seconds>      Wall clock limit
+              --dump-memory <file>     Write all 64K, .nas format or by extension .bin / .hex (Intel HEX)
+              --dump-memory <file>@<ssss-eeee>
+                                       Write an address range (hex)
+              --dump-screen <file|->   Write the screen text
+              --frame-hash <file|->    Write a hash of each display frame
+            Exit status: 0 ok, 1 cycle limit reached first, 2 usage, 3 error, 4 timeout""";
+
+    private final List<String> loads = new ArrayList<>();
+    private final List<String> diskLoads = new ArrayList<>();
+    private String config = ProcessEmulatorInfoFile.EMULATOR_INFO_FILE;
+    private String startAddress;
+    private long cycles;
+    private boolean untilHalt;
+    private int untilAddress = -1;
+    private String untilText;
+    private long timeoutSeconds;
+    private String dumpMemory;
+    private String dumpScreen;
+    private String frameHash;
+
+    /**
+     * Process the command line and run
+     *
+     * @param args Command line arguments
+     * @return Exit status
+     */
+    public int run(String[] args) {
+        try {
+            parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        SystemContext context;
+        CardController cardController;
+        try {
+            context = SystemContext.createInstance(config);
+            if (null != startAddress) {
+                context.getAllCards().get(0).getProperties().put("StartAddress", startAddress);
+            }
+            cardController = new CardController();
+            context.setCardController(cardController);
+            cardController.insertCards();
+            load(cardController);
+        } catch (Exception e) {
+            System.err.println("Unable to set up the emulator, " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        //
+        ICPUControl cpu = cardController.getCPU();
+        if (!(cpu instanceof ITextDisplay)) {
+            System.err.println("The CPU card has no text display");
+            return EXIT_ERROR;
+        }
+        Automation automation = new Automation(cpu, (ITextDisplay) cpu);
+        int status;
+        try {
+            Automation.StopReason stopReason = start(automation).get(timeoutSeconds > 0 ? timeoutSeconds : Long.MAX_VALUE, TimeUnit.SECONDS);
+            boolean onlyCycles = !untilHalt && (-1 == untilAddress) && (null == untilText);
+            status = ((Automation.StopReason.T_STATES == stopReason) && !onlyCycles) ? EXIT_LIMIT : EXIT_OK;
+            context.logInfoEvent("Stopped on " + stopReason + " after " + cpu.getElapsedTStates() + " T states");
+        } catch (TimeoutException e) {
+            cpu.stop();
+            status = EXIT_TIMEOUT;
+        } catch (InterruptedException | ExecutionException e) {
+            System.err.println("Execution failed, " + e.getMessage());
+            status = EXIT_ERROR;
+        }
+        automation.terminate();
+        //
+        try {
+            writeOutputs(cardController, (ITextDisplay) cpu);
+        } catch (IOException e) {
+            System.err.println("Unable to write output, " + e.getMessage());
+            status = EXIT_ERROR;
+        }
+        return status;
+    }
+
+    /**
+     * Decode the command line
+     *
+     * @param args Command line arguments
+     */
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--until-halt".equals(option)) {
+                untilHalt = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new RuntimeException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--config" -> config = value;
+                case "--load" -> loads.add(value);
+                case "--load-disk" -> diskLoads.add(value);
+                case "--start" -> startAddress = Utilities.getWord(address(value));
+                case "--cycles" -> cycles = number(value);
+                case "--until-address" -> untilAddress = address(value);
+                case "--until-text" -> untilText = value;
+                case "--timeout" -> timeoutSeconds = number(value);
+                case "--dump-memory" -> dumpMemory = value;
+                case "--dump-screen" -> dumpScreen = value;
+                case "--frame-hash" -> frameHash = value;
+                default -> throw new RuntimeException("Unknown option " + option);
+            }
+        }
+        if ((null != dumpMemory) && (dumpMemory.lastIndexOf('@') >= 0)) {
+            MemoryExporter.Range.parse(dumpMemory.substring(dumpMemory.lastIndexOf('@') + 1));
+        }
+        int conditions = (untilHalt ? 1 : 0) + ((-1 == untilAddress) ? 0 : 1) + ((null == untilText) ? 0 : 1);
+        if (conditions > 1) {
+            throw new RuntimeException("Only one of --until-halt, --until-address and --until-text may be used");
+        }
+        if ((0 == conditions) && (0 == cycles)) {
+            throw new RuntimeException("A run limit is required, --cycles or --until-xxx");
+        }
+    }
+
+    /**
+     * Decode a hex address
+     *
+     * @param value Hex string
+     * @return Address
+     */
+    private static int address(String value) {
+        if (!value.matches("[0-9A-Fa-f]{1,4}")) {
+            throw new RuntimeException("Address is not in the range 0000 to FFFF, <" + value + ">");
+        }
+        return Integer.parseInt(value, 16);
+    }
+
+    /**
+     * Decode a positive decimal number
+     *
+     * @param value Number string
+     * @return The number
+     */
+    private static long number(String value) {
+        try {
+            long number = Long.parseLong(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new RuntimeException("Expected a number greater than zero, <" + value + ">");
+    }
+
+    /**
+     * Load all the requested files into memory
+     *
+     * @param cardController The card controller
+     * @throws IOException Thrown on read failure
+     */
+    private void load(CardController cardController) throws IOException {
+        FileHandler fileHandler = new FileHandler();
+        for (String load : loads) {
+            int split = load.lastIndexOf('@');
+            if (split < 0) {
+                if (!load.toLowerCase(Locale.ROOT).endsWith(".nas")) {
+                    throw new IOException("A load address is needed for binary file <" + load + ">");
+                }
+                cardController.loadMemory(fileHandler.readHexDumpFile(load));
+            } else {
+                cardController.loadMemory(fileHandler.readBinaryDumpFile(load.substring(0, split), address(load.substring(split + 1))));
+            }
+        }
+        for (String load : diskLoads) {
+            int split = load.lastIndexOf(':');
+            if (split < 1) {
+                throw new IOException("Expected <image>:<name>, <" + load + ">");
+            }
+            DiskImage disk = DiskToolRunner.openImage(new File(load.substring(0, split)), true);
+            try {
+                NasDosDisk nasDos = new NasDosDisk(disk);
+                NasDosDisk.DirectoryEntry entry = nasDos.find(load.substring(split + 1));
+                if (null == entry) {
+                    throw new IOException("No file called <" + load.substring(split + 1) + "> in <" + load.substring(0, split) + ">");
+                }
+                cardController.loadMemory(nasDos.readMemoryChunk(entry));
+                SystemContext.createInstance().logInfoEvent("Loaded " + entry.getName() + " at " + Utilities.getWord(entry.getLoadAddress()) + ", execution address " + Utilities.getWord(entry.getExecutionAddress()));
+            } finally {
+                disk.ejectDisk();
+            }
+        }
+    }
+
+    /**
+     * Start the run with the requested stop condition
+     *
+     * @param automation Automation controller
+     * @return Run result
+     */
+    private CompletableFuture<Automation.StopReason> start(Automation automation) {
+        if (untilHalt) {
+            return automation.runUntilHalt(cycles);
+        } else if (-1 != untilAddress) {
+            return automation.runUntilAddress(untilAddress, cycles);
+        } else if (null != untilText) {
+            return automation.runUntilText(untilText, cycles);
+        }
+        return automation.runFor(cycles);
+    }
+
+    /**
+     * Write any requested output files
+     *
+     * @param cardController The card controller
+     * @param screen         The text display
+     * @throws IOException Thrown on write failure
+     */
+    private void writeOutputs(CardController cardController, ITextDisplay screen) throws IOException {
+        if (null != dumpMemory) {
+            int split = dumpMemory.lastIndexOf('@');
+            if (split < 0) {
+                cardController.dumpMemory(dumpMemory);
+            } else {
+                String fileName = dumpMemory.substring(0, split);
+                cardController.dumpMemory(fileName, MemoryExporter.Format.fromFileName(fileName), MemoryExporter.Range.parse(dumpMemory.substring(split + 1)));
+            }
+        }
+        if (null != dumpScreen) {
+            try (PrintWriter writer = writer(dumpScreen)) {
+                for (String line : screen.getScreenLines()) {
+                    writer.println(line.stripTrailing());
+                }
+            }
+        }
+        if (null != frameHash) {
+            try (PrintWriter writer = writer(frameHash)) {
+                for (IDisplayCard display : cardController.getFrameScheduler().getDisplays()) {
+                    String name = (display instanceof ICard) ? ((ICard) display).getCardName() : display.getClass().getSimpleName();
+                    long hash = new FrameCapture(display).hash();
+                    writer.println(String.format("%016X %dx%d %s", hash, display.getFrameWidth(), display.getFrameHeight(), name));
+                }
+            }
+        }
+    }
+
+    /**
+     * Open an output file, or standard output for "-"
+     *
+     * @param fileName File name
+     * @return Writer
+     * @throws IOException Thrown if the file cannot be created
+     */
+    private static PrintWriter writer(String fileName) throws IOException {
+        if ("-".equals(fileName)) {
+            return new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+                @Override
+                public void close() {
+                    flush();
+                }
+            };
+        }
+        return new PrintWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
+    }
+}
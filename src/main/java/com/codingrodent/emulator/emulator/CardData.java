@@ -27,7 +27,7 @@ package com.codingrodent.emulator.emulator;
 
 import com.google.gson.annotations.Expose;
 
-import java.util.Map;
+import java.util.*;
 
 public class CardData {
 
@@ -48,6 +48,19 @@ public class CardData {
     public CardData() {
     }
 
+    /**
+     * Copy a card definition. The properties are copied so that the copy may be changed independently.
+     *
+     * @param cardData The card definition to copy
+     */
+    public CardData(CardData cardData) {
+        details = cardData.details;
+        name = cardData.name;
+        clazz = cardData.clazz;
+        order = cardData.order;
+        properties = (null == cardData.properties) ? null : new LinkedHashMap<>(cardData.properties);
+    }
+
     public String getDetails() {
         return details;
     }
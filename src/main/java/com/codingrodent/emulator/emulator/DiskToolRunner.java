@@ -0,0 +1,357 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.common.FDC17xx;
+import com.codingrodent.emulator.utilities.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Command line disk image tool. Converts between ANADisk, binary dump and compressed images, and lists, extracts and
+ * adds files on NAS-DOS disks.
+ * <p>
+ * NAS-DOS commands take any image - a compressed image by its signature, a binary dump of 16 sectors of 256 bytes a
+ * track on two sides by the extension .dsk, and otherwise ANADisk.
+ */
+public class DiskToolRunner {
+
+    public final static int EXIT_OK = 0;              // command completed
+    public final static int EXIT_USAGE = 2;           // bad command line
+    public final static int EXIT_ERROR = 3;           // unable to read or write an image
+    private final static String DUMP_EXTENSION = ".dsk";
+    private final static int DUMP_SECTORS = 16;
+    private final static int DUMP_TRACK_SIZE = 2 * DUMP_SECTORS * NasDosDisk.SECTOR_SIZE;
+    private final static String USAGE = """
+            Usage: DiskTool [--config <file>] <command> <arguments>
+              pack <image> <file.ndz>                     Compress an ANADisk image
+              pack <image> <file.ndz> <tracks> <sectors> <size> <sides>
+                                                          Compress a binary dump image
+              unpack <file.ndz> <image>                   Expand to an ANADisk image
+              unpack <file.ndz> <image> dump              Expand to a binary dump image
+              dir <image>                                 List the files on a NAS-DOS disk
+              get <image> <name> <file>                   Extract a NAS-DOS file, .nas format or by extension
+                                                          .bin / .hex (Intel HEX)
+              put <image> <file> <name> [<load> [<exec>]] Add a .nas or binary file to a NAS-DOS disk, replacing
+                                                          any file of the same name. Addresses are hex, a binary
+                                                          file needs a load address
+            The configuration file (default EmulatorInfo.json) sets up logging.
+            Exit status: 0 ok, 2 usage, 3 error""";
+
+    /**
+     * Process the command line and run the command
+     *
+     * @param args Command line arguments
+     * @return Exit status
+     */
+    public int run(String[] args) {
+        String config = ProcessEmulatorInfoFile.EMULATOR_INFO_FILE;
+        if ((args.length > 1) && "--config".equals(args[0])) {
+            config = args[1];
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        try {
+            SystemContext.createInstance(config);
+            switch (args[0]) {
+                case "pack" -> pack(args);
+                case "unpack" -> unpack(args);
+                case "dir" -> directory(args);
+                case "get" -> get(args);
+                case "put" -> put(args);
+                default -> throw new IllegalArgumentException("Unknown command " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to " + args[0] + " disk image, " + e.getMessage());
+            return EXIT_ERROR;
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * Compress an ANADisk or binary dump image
+     *
+     * @param args Command line arguments
+     * @throws IOException Thrown if an image can't be read or written
+     */
+    private void pack(String[] args) throws IOException {
+        arguments(args, 3, 7);
+        DiskImage disk = new DiskImage();
+        File source = existing(args[1]);
+        if (3 == args.length) {
+            disk.loadANADisk(source);
+        } else if (7 == args.length) {
+            int tracks = number(args[3], 255);
+            int sectors = number(args[4], 255);
+            int size = number(args[5], 1024);
+            int sides = number(args[6], 2);
+            if (source.length() < (long) tracks * sectors * size * sides) {
+                throw new IOException("Dump image is shorter than " + tracks + " tracks of " + sectors + " x " + size + " byte sectors on " + sides + " sides : " + source);
+            }
+            disk.diskDumpReader(source, tracks, sectors, size, sides - 1);
+        } else {
+            throw new IllegalArgumentException("pack takes an image, a compressed image and an optional dump layout");
+        }
+        disk.saveCompressedImage(new File(args[2]));
+    }
+
+    /**
+     * Expand a compressed image to ANADisk or binary dump format
+     *
+     * @param args Command line arguments
+     * @throws IOException Thrown if an image can't be read or written
+     */
+    private void unpack(String[] args) throws IOException {
+        arguments(args, 3, 4);
+        boolean dump = (4 == args.length) && "dump".equals(args[3]);
+        if ((3 != args.length) && !dump) {
+            throw new IllegalArgumentException("unpack takes a compressed image, an image and an optional dump");
+        }
+        DiskImage disk = new DiskImage();
+        disk.openCompressedImage(existing(args[1]));
+        try {
+            if (dump) {
+                disk.saveDumpImage(new File(args[2]));
+            } else {
+                disk.dumpANADiskToFile(args[2], FDC17xx.FDC_CHIP.FDC_1793);
+            }
+        } finally {
+            disk.ejectDisk();
+        }
+    }
+
+    /**
+     * List the files on a NAS-DOS disk
+     *
+     * @param args Command line arguments
+     * @throws IOException Thrown if the image can't be read
+     */
+    private void directory(String[] args) throws IOException {
+        arguments(args, 2, 2);
+        DiskImage disk = openImage(existing(args[1]), true);
+        try {
+            NasDosDisk nasDos = new NasDosDisk(disk);
+            System.out.println("Name     Load Exec Trk Sec  Secs");
+            for (NasDosDisk.DirectoryEntry entry : nasDos.getDirectory()) {
+                System.out.println(entry);
+            }
+            System.out.println(nasDos.getDirectory().size() + " files, " + nasDos.getFreeSectors() + " sectors free");
+        } finally {
+            disk.ejectDisk();
+        }
+    }
+
+    /**
+     * Extract a file from a NAS-DOS disk
+     *
+     * @param args Command line arguments
+     * @throws IOException Thrown if the image can't be read or the file written
+     */
+    private void get(String[] args) throws IOException {
+        arguments(args, 4, 4);
+        DiskImage disk = openImage(existing(args[1]), true);
+        try {
+            NasDosDisk nasDos = new NasDosDisk(disk);
+            NasDosDisk.DirectoryEntry entry = findFile(nasDos, args[2]);
+            MemoryChunk memory = nasDos.readMemoryChunk(entry);
+            MemoryExporter.Range range = new MemoryExporter.Range(memory.getBase(), memory.getBase() + memory.getSize() - 1);
+            new MemoryExporter().export(memory::readByte, MemoryExporter.Format.fromFileName(args[3]), args[3], range);
+        } finally {
+            disk.ejectDisk();
+        }
+    }
+
+    /**
+     * Add a file to a NAS-DOS disk and save the image
+     *
+     * @param args Command line arguments
+     * @throws IOException Thrown if the image or file can't be read or the image written
+     */
+    private void put(String[] args) throws IOException {
+        arguments(args, 4, 6);
+        File image = existing(args[1]);
+        String fileName = existing(args[2]).getPath();
+        int load;
+        byte[] data;
+        if (args.length > 4) {
+            load = address(args[4]);
+        } else if (fileName.toLowerCase(Locale.ROOT).endsWith(".nas")) {
+            load = -1;
+        } else {
+            throw new IllegalArgumentException("A load address is needed for binary file <" + fileName + ">");
+        }
+        if (fileName.toLowerCase(Locale.ROOT).endsWith(".nas")) {
+            MemoryChunk memory = new FileHandler().readHexDumpFile(fileName);
+            data = new byte[memory.getSize()];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) memory.readByte(memory.getBase() + i);
+            }
+            load = (-1 == load) ? memory.getBase() : load;
+        } else {
+            data = Files.readAllBytes(new File(fileName).toPath());
+        }
+        int execution = (args.length > 5) ? address(args[5]) : load;
+        DiskImage disk = openImage(image, false);
+        try {
+            NasDosDisk.DirectoryEntry entry = new NasDosDisk(disk).writeFile(args[3], load, execution, data);
+            System.out.println(entry);
+        } catch (RuntimeException e) {
+            disk.ejectDisk();
+            throw e;
+        }
+        saveImage(disk, image);
+    }
+
+    /**
+     * Find a file on a NAS-DOS disk
+     *
+     * @param nasDos The disk
+     * @param name   File name
+     * @return The file
+     * @throws IOException Thrown if there is no such file
+     */
+    private static NasDosDisk.DirectoryEntry findFile(NasDosDisk nasDos, String name) throws IOException {
+        NasDosDisk.DirectoryEntry entry = nasDos.find(name);
+        if (null == entry) {
+            throw new IOException("No file called <" + name + "> on the disk");
+        }
+        return entry;
+    }
+
+    /**
+     * Open a disk image of any format
+     *
+     * @param file     Image file
+     * @param readOnly True to leave a dump image file unchanged
+     * @return The disk
+     * @throws IOException Thrown if the image can't be read
+     */
+    static DiskImage openImage(File file, boolean readOnly) throws IOException {
+        DiskImage disk = new DiskImage();
+        if (CompressedImage.isCompressedImage(file)) {
+            disk.openCompressedImage(file);
+        } else if (file.getName().toLowerCase(Locale.ROOT).endsWith(DUMP_EXTENSION)) {
+            disk.setFlushInterval(0);
+            disk.openDumpImage(file, (int) (file.length() / DUMP_TRACK_SIZE), DUMP_SECTORS, NasDosDisk.SECTOR_SIZE, 1, readOnly);
+        } else {
+            disk.loadANADisk(file);
+        }
+        return disk;
+    }
+
+    /**
+     * Save a disk opened by openImage back to its file in the same format
+     *
+     * @param disk Disk to save
+     * @param file Image file
+     * @throws IOException Thrown if the image can't be written
+     */
+    private static void saveImage(DiskImage disk, File file) throws IOException {
+        try {
+            if (file.getName().toLowerCase(Locale.ROOT).endsWith(DUMP_EXTENSION) && !CompressedImage.isCompressedImage(file)) {
+                if (!disk.isWriteBack()) {
+                    throw new IOException("Disk image is read only : " + file);
+                }
+                disk.save();
+            } else if (CompressedImage.isCompressedImage(file)) {
+                disk.saveCompressedImage(file);
+            } else {
+                disk.dumpANADiskToFile(file.getPath(), FDC17xx.FDC_CHIP.FDC_1793);
+            }
+        } finally {
+            disk.ejectDisk();
+        }
+    }
+
+    /**
+     * Check the number of arguments to a command
+     *
+     * @param args    Command line arguments, including the command
+     * @param minimum Fewest allowed
+     * @param maximum Most allowed
+     */
+    private static void arguments(String[] args, int minimum, int maximum) {
+        if ((args.length < minimum) || (args.length > maximum)) {
+            throw new IllegalArgumentException("Wrong number of arguments for " + args[0]);
+        }
+    }
+
+    /**
+     * Decode a hex address
+     *
+     * @param value Hex string
+     * @return Address
+     */
+    private static int address(String value) {
+        int address = Utilities.getHexValue(value.toUpperCase(Locale.ROOT));
+        if ((address < 0) || (address > 0xFFFF)) {
+            throw new IllegalArgumentException("Address is not in the range 0000 to FFFF, <" + value + ">");
+        }
+        return address;
+    }
+
+    /**
+     * Check an input file exists
+     *
+     * @param fileName Name of the file
+     * @return The file
+     */
+    private static File existing(String fileName) {
+        File file = new File(fileName);
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("File not found : " + fileName);
+        }
+        return file;
+    }
+
+    /**
+     * Decode a decimal number from 1 to a limit
+     *
+     * @param value Number string
+     * @param limit Largest value allowed
+     * @return The number
+     */
+    private static int number(String value, int limit) {
+        try {
+            int number = Integer.parseInt(value);
+            if ((number > 0) && (number <= limit)) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Expected a number from 1 to " + limit + ", <" + value + ">");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.cpu.nascom2.Nascom2CPUCard;
+import com.codingrodent.emulator.nas80Bus.CardController;
+
+/**
+ * The state of a stopped machine - the 64K memory image seen by the CPU and the processor registers. Restoring into a
+ * freshly built machine of the same configuration resumes from the point the snapshot was taken, without having to boot
+ * again. Port and peripheral state is not held, so snapshots are best taken with the machine idle, e.g. waiting at the
+ * monitor prompt.
+ */
+public class MachineSnapshot {
+
+    private final short[] memory;
+    private final int[] registers;
+
+    /**
+     * Take a snapshot. The CPU must be stopped.
+     *
+     * @param cardController The machine
+     */
+    public MachineSnapshot(CardController cardController) {
+        memory = cardController.readMemory();
+        registers = cpuCard(cardController).getRegisters();
+    }
+
+    /**
+     * Load the snapshot into a machine that has had its cards inserted but has not yet been started
+     *
+     * @param cardController The machine
+     */
+    public void restore(CardController cardController) {
+        cardController.restoreMemory(memory);
+        cpuCard(cardController).setStartRegisters(registers);
+    }
+
+    /**
+     * Get the CPU card, which must be able to save and restore its registers
+     *
+     * @param cardController The machine
+     * @return The CPU card
+     */
+    private static Nascom2CPUCard cpuCard(CardController cardController) {
+        if (!(cardController.getCPU() instanceof Nascom2CPUCard)) {
+            throw new RuntimeException("Snapshots need a Nascom 2 CPU card, not <" + cardController.getCard(0).getCardName() + ">");
+        }
+        return (Nascom2CPUCard) cardController.getCPU();
+    }
+}
@@ -30,24 +30,29 @@ import com.google.gson.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class holds an internal representation of the machineInfo.xml document.
  */
 class ProcessEmulatorInfoFile {
 
-    private static final String EMULATOR_INFO_FILE = "EmulatorInfo.json";
+    static final String EMULATOR_INFO_FILE = "EmulatorInfo.json";
+    private static final Map<String, ProcessEmulatorInfoFile> parsedFiles = new ConcurrentHashMap<>();
     private final List<CardData> cardInfo;
+    private final long lastModified;
 
     /**
      * Standard constructor - Loads the machineInfo.xml document and resets
      * system ready for use. Will wait and poll until the document becomes
      * available.
      *
+     * @param emulatorInfoFile The configuration file to read
      * @throws ProcessEmulatorInfoFileException Thrown if unable to recover the document
      */
-    ProcessEmulatorInfoFile() throws ProcessEmulatorInfoFileException {
-        try (Reader reader = new InputStreamReader(new FileInputStream(EMULATOR_INFO_FILE), StandardCharsets.UTF_8)) {
+    ProcessEmulatorInfoFile(String emulatorInfoFile) throws ProcessEmulatorInfoFileException {
+        lastModified = new File(emulatorInfoFile).lastModified();
+        try (Reader reader = new InputStreamReader(new FileInputStream(emulatorInfoFile), StandardCharsets.UTF_8)) {
             Gson gson = new GsonBuilder().create();
             CardData[] cardData = gson.fromJson(reader, CardData[].class);
             Arrays.sort(cardData, Comparator.comparingInt(CardData::getOrder));
@@ -57,6 +62,38 @@ class ProcessEmulatorInfoFile {
         }
     }
 
+    /**
+     * Copy a parsed document, so that the copy may be changed independently
+     *
+     * @param emulatorInfo The parsed document
+     */
+    private ProcessEmulatorInfoFile(ProcessEmulatorInfoFile emulatorInfo) {
+        lastModified = emulatorInfo.lastModified;
+        List<CardData> cards = new ArrayList<>(emulatorInfo.cardInfo.size());
+        for (CardData cardData : emulatorInfo.cardInfo) {
+            cards.add(new CardData(cardData));
+        }
+        cardInfo = cards;
+    }
+
+    /**
+     * Get a private copy of a document, only parsing the file if it has not been seen before or has changed since
+     *
+     * @param emulatorInfoFile The configuration file to read
+     * @return The document
+     * @throws ProcessEmulatorInfoFileException Thrown if unable to recover the document
+     */
+    static ProcessEmulatorInfoFile load(String emulatorInfoFile) throws ProcessEmulatorInfoFileException {
+        File file = new File(emulatorInfoFile);
+        String key = file.getAbsolutePath();
+        ProcessEmulatorInfoFile parsed = parsedFiles.get(key);
+        if ((null == parsed) || (parsed.lastModified != file.lastModified())) {
+            parsed = new ProcessEmulatorInfoFile(emulatorInfoFile);
+            parsedFiles.put(key, parsed);
+        }
+        return new ProcessEmulatorInfoFile(parsed);
+    }
+
     /**
      * Get the card set as derived from the emulatorInfo.xml
      *
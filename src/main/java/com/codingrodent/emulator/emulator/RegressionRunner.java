@@ -0,0 +1,399 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.cpu.nascom2.*;
+import com.codingrodent.emulator.nas80Bus.CardController;
+import com.codingrodent.emulator.utilities.FileHandler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a directory of regression tests, one isolated emulator per test, spread across all processor cores.
+ * <p>
+ * A test is a set of files sharing a name. name.expected holds the screen text required for a pass, one line of text
+ * per line of file. The other files are optional - name.nas is loaded into memory, name.dsk is mounted as drive 0,
+ * name.keys is typed on the keyboard and name.json replaces the default configuration. The machine runs until the last
+ * expected line appears, then every expected line must be on the screen.
+ * <p>
+ * Each configuration is booted once and a snapshot taken. Every test then starts from a copy of that snapshot, so the
+ * configuration file is not parsed and the ROM images not read again for every test.
+ */
+public class RegressionRunner {
+
+    public final static int EXIT_PASS = 0;            // all tests passed
+    public final static int EXIT_FAIL = 1;            // one or more tests failed
+    public final static int EXIT_USAGE = 2;           // bad command line
+    public final static int EXIT_ERROR = 3;           // no tests found or unable to set up
+    private final static String EXPECTED = ".expected";
+    private final static String USAGE = """
+            Usage: RegressionEmulator [options] <test directory>
+              --config <file>          Default emulator configuration (default EmulatorInfo.json)
+              --threads <n>            Tests to run at once (default one per processor core)
+              --boot-cycles <n>        T states to boot each configuration for (default 4000000)
+              --cycles <n>             T state budget per test (default 400000000)
+              --timeout <seconds>      Wall clock limit per test (default 60)
+            Exit status: 0 all passed, 1 failures, 2 usage, 3 error""";
+
+    private final Map<String, Future<MachineSnapshot>> snapshots = new ConcurrentHashMap<>();
+    private String directory;
+    private String config = ProcessEmulatorInfoFile.EMULATOR_INFO_FILE;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long bootCycles = 4_000_000;
+    private long cycles = 400_000_000;
+    private long timeoutSeconds = 60;
+
+    /**
+     * Process the command line and run
+     *
+     * @param args Command line arguments
+     * @return Exit status
+     */
+    public int run(String[] args) {
+        try {
+            parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        List<TestCase> tests = findTests(new File(directory));
+        if (tests.isEmpty()) {
+            System.err.println("No tests (*" + EXPECTED + ") found in <" + directory + ">");
+            return EXIT_ERROR;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tests.size()));
+        List<Future<TestResult>> results = new ArrayList<>();
+        for (TestCase test : tests) {
+            results.add(executor.submit(() -> runTest(test)));
+        }
+        executor.shutdown();
+        //
+        int passed = 0;
+        for (Future<TestResult> future : results) {
+            TestResult result;
+            try {
+                result = future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                executor.shutdownNow();
+                System.err.println("Test run failed, " + e.getMessage());
+                return EXIT_ERROR;
+            }
+            if (result.passed) {
+                passed++;
+            }
+            System.out.println(result);
+        }
+        System.out.println(passed + " passed, " + (tests.size() - passed) + " failed");
+        return (passed == tests.size()) ? EXIT_PASS : EXIT_FAIL;
+    }
+
+    /**
+     * Decode the command line
+     *
+     * @param args Command line arguments
+     */
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (!option.startsWith("--")) {
+                if (null != directory) {
+                    throw new RuntimeException("Only one test directory may be given");
+                }
+                directory = option;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new RuntimeException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--config" -> config = value;
+                case "--threads" -> threads = (int) Math.min(number(value), 1024);
+                case "--boot-cycles" -> bootCycles = number(value);
+                case "--cycles" -> cycles = number(value);
+                case "--timeout" -> timeoutSeconds = number(value);
+                default -> throw new RuntimeException("Unknown option " + option);
+            }
+        }
+        if (null == directory) {
+            throw new RuntimeException("A test directory is required");
+        }
+    }
+
+    /**
+     * Decode a positive decimal number
+     *
+     * @param value Number string
+     * @return The number
+     */
+    private static long number(String value) {
+        try {
+            long number = Long.parseLong(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new RuntimeException("Expected a number greater than zero, <" + value + ">");
+    }
+
+    /**
+     * Find all the tests in a directory
+     *
+     * @param directory The test directory
+     * @return Tests in name order
+     */
+    private List<TestCase> findTests(File directory) {
+        List<TestCase> tests = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXPECTED));
+        if (null != files) {
+            Arrays.sort(files);
+            for (File expected : files) {
+                String name = expected.getName().substring(0, expected.getName().length() - EXPECTED.length());
+                File json = new File(directory, name + ".json");
+                tests.add(new TestCase(name, expected, optional(directory, name + ".nas"), optional(directory, name + ".dsk"), optional(directory, name + ".keys"),
+                        json.isFile() ? json.getPath() : config));
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * A test file, if present
+     *
+     * @param directory The test directory
+     * @param name      File name
+     * @return The file or null
+     */
+    private static File optional(File directory, String name) {
+        File file = new File(directory, name);
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Get the booted snapshot for a configuration, booting it if this is the first test to use it
+     *
+     * @param config The configuration file
+     * @return Snapshot
+     * @throws Exception Thrown if the configuration failed to boot
+     */
+    private MachineSnapshot snapshot(String config) throws Exception {
+        FutureTask<MachineSnapshot> boot = new FutureTask<>(() -> boot(config));
+        Future<MachineSnapshot> snapshot = snapshots.putIfAbsent(new File(config).getAbsolutePath(), boot);
+        if (null == snapshot) {
+            boot.run();
+            snapshot = boot;
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Boot a configuration and take a snapshot
+     *
+     * @param config The configuration file
+     * @return Snapshot
+     * @throws Exception Thrown if the configuration failed to boot
+     */
+    private MachineSnapshot boot(String config) throws Exception {
+        SystemContext context = SystemContext.createIsolatedInstance(config);
+        try {
+            CardController cardController = build(context);
+            Nascom2CPUCard cpu = (Nascom2CPUCard) cardController.getCPU();
+            Automation automation = new Automation(cpu, cpu);
+            try {
+                automation.runFor(bootCycles).get(timeoutSeconds, TimeUnit.SECONDS);
+                return new MachineSnapshot(cardController);
+            } finally {
+                automation.terminate();
+            }
+        } finally {
+            SystemContext.releaseIsolatedInstance();
+        }
+    }
+
+    /**
+     * Build a machine in an isolated context
+     *
+     * @param context The context
+     * @return The machine
+     */
+    private static CardController build(SystemContext context) {
+        CardController cardController = new CardController();
+        context.setCardController(cardController);
+        cardController.insertCards();
+        if (!(cardController.getCPU() instanceof Nascom2CPUCard)) {
+            throw new RuntimeException("Regression tests need a Nascom 2 CPU card");
+        }
+        return cardController;
+    }
+
+    /**
+     * Run one test on its own machine
+     *
+     * @param test The test
+     * @return Result
+     */
+    private TestResult runTest(TestCase test) {
+        List<String> expected;
+        MachineSnapshot snapshot;
+        try {
+            expected = new ArrayList<>();
+            for (String line : Files.readAllLines(test.expected.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    expected.add(line.strip());
+                }
+            }
+            if (expected.isEmpty()) {
+                return TestResult.fail(test, "nothing expected");
+            }
+            snapshot = snapshot(test.config);
+        } catch (Exception e) {
+            return TestResult.fail(test, "unable to boot <" + test.config + ">, " + e.getMessage());
+        }
+        //
+        SystemContext context = SystemContext.createIsolatedInstance(test.config);
+        Automation automation = null;
+        try {
+            if (null != test.disk) {
+                mountDisk(context, test.disk);
+            }
+            CardController cardController = build(context);
+            Nascom2CPUCard cpu = (Nascom2CPUCard) cardController.getCPU();
+            snapshot.restore(cardController);
+            if (null != test.program) {
+                cardController.loadMemory(new FileHandler().readHexDumpFile(test.program.getPath()));
+            }
+            if (null != test.keys) {
+                cpu.getKeyboardInjector().type(Files.readString(test.keys.toPath(), StandardCharsets.UTF_8));
+            }
+            automation = new Automation(cpu, cpu);
+            long start = System.nanoTime();
+            Automation.StopReason stopReason;
+            try {
+                stopReason = automation.runUntilText(expected.get(expected.size() - 1), cycles).get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                cpu.stop();
+                return TestResult.fail(test, "timed out after " + timeoutSeconds + " seconds");
+            }
+            long nanos = System.nanoTime() - start;
+            long tStates = cpu.getElapsedTStates();
+            for (String line : expected) {
+                if (!automation.screenContains(line)) {
+                    return TestResult.fail(test, "stopped on " + stopReason + ", screen does not show <" + line + ">");
+                }
+            }
+            return TestResult.pass(test, tStates, nanos);
+        } catch (Exception e) {
+            return TestResult.fail(test, e.getMessage());
+        } finally {
+            if (null != automation) {
+                automation.terminate();
+            }
+            SystemContext.releaseIsolatedInstance();
+        }
+    }
+
+    /**
+     * Replace drive 0 of the floppy controller with a test disk. The geometry is that of a standard NAS-DOS disk
+     * (16 x 256 byte sectors, 2 sides), the track count being taken from the file size. The disk is an overlay so
+     * tests never change the file.
+     *
+     * @param context The test's own context
+     * @param disk    The disk image
+     */
+    private static void mountDisk(SystemContext context, File disk) {
+        for (CardData cardData : context.getAllCards()) {
+            Map<String, String> properties = cardData.getProperties();
+            if ((null != properties) && cardData.getClazz().endsWith(".NascomFloppyController")) {
+                properties.remove("ANADisk0");
+                properties.put("Dump0", disk.getPath());
+                properties.put("Dump0_Tracks", Long.toString(disk.length() / (2 * 16 * 256)));
+                properties.put("Dump0_Sectors", "16");
+                properties.put("Dump0_Sides", "2");
+                properties.put("Dump0_Size", "256");
+                properties.put("Dump0_Overlay", "true");
+                return;
+            }
+        }
+        throw new RuntimeException("No floppy controller to mount <" + disk.getName() + "> on");
+    }
+
+    /**
+     * The files making up a test
+     */
+    private static class TestCase {
+        private final String name;
+        private final File expected;
+        private final File program;
+        private final File disk;
+        private final File keys;
+        private final String config;
+
+        private TestCase(String name, File expected, File program, File disk, File keys, String config) {
+            this.name = name;
+            this.expected = expected;
+            this.program = program;
+            this.disk = disk;
+            this.keys = keys;
+            this.config = config;
+        }
+    }
+
+    /**
+     * The outcome of a test
+     */
+    private static class TestResult {
+        private final String name;
+        private final boolean passed;
+        private final String message;
+
+        private TestResult(String name, boolean passed, String message) {
+            this.name = name;
+            this.passed = passed;
+            this.message = message;
+        }
+
+        private static TestResult pass(TestCase test, long tStates, long nanos) {
+            double mhz = (nanos > 0) ? (tStates * 1000.0) / nanos : 0.0;
+            return new TestResult(test.name, true, String.format("%.2f MHz emulated (%d T states in %d ms)", mhz, tStates, nanos / 1_000_000));
+        }
+
+        private static TestResult fail(TestCase test, String message) {
+            return new TestResult(test.name, false, message);
+        }
+
+        @Override
+        public String toString() {
+            return (passed ? "PASS " : "FAIL ") + name + " : " + message;
+        }
+    }
+}
@@ -38,18 +38,23 @@ import java.util.List;
 public class SystemContext {
 
     private static final Logger logger = LogManager.getLogger(SystemContext.class);
+    private static final InheritableThreadLocal<SystemContext> isolatedInstance = new InheritableThreadLocal<>();
     private static SystemContext instance;
     private final ProcessEmulatorInfoFile emulatorInfo;
+    private final String emulatorInfoFile;
     private PrimaryDisplay primaryDisplay;
     private CardController cardController;
 
     /**
      * Standard constructor. Only one copy needed per VM so obtain via reference via createInstance(). Any failure here will cause a system exit().
+     *
+     * @param emulatorInfoFile The configuration file to read
      */
-    private SystemContext() {
+    private SystemContext(String emulatorInfoFile) {
+        this.emulatorInfoFile = emulatorInfoFile;
         try {
             // system settings
-            emulatorInfo = new ProcessEmulatorInfoFile();
+            emulatorInfo = ProcessEmulatorInfoFile.load(emulatorInfoFile);
         } catch (Exception e) {
             String msg = "System failed to start in SystemContext : " + e.getMessage();
             logFatalEvent(msg);
@@ -59,16 +64,82 @@ public class SystemContext {
 
     /**
      * Obtain a references to a single instance of the class required throughout the whole application. If first reference, create the instance.
+     * A thread (and any threads it starts) bound to an isolated instance receives that instance instead.
+     *
+     * @return Instance of a class
+     */
+    public static SystemContext createInstance() {
+        SystemContext context = isolatedInstance.get();
+        return (null == context) ? createSharedInstance(ProcessEmulatorInfoFile.EMULATOR_INFO_FILE, false) : context;
+    }
+
+    /**
+     * Obtain a references to a single instance of the class, created from a specific configuration file. Must be the
+     * first reference if the file is not the default.
+     *
+     * @param emulatorInfoFile The configuration file to read
+     * @return Instance of a class
+     */
+    public static SystemContext createInstance(String emulatorInfoFile) {
+        SystemContext context = isolatedInstance.get();
+        if (null == context) {
+            return createSharedInstance(emulatorInfoFile, true);
+        }
+        checkConfiguration(context, emulatorInfoFile);
+        return context;
+    }
+
+    /**
+     * Create a private instance of the class and bind it to the calling thread. This allows several emulated machines
+     * to run side by side in one VM, each built by its own thread. Threads started by the bound thread inherit the
+     * instance. The configuration file is only parsed again if it has changed.
      *
+     * @param emulatorInfoFile The configuration file to read
      * @return Instance of a class
      */
-    public static synchronized SystemContext createInstance() {
+    public static SystemContext createIsolatedInstance(String emulatorInfoFile) {
+        SystemContext context = new SystemContext(emulatorInfoFile);
+        isolatedInstance.set(context);
+        return context;
+    }
+
+    /**
+     * Unbind any isolated instance from the calling thread
+     */
+    public static void releaseIsolatedInstance() {
+        isolatedInstance.remove();
+    }
+
+    /**
+     * Obtain the VM wide instance, creating it if needed
+     *
+     * @param emulatorInfoFile The configuration file to read
+     * @param check            True if the instance must have been created from the file
+     * @return Instance of a class
+     */
+    private static synchronized SystemContext createSharedInstance(String emulatorInfoFile, boolean check) {
         if (null == instance) {
-            instance = new SystemContext();
+            instance = new SystemContext(emulatorInfoFile);
+        } else if (check) {
+            checkConfiguration(instance, emulatorInfoFile);
         }
         return instance;
     }
 
+    /**
+     * Make sure an instance was created from a configuration file
+     *
+     * @param context          The instance
+     * @param emulatorInfoFile The configuration file expected
+     */
+    private static void checkConfiguration(SystemContext context, String emulatorInfoFile) {
+        if (!context.emulatorInfoFile.equals(emulatorInfoFile)) {
+            String msg = "System already configured from <" + context.emulatorInfoFile + ">, unable to use <" + emulatorInfoFile + ">";
+            context.logErrorEvent(msg);
+            throw new RuntimeException(msg);
+        }
+    }
+
     /**
      * Log a debug event
      *
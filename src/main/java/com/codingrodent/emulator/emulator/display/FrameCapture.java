@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator.display;
+
+import com.codingrodent.emulator.cards.IDisplayCard;
+
+import javax.imageio.ImageIO;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Frame capture support for display cards - content hashing and writing frames as raw pixel data or PNG. None of this
+ * needs a GUI.
+ */
+public class FrameCapture {
+
+    private final static long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private final static long FNV_PRIME = 0x100000001B3L;
+    private final IDisplayCard display;
+    private int[] pixels = new int[0];
+    private ByteBuffer rawBuffer = ByteBuffer.allocate(0);
+
+    /**
+     * Capture frames from a display
+     *
+     * @param display The display card
+     */
+    public FrameCapture(IDisplayCard display) {
+        this.display = display;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of pixel data. Each pixel is folded in as a whole word, the alpha byte is ignored.
+     *
+     * @param pixels Pixel data
+     * @param length Number of pixels to hash
+     * @return Hash value
+     */
+    public static long hash(int[] pixels, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (pixels[i] & 0x00FFFFFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Take a copy of the current frame. The returned array is reused by the next capture.
+     *
+     * @return Pixel data, width * height ints in row order
+     */
+    public int[] capture() {
+        int size = display.getFrameWidth() * display.getFrameHeight();
+        if (pixels.length != size) {
+            pixels = new int[size];
+        }
+        display.getFrame(pixels);
+        return pixels;
+    }
+
+    /**
+     * Hash the current frame
+     *
+     * @return Hash value
+     */
+    public long hash() {
+        int[] frame = capture();
+        return hash(frame, frame.length);
+    }
+
+    /**
+     * Write the current frame as raw pixel data, one big endian int (xxRRGGBB) per pixel in row order
+     *
+     * @param file File to write
+     * @throws IOException Thrown on write failure
+     */
+    public void writeRaw(File file) throws IOException {
+        int[] frame = capture();
+        if (rawBuffer.capacity() != frame.length * 4) {
+            rawBuffer = ByteBuffer.allocate(frame.length * 4);
+        }
+        rawBuffer.clear();
+        rawBuffer.asIntBuffer().put(frame);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(rawBuffer.array());
+        }
+    }
+
+    /**
+     * Write the current frame as a PNG image
+     *
+     * @param file File to write
+     * @throws IOException Thrown on write failure
+     */
+    public void writePNG(File file) throws IOException {
+        int[] frame = capture();
+        BufferedImage image = new BufferedImage(display.getFrameWidth(), display.getFrameHeight(), BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, image.getWidth(), image.getHeight(), frame, 0, image.getWidth());
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+}
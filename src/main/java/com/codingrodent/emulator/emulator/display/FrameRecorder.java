@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator.display;
+
+import com.codingrodent.emulator.cards.IDisplayCard;
+import com.codingrodent.emulator.emulator.SystemContext;
+
+import java.io.*;
+
+/**
+ * Stream the frames of a display to a numbered sequence of files every N emulated frames
+ */
+public class FrameRecorder implements IFrameListener {
+
+    public enum Format {RAW, PNG}
+
+    private final FrameCapture frameCapture;
+    private final File directory;
+    private final String prefix;
+    private final int interval;
+    private final Format format;
+    private boolean recording = true;
+    private int framesWritten;
+
+    /**
+     * Create a recorder. Add it to the frame scheduler to start recording.
+     *
+     * @param display   The display card to record
+     * @param directory Directory to write the frames to
+     * @param prefix    File name prefix
+     * @param interval  Record one frame in every interval emulated frames
+     * @param format    Raw pixel data or PNG
+     */
+    public FrameRecorder(IDisplayCard display, File directory, String prefix, int interval, Format format) {
+        if (interval <= 0) {
+            throw new RuntimeException("Frame interval must be greater than zero, <" + interval + ">");
+        }
+        this.frameCapture = new FrameCapture(display);
+        this.directory = directory;
+        this.prefix = prefix;
+        this.interval = interval;
+        this.format = format;
+    }
+
+    /**
+     * Called on the CPU thread at the end of each emulated frame
+     *
+     * @param frame Emulated frame number, starting at 1
+     */
+    @Override
+    public void frameEnd(long frame) {
+        if (recording && (0 == frame % interval)) {
+            String extension = (Format.PNG == format) ? ".png" : ".raw";
+            File file = new File(directory, prefix + String.format("%06d", frame) + extension);
+            try {
+                if (Format.PNG == format) {
+                    frameCapture.writePNG(file);
+                } else {
+                    frameCapture.writeRaw(file);
+                }
+                framesWritten++;
+            } catch (IOException e) {
+                SystemContext.createInstance().logErrorEvent("Frame recording stopped, unable to write <" + file + ">, " + e.getMessage());
+                recording = false;
+            }
+        }
+    }
+
+    /**
+     * Number of frames written to disk
+     *
+     * @return Frame count
+     */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+}
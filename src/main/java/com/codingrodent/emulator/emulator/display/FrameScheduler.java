@@ -0,0 +1,191 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.emulator.display;
+
+import com.codingrodent.emulator.cards.IDisplayCard;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Single frame clock for all display capable cards. Frames are requested by the CPU thread at intervals of emulated
+ * time, so nothing is painted while the processor is stopped. A frame is dropped if the previous one has not yet been
+ * painted or if the host is being asked to paint noticeably faster than the configured frame rate (e.g. when running at
+ * maximum speed). Frame listeners are told about every emulated frame, painted or not, on the CPU thread.
+ */
+public class FrameScheduler {
+
+    public final static int DEFAULT_FRAME_RATE = 50;
+    private final List<IDisplayCard> displays = new CopyOnWriteArrayList<>();
+    private final List<IFrameListener> frameListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private final Runnable paintFrame = this::paintFrame;
+    private long frameNanos;
+    private long minimumFrameNanos;
+    private long lastFrame;
+    private final AtomicLong framesPainted = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private volatile long frameCount;
+    private boolean painting = true;
+
+    /**
+     * Standard constructor, runs at the default frame rate
+     */
+    public FrameScheduler() {
+        setFrameRate(DEFAULT_FRAME_RATE);
+    }
+
+    /**
+     * Add a display to be painted on each frame
+     *
+     * @param display The display card
+     */
+    public void register(IDisplayCard display) {
+        displays.add(display);
+    }
+
+    /**
+     * Get all the registered displays
+     *
+     * @return Display cards in bus order
+     */
+    public List<IDisplayCard> getDisplays() {
+        return displays;
+    }
+
+    /**
+     * Add a listener to be called at the end of every emulated frame
+     *
+     * @param frameListener The listener
+     */
+    public void addFrameListener(IFrameListener frameListener) {
+        frameListeners.add(frameListener);
+    }
+
+    /**
+     * Remove a frame listener
+     *
+     * @param frameListener The listener
+     */
+    public void removeFrameListener(IFrameListener frameListener) {
+        frameListeners.remove(frameListener);
+    }
+
+    /**
+     * Enable or disable painting to the screen, e.g. when running headless. Frame listeners are still called.
+     *
+     * @param painting True to paint
+     */
+    public void setPainting(boolean painting) {
+        this.painting = painting;
+    }
+
+    /**
+     * Set the number of frames per second
+     *
+     * @param frameRate Frames per second
+     */
+    public void setFrameRate(int frameRate) {
+        if (frameRate <= 0) {
+            throw new RuntimeException("Frame rate must be greater than zero, <" + frameRate + ">");
+        }
+        frameNanos = 1_000_000_000L / frameRate;
+        // allow for timing jitter between emulated and host time
+        minimumFrameNanos = frameNanos - (frameNanos >> 2);
+    }
+
+    /**
+     * Get the number of frames per second
+     *
+     * @return Frames per second
+     */
+    public int getFrameRate() {
+        return (int) (1_000_000_000L / frameNanos);
+    }
+
+    /**
+     * Signal the end of an emulated frame. Called from the CPU thread, never blocks.
+     */
+    public void frame() {
+        frameCount++;
+        for (IFrameListener frameListener : frameListeners) {
+            frameListener.frameEnd(frameCount);
+        }
+        if (!painting) {
+            return;
+        }
+        long now = System.nanoTime();
+        if ((now - lastFrame < minimumFrameNanos) || !framePending.compareAndSet(false, true)) {
+            framesSkipped.incrementAndGet();
+            return;
+        }
+        lastFrame = now;
+        SwingUtilities.invokeLater(paintFrame);
+    }
+
+    /**
+     * Paint all registered displays
+     */
+    private void paintFrame() {
+        try {
+            for (IDisplayCard display : displays) {
+                display.paintFrame();
+            }
+            framesPainted.incrementAndGet();
+        } finally {
+            framePending.set(false);
+        }
+    }
+
+    /**
+     * Number of emulated frames since the machine started
+     *
+     * @return Frame count
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Number of frames painted
+     *
+     * @return Frame count
+     */
+    public long getFramesPainted() {
+        return framesPainted.get();
+    }
+
+    /**
+     * Number of frames dropped as either the host was too slow or frames were requested too quickly
+     *
+     * @return Frame count
+     */
+    public long getFramesSkipped() {
+        return framesSkipped.get();
+    }
+}
@@ -23,19 +23,14 @@
  *
  */
 
-package com.codingrodent.emulator.utilities;
+package com.codingrodent.emulator.emulator.display;
 
-public interface IBTreeData {
-    /**
-     * Get the node value for tree sorting
-     *
-     * @return Value
-     */
-    int getValue();
+public interface IFrameListener {
 
     /**
-     * Destroy and data in the node
+     * Called on the CPU thread at the end of each emulated frame
+     *
+     * @param frame Emulated frame number, starting at 1
      */
-    void erase();
-
+    void frameEnd(long frame);
 }
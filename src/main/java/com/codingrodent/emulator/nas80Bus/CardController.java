@@ -27,11 +27,11 @@ package com.codingrodent.emulator.nas80Bus;
 
 import com.codingrodent.emulator.cards.*;
 import com.codingrodent.emulator.emulator.*;
+import com.codingrodent.emulator.emulator.display.FrameScheduler;
 import com.codingrodent.emulator.utilities.*;
 
 import javax.swing.*;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class CardController {
@@ -43,7 +43,10 @@ public class CardController {
     private final Object[] cardSlots = new Object[MAXIMUM_CARDS];
     private final SystemContext systemContext;
     private final NasBus nasBus;
+    private final FrameScheduler frameScheduler;
+    private final MemoryExporter memoryExporter = new MemoryExporter();
     private int cardsLoaded;
+    private boolean[] romMap;
 
     /**
      * Standard constructor for the card frame
@@ -52,6 +55,8 @@ public class CardController {
         systemContext = SystemContext.createInstance();
         //
         nasBus = new NasBus();
+        frameScheduler = new FrameScheduler();
+        frameScheduler.setPainting(null != systemContext.getPrimaryDisplay());
         //
         /* set all the card slots and memory slots to empty */
         for (int i = 0; i < MAXIMUM_CARDS; i++) {
@@ -64,6 +69,7 @@ public class CardController {
      */
     public void insertCards() {
         cardsLoaded = 0;
+        romMap = null;
         List<CardData> cards = systemContext.getAllCards();
         if (cards.isEmpty()) {
             String msg = "No cards defined in emulatorInfo.json";
@@ -86,6 +92,9 @@ public class CardController {
                         systemContext.logErrorEvent(msg);
                         throw new RuntimeException(msg);
                     }
+                    if (genericCard instanceof IDisplayCard) {
+                        frameScheduler.register((IDisplayCard) genericCard);
+                    }
                     insertCard(genericCard, slot++);
                     cardsLoaded++;
                 } catch (Exception e) {
@@ -118,18 +127,72 @@ public class CardController {
     public void loadProgram(String fileName) {
         try {
             FileHandler fileHandler = new FileHandler();
-            MemoryChunk temp = fileHandler.readHexDumpFile(fileName);
-            short[] tempMemory = temp.getMemoryChunk();
-            int base = temp.getBase();
-            int length = temp.getSize();
-            for (int address = 0; address < length; address++) {
-                nasBus.memoryWriteAll(base + address, tempMemory[address]);
-            }
+            loadMemory(fileHandler.readHexDumpFile(fileName));
         } catch (IOException ex) {
             ex.printStackTrace();
         }
     }
 
+    /**
+     * Write a block of memory into the emulator, to every card that will take it
+     *
+     * @param memory The memory to load
+     */
+    public void loadMemory(MemoryChunk memory) {
+        nasBus.memoryWriteAllBlock(memory.getBase(), memory.getMemoryChunk(), 0, memory.getSize());
+    }
+
+    /**
+     * Read the whole 64K as seen by the CPU
+     *
+     * @return Memory image, one byte per entry
+     */
+    public short[] readMemory() {
+        short[] memory = new short[65536];
+        ((INasBus) cardSlots[0]).memoryReadBlock(0, memory, 0, memory.length);
+        return memory;
+    }
+
+    /**
+     * Write a 64K memory image back into every card that will take it. Addresses any card holds ROM at are left alone
+     * so the image can not overwrite a ROM through a RAM card underneath it.
+     *
+     * @param memory Memory image, one byte per entry
+     */
+    public void restoreMemory(short[] memory) {
+        boolean[] rom = getROMMap();
+        int address = 0;
+        while (address < memory.length) {
+            if (rom[address]) {
+                address++;
+            } else {
+                int start = address;
+                while ((address < memory.length) && !rom[address]) {
+                    address++;
+                }
+                nasBus.memoryWriteAllBlock(start, memory, start, address - start);
+            }
+        }
+    }
+
+    /**
+     * Get the addresses any card holds ROM at. Built on first use as the card set does not change once inserted.
+     *
+     * @return True for each ROM address
+     */
+    private synchronized boolean[] getROMMap() {
+        if (null == romMap) {
+            boolean[] rom = new boolean[65536];
+            for (int address = 0; address < rom.length; address++) {
+                for (int slot = 0; (slot < cardsLoaded) && !rom[address]; slot++) {
+                    rom[address] = ((ICard) cardSlots[slot]).isROM(address);
+                }
+            }
+            romMap = rom;
+        }
+        return romMap;
+    }
+
     /**
      * Dump the whole 64K as a single image
      *
@@ -137,31 +200,37 @@ public class CardController {
      * @param frame    JFrame Frame in which to display error dialog
      */
     public void dumpMemory(String fileName, JFrame frame) {
-        INasBus cpuCard = (INasBus) cardSlots[0];
-        int checksum;
         try {
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8));
-            for (int address = 0; address < 65536; address = address + 8) {
-                checksum = (address >> 8) + (address & 0x00FF);
-                writer.write(Utilities.getWord(address) + " ");
-                for (int column = 0; column < 8; column++) {
-                    int data = cpuCard.memoryRead(address + column);
-                    checksum = checksum + data;
-                    writer.write(Utilities.getByte(data) + " ");
-                }
-                writer.write(Utilities.getByte(checksum & 0x00FF));
-                writer.write(0);
-                writer.write(0);
-                writer.write(13);
-            }
-            writer.write('.');
-            writer.close();
+            dumpMemory(fileName);
         } catch (Exception e) {
             System.out.println("Unable to write file " + e);
             JOptionPane.showMessageDialog(frame, "Unable to write the file:\n" + fileName, "Write File", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    /**
+     * Dump the whole 64K as a single image, in a format chosen by the file extension (see MemoryExporter.Format)
+     *
+     * @param fileName String File name to dump to
+     * @throws IOException Thrown on write failure
+     */
+    public void dumpMemory(String fileName) throws IOException {
+        dumpMemory(fileName, MemoryExporter.Format.fromFileName(fileName));
+    }
+
+    /**
+     * Dump memory as seen by the CPU
+     *
+     * @param fileName String File name to dump to
+     * @param format   Output format
+     * @param ranges   Address ranges to dump, all 64K if none given
+     * @throws IOException Thrown on write failure
+     */
+    public synchronized void dumpMemory(String fileName, MemoryExporter.Format format, MemoryExporter.Range... ranges) throws IOException {
+        INasBus cpuCard = (INasBus) cardSlots[0];
+        memoryExporter.export(cpuCard::memoryRead, format, fileName, ranges);
+    }
+
     /**
      * Attach the card set to the GUI
      */
@@ -188,6 +257,15 @@ public class CardController {
         return (ICPUControl) cardSlots[0];
     }
 
+    /**
+     * Get the frame clock driving all display cards
+     *
+     * @return The frame scheduler
+     */
+    public FrameScheduler getFrameScheduler() {
+        return frameScheduler;
+    }
+
     /**
      * Discover the number of cards loaded into the system
      *
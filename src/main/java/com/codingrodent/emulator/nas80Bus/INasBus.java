@@ -56,6 +56,37 @@ public interface INasBus {
      */
     int memoryRead(int address);
 
+    /**
+     * Write a block of data to the card's memory, as if by memoryWrite(address + i, data[offset + i], false) for each
+     * byte. Block writes are delivered to every card, so a card only needs to update its own memory and need not pass
+     * the data on to the bus. Cards holding memory in arrays should override this to copy whole ranges.
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    default void memoryWriteBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            memoryWrite(address + i, data[offset + i], false);
+        }
+    }
+
+    /**
+     * Read a block of data from the memory bus, as if by memoryRead(address + i) for each byte. Cards holding memory in
+     * arrays should override this to copy whole ranges.
+     *
+     * @param address First address to read from
+     * @param data    Array to read into
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to read
+     */
+    default void memoryReadBlock(int address, short[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            data[offset + i] = (short) memoryRead(address + i);
+        }
+    }
+
     /**
      * Write data to the io bus
      *
@@ -330,4 +330,18 @@ class NasBus implements INasBus {
         return false;
     }
 
-}
\ No newline at end of file
+    /**
+     * Write a block of data to the memory bus, to every card that will take it
+     *
+     * @param address First address to write to
+     * @param data    Data to be written
+     * @param offset  Offset of the first byte in data
+     * @param length  Number of bytes to write
+     */
+    void memoryWriteAllBlock(int address, short[] data, int offset, int length) {
+        for (int slot = 0; slot < cardsLoaded; slot++) {
+            cardPool[slot].memoryWriteBlock(address, data, offset, length);
+        }
+    }
+
+}
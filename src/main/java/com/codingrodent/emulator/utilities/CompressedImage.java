@@ -0,0 +1,301 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.*;
+
+/**
+ * Disk image file holding each track compressed on its own, with an index of every track's sectors at the front. Only
+ * the index is read when an image is opened, each track being read and expanded the first time it is used.
+ * <p>
+ * Layout, all values big endian - "NASZ", version, index length and track count, then an index entry per track: side,
+ * track, sector count, position of the track data after the index, compressed length, and the number and length of each
+ * sector. The track data follows the index, the sectors of each track in index order and compressed together.
+ */
+public final class CompressedImage implements Closeable {
+
+    public final static String EXTENSION = ".ndz";
+    private final static int MAGIC = 0x4E41535A; // NASZ
+    private final static int VERSION = 1;
+    private final static int HEADER_SIZE = 16;
+    private final static int MAX_TRACKS = 256;
+    private final static int MIN_ENTRY_SIZE = 12;
+    private final static int SECTOR_ENTRY_SIZE = 3;
+    // far more than any real track, which bounds what a damaged index can make us allocate
+    private final static int MAX_TRACK_LENGTH = 0x10000;
+    // deflate can grow data that does not compress by a little
+    private final static int MAX_COMPRESSED_LENGTH = MAX_TRACK_LENGTH + MAX_TRACK_LENGTH / 8;
+    private final FileChannel channel;
+    private final Entry[][] index = new Entry[2][MAX_TRACKS];
+
+    /**
+     * Open an image and read its index
+     *
+     * @param file Image file
+     * @throws IOException Thrown if the file can't be read or is not a compressed image
+     */
+    public CompressedImage(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            readIndex();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check if a file is a compressed image by its signature
+     *
+     * @param file File to check
+     * @return True if the file starts as a compressed image does
+     */
+    public static boolean isCompressedImage(File file) {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return MAGIC == input.readInt();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Read the header and index
+     *
+     * @throws IOException Thrown if the file can't be read or is not a compressed image
+     */
+    private void readIndex() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if ((readFully(header, 0) < HEADER_SIZE) || (MAGIC != header.getInt(0))) {
+            throw new IOException("Not a compressed disk image");
+        }
+        if (VERSION != header.getInt(4)) {
+            throw new IOException("Unsupported compressed disk image version <" + header.getInt(4) + ">");
+        }
+        int indexLength = header.getInt(8);
+        int tracks = header.getInt(12);
+        if ((indexLength < 0) || (tracks < 0) || (tracks > 2 * MAX_TRACKS) || (indexLength < tracks * MIN_ENTRY_SIZE)) {
+            throw new IOException("Compressed disk image index is corrupt");
+        }
+        if (indexLength > channel.size() - HEADER_SIZE) {
+            throw new IOException("Compressed disk image index is truncated");
+        }
+        ByteBuffer entries = ByteBuffer.allocate(indexLength);
+        if (readFully(entries, HEADER_SIZE) < indexLength) {
+            throw new IOException("Compressed disk image index is truncated");
+        }
+        entries.flip();
+        long dataStart = HEADER_SIZE + (long) indexLength;
+        try {
+            for (int i = 0; i < tracks; i++) {
+                int side = entries.get() & 0xFF;
+                int track = entries.get() & 0xFF;
+                int sectors = entries.getShort() & 0xFFFF;
+                if ((side > 1) || (sectors > DiskTrack.MAX_SECTORS)) {
+                    throw new IOException("Compressed disk image index is corrupt");
+                }
+                Entry entry = new Entry(sectors);
+                entry.position = dataStart + (entries.getInt() & 0xFFFFFFFFL);
+                entry.compressedLength = entries.getInt();
+                for (int sector = 0; sector < sectors; sector++) {
+                    entry.sectors[sector] = entries.get() & 0xFF;
+                    entry.lengths[sector] = entries.getShort() & 0xFFFF;
+                    entry.length = entry.length + entry.lengths[sector];
+                }
+                if ((entry.compressedLength < 0) || (entry.compressedLength > MAX_COMPRESSED_LENGTH) || (entry.length > MAX_TRACK_LENGTH)) {
+                    throw new IOException("Compressed disk image index is corrupt, track <" + track + "> side <" + side + ">");
+                }
+                index[side][track] = entry;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Compressed disk image index is corrupt");
+        }
+    }
+
+    /**
+     * Check if the image holds a track
+     *
+     * @param track Track number
+     * @param side  Side number
+     * @return True if the track has any sectors
+     */
+    public boolean hasTrack(int track, int side) {
+        return (track >= 0) && (track < MAX_TRACKS) && (side >= 0) && (side <= 1) && (null != index[side][track]);
+    }
+
+    /**
+     * Read and expand a track
+     *
+     * @param track Track number
+     * @param side  Side number
+     * @return The track, or null if the image does not hold it
+     * @throws IOException Thrown if the track can't be read or expanded
+     */
+    public DiskTrack readTrack(int track, int side) throws IOException {
+        if (!hasTrack(track, side)) {
+            return null;
+        }
+        Entry entry = index[side][track];
+        ByteBuffer compressed = ByteBuffer.allocate(entry.compressedLength);
+        if (readFully(compressed, entry.position) != entry.compressedLength) {
+            throw new IOException("Compressed disk image is truncated");
+        }
+        byte[] data = new byte[entry.length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int expanded = 0;
+            while ((expanded < data.length) && !inflater.finished()) {
+                int count = inflater.inflate(data, expanded, data.length - expanded);
+                if ((0 == count) && inflater.needsInput()) {
+                    break;
+                }
+                expanded = expanded + count;
+            }
+            if (expanded != data.length) {
+                throw new IOException("Compressed disk image track is short, track <" + track + "> side <" + side + ">");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed disk image track is corrupt, track <" + track + "> side <" + side + ">");
+        } finally {
+            inflater.end();
+        }
+        DiskTrack diskTrack = new DiskTrack();
+        int offset = 0;
+        for (int i = 0; i < entry.sectors.length; i++) {
+            diskTrack.putSector(entry.sectors[i], data, offset, entry.lengths[i]);
+            offset = offset + entry.lengths[i];
+        }
+        return diskTrack;
+    }
+
+    /**
+     * Write a disk out as a compressed image. The whole image is built in memory first, so a disk may be saved over
+     * the image it was opened from.
+     *
+     * @param disk Disk to write
+     * @param file File to write
+     * @throws IOException Thrown if the file can't be written
+     */
+    public static void write(DiskImage disk, File file) throws IOException {
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+        DataOutputStream entries = new DataOutputStream(indexBytes);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] buffer = new byte[4096];
+        int tracks = 0;
+        try {
+            for (int side = 0; side < 2; side++) {
+                for (int track = 0; track < MAX_TRACKS; track++) {
+                    DiskTrack diskTrack = disk.getTrack(track, side);
+                    if ((null == diskTrack) || (0 == diskTrack.getSectorCount())) {
+                        continue;
+                    }
+                    ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+                    entries.writeByte(side);
+                    entries.writeByte(track);
+                    entries.writeShort(diskTrack.getSectorCount());
+                    entries.writeInt(dataBytes.size());
+                    for (int sector = 0; sector < DiskTrack.MAX_SECTORS; sector++) {
+                        byte[] sectorData = diskTrack.getSector(sector);
+                        if (null != sectorData) {
+                            sectors.write(sectorData);
+                        }
+                    }
+                    deflater.reset();
+                    deflater.setInput(sectors.toByteArray());
+                    deflater.finish();
+                    int start = dataBytes.size();
+                    while (!deflater.finished()) {
+                        dataBytes.write(buffer, 0, deflater.deflate(buffer));
+                    }
+                    entries.writeInt(dataBytes.size() - start);
+                    for (int sector = 0; sector < DiskTrack.MAX_SECTORS; sector++) {
+                        if (DiskTrack.ABSENT != diskTrack.getOffset(sector)) {
+                            entries.writeByte(sector);
+                            entries.writeShort(diskTrack.getLength(sector));
+                        }
+                    }
+                    tracks++;
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(indexBytes.size());
+            output.writeInt(tracks);
+            indexBytes.writeTo(output);
+            dataBytes.writeTo(output);
+        }
+    }
+
+    /**
+     * Read from the image until a buffer is full or the file ends
+     *
+     * @param buffer   Buffer to fill
+     * @param position Position in the file to start reading
+     * @return Number of bytes read
+     * @throws IOException Thrown if the file can't be read
+     */
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + total);
+            if (count < 0) {
+                break;
+            }
+            total = total + count;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Index entry for one track
+     */
+    private static class Entry {
+        private final int[] sectors;
+        private final int[] lengths;
+        private long position;
+        private int compressedLength;
+        private int length;
+
+        private Entry(int sectorCount) {
+            sectors = new int[sectorCount];
+            lengths = new int[sectorCount];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Process wide store of immutable disk content, keyed by content hash and checked for full equality. Equal content from
+ * any disk in any emulator is held once, and is dropped once no track refers to it.
+ */
+final class ContentStore {
+
+    private final static Map<Object, WeakReference<Object>> store = new WeakHashMap<>();
+
+    private ContentStore() {
+    }
+
+    /**
+     * Find the shared copy of a value, adding a copy if there is none yet. The shared copy must never be changed.
+     *
+     * @param value  Value to look up, compared through its equals() and hashCode()
+     * @param copier Makes the immutable copy to keep in the store
+     * @param <T>    Type of the value
+     * @return The shared copy
+     */
+    @SuppressWarnings("unchecked")
+    static synchronized <T> T intern(T value, UnaryOperator<T> copier) {
+        WeakReference<Object> reference = store.get(value);
+        Object shared = (null == reference) ? null : reference.get();
+        if (null != shared) {
+            return (T) shared;
+        }
+        T copy = copier.apply(value);
+        store.put(copy, new WeakReference<>(copy));
+        return copy;
+    }
+
+    /**
+     * Copy the remaining content of a buffer into a compact read only buffer
+     *
+     * @param content Content to copy
+     * @return The copy
+     */
+    static ByteBuffer copy(ByteBuffer content) {
+        ByteBuffer copy = ByteBuffer.allocate(content.remaining());
+        copy.put(content.duplicate()).flip();
+        return copy.asReadOnlyBuffer();
+    }
+
+    /**
+     * Count the entries in the store
+     *
+     * @return Number of shared values held
+     */
+    static synchronized int size() {
+        return store.size();
+    }
+}
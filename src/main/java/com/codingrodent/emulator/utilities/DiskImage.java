@@ -26,21 +26,49 @@
 package com.codingrodent.emulator.utilities;
 
 import com.codingrodent.emulator.cards.common.FDC17xx;
+import com.codingrodent.emulator.emulator.SystemContext;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DiskImage {
     private final static int MAX_TRACKS = 256;
-    private final static int MAX_SECTORS = 256;
-    private final BTree[] diskSide0 = new BTree[MAX_TRACKS];
-    private final BTree[] diskSide1 = new BTree[MAX_TRACKS];
+    private final static int MAX_SECTORS = DiskTrack.MAX_SECTORS;
+    private final static ScheduledExecutorService diskWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Disk writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final static Set<DiskImage> writeBackImages = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeBackImages.forEach(DiskImage::flush), "Disk flush"));
+    }
+
+    private final DiskTrack[][] disk = new DiskTrack[2][MAX_TRACKS];
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final SystemContext systemContext;
+    private File imageFile;
+    private FileChannel imageChannel;
+    private CompressedImage compressedImage;
+    private int imageTrackSize;
+    private int imageSides;
+    private boolean overlay;
+    private long flushInterval = 2000;
+    private ScheduledFuture<?> periodicFlush;
+    private volatile DiskLoader pendingLoad;
+    private String pendingName;
 
     /**
      * Create a blank disk image
      */
     public DiskImage() {
+        systemContext = SystemContext.createInstance();
         resetDiskImage();
     }
 
@@ -59,9 +87,8 @@ public class DiskImage {
             reader.dumpDiskToMemory(memory, 2, 0xF, 0x20);
             memory.setBase(0x0000);
             //
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream("dump.nas"), StandardCharsets.UTF_8));
             FileHandler fileHandler = new FileHandler();
-            fileHandler.writeHexDumpFile(memory, writer);
+            fileHandler.writeHexDumpFile(memory, "dump.nas");
         } catch (IOException ex) {
             ex.printStackTrace();
         }
@@ -72,59 +99,422 @@ public class DiskImage {
      * Clear a disk image
      */
     private void resetDiskImage() {
-        for (int track = 0; track < diskSide0.length; track++) {
-            diskSide0[track] = new BTree();
-            diskSide1[track] = new BTree();
+        for (DiskTrack[] side : disk) {
+            Arrays.fill(side, null);
         }
     }
 
     /**
-     * Simulate a disk removal and erase + tidy up any remaining data
+     * Simulate a disk removal and erase + tidy up any remaining data. Any changes not yet written back to an image file
+     * are written first.
      */
-    public void ejectDisk() {
+    public synchronized void ejectDisk() {
+        pendingLoad = null;
+        flush();
+        if (null != periodicFlush) {
+            periodicFlush.cancel(false);
+            periodicFlush = null;
+        }
+        writeBackImages.remove(this);
+        if (null != imageChannel) {
+            try {
+                imageChannel.close();
+            } catch (IOException e) {
+                systemContext.logWarnEvent("Unable to close disk image : " + imageFile + ", " + e.getMessage());
+            }
+            imageChannel = null;
+            imageFile = null;
+        }
+        if (null != compressedImage) {
+            try {
+                compressedImage.close();
+            } catch (IOException e) {
+                systemContext.logWarnEvent("Unable to close disk image, " + e.getMessage());
+            }
+            compressedImage = null;
+        }
         resetDiskImage();
     }
 
     /**
-     * disk reader for files in ANADisk format
+     * Insert a disk without reading it yet. The loader is run when the drive is first selected or a track is first
+     * used, so images that are never used cost nothing.
      *
-     * @param file File handle to the ANADisk file
+     * @param loader Fills this disk image
+     * @param name   Name of the image for messages
      */
-    public void loadANADisk(File file) {
-        byte[] headerBlock = new byte[8];
-        byte[] sectorBlock;
+    public synchronized void deferLoad(DiskLoader loader, String name) {
+        ejectDisk();
+        pendingLoad = loader;
+        pendingName = name;
+    }
+
+    /**
+     * Load a disk inserted by deferLoad if that has not yet happened
+     */
+    public void mount() {
+        if (null != pendingLoad) {
+            loadPending();
+        }
+    }
+
+    /**
+     * Run the loader of a deferred disk. A disk that fails to load is left empty.
+     */
+    private synchronized void loadPending() {
+        DiskLoader loader = pendingLoad;
+        if (null != loader) {
+            pendingLoad = null;
+            try {
+                loader.load(this);
+            } catch (IOException | RuntimeException e) {
+                systemContext.logErrorEvent("Unable to load disk image : " + pendingName + ", " + e.getMessage());
+                resetDiskImage();
+            }
+        }
+    }
+
+    /**
+     * Open a binary dump of a disk in .dmp format side...track...sector, with the sectors used in place rather than
+     * copied. Sectors are numbered from 1. Changed sectors are written back to the file in the background unless the
+     * image is opened as an overlay, in which case the file is never changed. A journal left by an interrupted write is
+     * replayed first.
+     *
+     * @param file       Dump file to open
+     * @param tracks     Tracks to read
+     * @param sectors    Sectors per track
+     * @param sectorSize Size of the sectors
+     * @param sides      Number of sides (0 or 1)
+     * @param overlay    True to keep all changes in memory
+     * @throws IOException Thrown if the file can't be opened
+     */
+    public synchronized void openDumpImage(File file, int tracks, int sectors, int sectorSize, int sides, boolean overlay) throws IOException {
+        ejectDisk();
+        int sideCount = (1 == sides) ? 2 : 1;
+        int trackSize = sectors * sectorSize;
+        long imageSize = (long) tracks * sideCount * trackSize;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            if (!overlay) {
+                systemContext.logWarnEvent("Disk image is read only, changes will not be saved : " + file);
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            overlay = true;
+        }
+        ByteBuffer image;
+        boolean mapped;
+        try {
+            if (!overlay && DiskJournal.recover(DiskJournal.getJournalFile(file), channel)) {
+                systemContext.logWarnEvent("Completed an interrupted write to disk image : " + file);
+            }
+            mapped = channel.size() >= imageSize;
+            if (mapped) {
+                // A private mapping gives each emulator its own copy of any page it changes
+                image = channel.map(FileChannel.MapMode.PRIVATE, 0, imageSize);
+            } else {
+                image = readDumpImage(channel, imageSize);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        layOutTracks(image, tracks, sectors, sectorSize, sideCount, !mapped);
+        this.overlay = overlay;
+        imageFile = file;
+        imageChannel = channel;
+        imageTrackSize = trackSize;
+        imageSides = sideCount;
+        if (!overlay) {
+            writeBackImages.add(this);
+            if (flushInterval > 0) {
+                periodicFlush = diskWriter.scheduleWithFixedDelay(this::backgroundFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Open a compressed image. Only its index is read now, each track being read and expanded when first used. Changes
+     * are kept in memory until the disk is saved.
+     *
+     * @param file Compressed image to open
+     * @throws IOException Thrown if the file can't be opened or is not a compressed image
+     */
+    public synchronized void openCompressedImage(File file) throws IOException {
+        ejectDisk();
+        compressedImage = new CompressedImage(file);
+    }
+
+    /**
+     * Save the disk as a compressed image
+     *
+     * @param file File to write
+     * @throws IOException Thrown if the file can't be written
+     */
+    public void saveCompressedImage(File file) throws IOException {
+        CompressedImage.write(this, file);
+    }
+
+    /**
+     * Save the disk as a binary dump side...track...sector. The layout is taken from track 0 side 0, sectors numbered
+     * from 1, and any sector missing or of a different size is written as 0xFF.
+     *
+     * @param file File to write
+     * @throws IOException Thrown if the file can't be written or the disk has no track 0
+     */
+    public void saveDumpImage(File file) throws IOException {
+        DiskTrack first = getTrack(0, 0);
+        if ((null == first) || (DiskTrack.ABSENT == first.getLength(1))) {
+            throw new IOException("Disk has no sector 1 on track 0 to take the layout from");
+        }
+        int sectorSize = first.getLength(1);
+        int sectors = first.getSectorCount();
+        int tracks = 0;
+        int sideCount = 1;
+        for (int track = 0; track < MAX_TRACKS; track++) {
+            for (int side = 0; side < 2; side++) {
+                DiskTrack diskTrack = getTrack(track, side);
+                if ((null != diskTrack) && (0 != diskTrack.getSectorCount())) {
+                    tracks = track + 1;
+                    sideCount = Math.max(sideCount, side + 1);
+                }
+            }
+        }
+        byte[] blank = new byte[sectorSize];
+        Arrays.fill(blank, (byte) 0xFF);
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            for (int track = 0; track < tracks; track++) {
+                for (int side = 0; side < sideCount; side++) {
+                    for (int sector = 1; sector <= sectors; sector++) {
+                        byte[] sectorData = getSector(track, sector, side);
+                        output.write(((null != sectorData) && (sectorSize == sectorData.length)) ? sectorData : blank);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Set how often changed sectors are written back to image files opened after this call
+     *
+     * @param flushInterval Interval in milliseconds, 0 to only write on demand or when the disk is ejected
+     */
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Read a whole dump image into memory. A short file is padded with 0xFF.
+     *
+     * @param channel   File to read
+     * @param imageSize Size of the image
+     * @return The image
+     * @throws IOException Thrown if the file can't be read
+     */
+    private static ByteBuffer readDumpImage(FileChannel channel, long imageSize) throws IOException {
+        ByteBuffer image = ByteBuffer.allocate((int) imageSize);
+        Arrays.fill(image.array(), (byte) 0xFF);
+        readFully(channel, image, 0);
+        return image.clear();
+    }
+
+    /**
+     * Lay tracks over the slices of an image holding side...track...sector data
+     *
+     * @param image      Image data
+     * @param tracks     Tracks in the image
+     * @param sectors    Sectors per track, numbered from 1
+     * @param sectorSize Size of the sectors
+     * @param sideCount  Sides in the image, 1 or 2
+     * @param share      True to move the tracks into the shared content store, leaving the image free to be collected
+     */
+    private void layOutTracks(ByteBuffer image, int tracks, int sectors, int sectorSize, int sideCount, boolean share) {
+        int trackSize = sectors * sectorSize;
+        for (int track = 0; track < tracks; track++) {
+            for (int side = 0; side < sideCount; side++) {
+                int offset = (track * sideCount + side) * trackSize;
+                disk[side][track] = new DiskTrack(image.slice(offset, trackSize), 1, sectors, sectorSize);
+                if (share) {
+                    disk[side][track].share();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read from a file until a buffer is full or the file ends
+     *
+     * @param channel  File to read
+     * @param buffer   Buffer to fill from its position onwards
+     * @param position Position in the file to start reading
+     * @return Number of bytes read
+     * @throws IOException Thrown if the file can't be read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + total);
+            if (count < 0) {
+                break;
+            }
+            total = total + count;
+        }
+        return total;
+    }
+
+    /**
+     * Check if the disk is backed by an image file that changes are written back to
+     *
+     * @return True if changes are saved automatically
+     */
+    public boolean isWriteBack() {
+        return (null != imageChannel) && !overlay;
+    }
+
+    /**
+     * Ask for changed sectors to be written back to the image file now rather than at the next interval. The write
+     * happens on a background thread so the caller is never held up.
+     */
+    public void scheduleFlush() {
+        if (isWriteBack() && flushPending.compareAndSet(false, true)) {
+            diskWriter.execute(() -> {
+                flushPending.set(false);
+                backgroundFlush();
+            });
+        }
+    }
+
+    /**
+     * Flush on the disk writer thread. Any failure is logged here, as an exception escaping a periodic task would
+     * silently stop all later writes.
+     */
+    private void backgroundFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            systemContext.logErrorEvent("Unable to write to disk image : " + imageFile + ", " + e.getMessage());
+        }
+    }
 
+    /**
+     * Write all changed sectors back to the image file, logging any failure. The sectors are written again next time.
+     */
+    public synchronized void flush() {
         try {
-            BufferedInputStream fis = new BufferedInputStream(new FileInputStream(file));
-            while (fis.read(headerBlock) != -1) {
-                int cylinder = headerBlock[0];
-                int side = headerBlock[1];
-                int sector = headerBlock[4];
-                int count = headerBlock[6] + headerBlock[7] << 8;
-
-                /*
-                 * int lengthCode = headerBlock[5]; System.out.print("Cylinder = " + util.getByte(cylinder));
-                 * System.out.print(" Side = " + util.getByte(side)); System.out.print(" Sector = " +
-                 * util.getByte(sector)); System.out.print(" LengthCode=" + util.getByte(lengthCode));
-                 * System.out.println(" Count = " + util.getWord(count));
-                 */
-                if (count < 0) {
-                    count = 128;
+            save();
+        } catch (IOException e) {
+            systemContext.logErrorEvent("Unable to write to disk image : " + imageFile + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write all changed sectors back to the image file. Sectors changed several times since the last write are only
+     * written once. The batch goes through a journal so the image is never left half written.
+     *
+     * @throws IOException Thrown if the image can't be written, the sectors are left marked as changed
+     */
+    public synchronized void save() throws IOException {
+        if (!isWriteBack()) {
+            return;
+        }
+        DiskJournal journal = new DiskJournal();
+        List<Integer> written = new ArrayList<>();
+        for (int side = 0; side < imageSides; side++) {
+            for (int track = 0; track < MAX_TRACKS; track++) {
+                DiskTrack diskTrack = disk[side][track];
+                if ((null != diskTrack) && diskTrack.isDirty()) {
+                    collectTrack(diskTrack, track, side, journal, written);
                 }
-                sectorBlock = new byte[count];
-                if (-1 != fis.read(sectorBlock, 0, count)) {
-                    putSector(cylinder, sector, side, sectorBlock);
+            }
+        }
+        if (journal.isEmpty()) {
+            return;
+        }
+        try {
+            journal.commit(DiskJournal.getJournalFile(imageFile), imageChannel);
+        } catch (IOException e) {
+            // try again next time
+            for (int key : written) {
+                disk[key >> 16][(key >> 8) & 0xFF].markDirty(key & 0xFF);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Add the changed sectors of one track to a journal batch
+     *
+     * @param diskTrack Track to write
+     * @param track     Track number
+     * @param side      Side number
+     * @param journal   Batch being built
+     * @param written   Sectors added to the batch, as side / track / sector
+     */
+    private void collectTrack(DiskTrack diskTrack, int track, int side, DiskJournal journal, List<Integer> written) {
+        long trackPosition = (long) (track * imageSides + side) * imageTrackSize;
+        for (int word = 0; word < DiskTrack.MAX_SECTORS / 64; word++) {
+            long changed = diskTrack.takeDirty(word);
+            while (0 != changed) {
+                int sector = word * 64 + Long.numberOfTrailingZeros(changed);
+                changed = changed & (changed - 1);
+                int home = diskTrack.getHomeOffset(sector);
+                // Only sectors still in their place in the image can be saved
+                if (diskTrack.isRelocated() || (DiskTrack.ABSENT == home) || (home != diskTrack.getOffset(sector))) {
+                    continue;
                 }
+                journal.add(trackPosition + home, diskTrack.getData().slice(home, diskTrack.getLength(sector)));
+                written.add((side << 16) | (track << 8) | sector);
             }
-            fis.close();
+        }
+        if (diskTrack.isRelocated()) {
+            systemContext.logWarnEvent("Track reformatted with a different layout, not saved to : " + imageFile);
+        }
+    }
 
+    /**
+     * disk reader for files in ANADisk format. The whole file is read in one go and each sector copied out of it. Tracks
+     * matching any already in memory are shared with them.
+     *
+     * @param file File handle to the ANADisk file
+     */
+    public void loadANADisk(File file) {
+        ByteBuffer image;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            image = ByteBuffer.allocate((int) channel.size());
+            readFully(channel, image, 0);
+            image.flip();
         } catch (Exception e) {
             throw new RuntimeException("Unable to load disk image. " + e.getMessage());
         }
+        byte[] data = image.array();
+        while (image.remaining() >= 8) {
+            int cylinder = image.get() & 0xFF;
+            int side = image.get() & 0xFF;
+            image.position(image.position() + 2); // physical cylinder and side
+            int sector = image.get() & 0xFF;
+            image.get(); // length code
+            int count = (image.get() & 0xFF) | ((image.get() & 0xFF) << 8);
+            if (count > image.remaining()) {
+                systemContext.logWarnEvent("ANADisk image is truncated, last sector ignored : " + file);
+                break;
+            }
+            putSector(cylinder, sector, side, data, image.position(), count);
+            image.position(image.position() + count);
+        }
+        for (DiskTrack[] tracks : disk) {
+            for (DiskTrack diskTrack : tracks) {
+                if (null != diskTrack) {
+                    diskTrack.share();
+                }
+            }
+        }
     }
 
     /**
-     * Read a binary dump of a double-sided disk in .dmp format side...track...sector
+     * Read a binary dump of a double-sided disk in .dmp format side...track...sector. The file is read into memory
+     * in one go, the disk does not refer back to it. Tracks matching any already in memory are shared with
+     * them.
      *
      * @param file       Dump file to read
      * @param tracks     Tracks to read
@@ -133,30 +523,65 @@ public class DiskImage {
      * @param sides      Number of sides (0 or 1)
      */
     public void diskDumpReader(File file, int tracks, int sectors, int sectorSize, int sides) {
-        try {
-            BufferedInputStream fis = new BufferedInputStream(new FileInputStream(file));
-            for (int track = 0; track < tracks; track++) {
-                for (int sector = 1; sector <= sectors; sector++) {
-                    byte[] sectorData = new byte[sectorSize];
-                    for (int position = 0; position < sectorSize; position++) {
-                        sectorData[position] = (byte) fis.read();
-                    }
-                    putSector(track, sector, 0, sectorData);
-                }
-                if (1 == sides) {
-                    for (int sector = 1; sector <= sectors; sector++) {
-                        byte[] sectorData = new byte[sectorSize];
-                        for (int position = 0; position < sectorSize; position++) {
-                            sectorData[position] = (byte) fis.read();
-                        }
-                        putSector(track, sector, 1, sectorData);
-                    }
-                }
-            }
-            fis.close();
+        int sideCount = (1 == sides) ? 2 : 1;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            layOutTracks(readDumpImage(channel, (long) tracks * sideCount * sectors * sectorSize), tracks, sectors, sectorSize, sideCount, true);
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new RuntimeException("Unable to load disk image. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Find a track on a disk
+     *
+     * @param track Track to find
+     * @param side  Side to find
+     * @return The track, or null if nothing has been written to it
+     */
+    public DiskTrack getTrack(int track, int side) {
+        mount();
+        if ((track < 0) || (track >= MAX_TRACKS) || (side < 0) || (side > 1)) {
+            return null;
+        }
+        DiskTrack diskTrack = disk[side][track];
+        if ((null == diskTrack) && (null != compressedImage)) {
+            diskTrack = expandTrack(track, side);
         }
+        return diskTrack;
+    }
+
+    /**
+     * Read a track from a compressed image the first time it is used. A track that can't be read is left empty.
+     *
+     * @param track Track to read
+     * @param side  Side to read
+     * @return The track, or null if the image does not hold it
+     */
+    private synchronized DiskTrack expandTrack(int track, int side) {
+        if ((null == disk[side][track]) && (null != compressedImage) && compressedImage.hasTrack(track, side)) {
+            try {
+                DiskTrack diskTrack = compressedImage.readTrack(track, side);
+                diskTrack.share();
+                disk[side][track] = diskTrack;
+            } catch (IOException | RuntimeException e) {
+                systemContext.logErrorEvent("Unable to read track " + track + " side " + side + ", " + e.getMessage());
+                disk[side][track] = new DiskTrack();
+            }
+        }
+        return disk[side][track];
+    }
+
+    /**
+     * Get the length of a sector without copying it
+     *
+     * @param track  Track to read
+     * @param sector Sector to read
+     * @param side   Side to read
+     * @return The sector length, or DiskTrack.ABSENT if there is no such sector
+     */
+    public int getSectorLength(int track, int sector, int side) {
+        DiskTrack diskTrack = getTrack(track, side);
+        return (null == diskTrack) ? DiskTrack.ABSENT : diskTrack.getLength(sector);
     }
 
     /**
@@ -165,22 +590,15 @@ public class DiskImage {
      * @param track  Track to read
      * @param sector Sector to read
      * @param side   Side to read
-     * @return The sector as a byte array
+     * @return The sector as a byte array, or null if there is no such sector
      */
     public byte[] getSector(int track, int sector, int side) {
-        try {
-            if (0 == side) {
-                return ((Sector) diskSide0[track].getNode(sector).getData()).getData();
-            } else {
-                return ((Sector) diskSide1[track].getNode(sector).getData()).getData();
-            }
-        } catch (Exception e) {
-            return null;
-        }
+        DiskTrack diskTrack = getTrack(track, side);
+        return (null == diskTrack) ? null : diskTrack.getSector(sector);
     }
 
     /**
-     * Put a sector into the B tree representing the disk image
+     * Put a sector into the disk image
      *
      * @param track      The track to write
      * @param sector     The sector to write
@@ -188,64 +606,54 @@ public class DiskImage {
      * @param sectorData The data to write
      */
     public void putSector(int track, int sector, int side, byte[] sectorData) {
-        // System.out.println("Disk Image : "+side+" / "+track + " / " + sector );
-        Sector sectorNode = new Sector(sector);
-        BTreeNode node = new BTreeNode();
-        sectorNode.setData(sectorData);
-        node.setData(sectorNode);
-        if (0 == side) {
-            diskSide0[track].insertNode(node);
-        } else {
-            diskSide1[track].insertNode(node);
-        }
+        putSector(track, sector, side, sectorData, sectorData.length);
     }
 
     /**
-     * Erase all the sectors in a track
+     * Put a sector into the disk image from the start of a larger buffer
      *
-     * @param track int The track to erase
-     * @param side  int The side to erase
+     * @param track      The track to write
+     * @param sector     The sector to write
+     * @param side       The side to write
+     * @param sectorData The data to write
+     * @param length     Sector length
      */
-    public void eraseTrack(int track, int side) {
-        if (0 == side) {
-            diskSide0[track].erase();
-        } else {
-            diskSide1[track].erase();
-        }
+    public void putSector(int track, int sector, int side, byte[] sectorData, int length) {
+        putSector(track, sector, side, sectorData, 0, length);
     }
 
     /**
-     * Read a byte from a sector
+     * Put a sector into the disk image from part of a larger buffer
      *
-     * @param sector   The sector to read from
-     * @param location Location in sector
-     * @return The byte as an int (so we don't get any negative values)
+     * @param track      The track to write
+     * @param sector     The sector to write
+     * @param side       The side to write
+     * @param sectorData The data to write
+     * @param offset     Start of the sector in sectorData
+     * @param length     Sector length
      */
-    private int getByte(byte[] sector, int location) {
-        int p1 = sector[location];
-        if (p1 < 0) {
-            p1 = p1 + 256;
+    private void putSector(int track, int sector, int side, byte[] sectorData, int offset, int length) {
+        mount();
+        if ((track < 0) || (track >= MAX_TRACKS) || (side < 0) || (side > 1)) {
+            throw new RuntimeException("Disk address out of range, track <" + track + "> side <" + side + ">");
         }
-        return p1;
+        if (null == getTrack(track, side)) {
+            disk[side][track] = new DiskTrack();
+        }
+        disk[side][track].putSector(sector, sectorData, offset, length);
     }
 
     /**
-     * Read a word from a sector
+     * Erase all the sectors in a track
      *
-     * @param sector   The sector to read from
-     * @param location Location in sector
-     * @return The byte as an int (so we don't get any negative values)
+     * @param track int The track to erase
+     * @param side  int The side to erase
      */
-    private int getWord(byte[] sector, int location) {
-        int p1 = sector[location];
-        if (p1 < 0) {
-            p1 = p1 + 256;
-        }
-        int p2 = sector[location + 1];
-        if (p2 < 0) {
-            p2 = p2 + 256;
+    public void eraseTrack(int track, int side) {
+        DiskTrack diskTrack = getTrack(track, side);
+        if (null != diskTrack) {
+            diskTrack.erase();
         }
-        return (p2 << 8) + p1;
     }
 
     /**
@@ -254,29 +662,9 @@ public class DiskImage {
      * @param sector Sector data
      */
     public void printNasDosDirectorySector(byte[] sector) {
-        String fileName;
-        int executionAddress;
-        int loadAddress;
-        int startTrack;
-        int startSector;
-        int length;
-        //
         for (int i = 0; i < sector.length; i = i + 16) {
-            if (sector[i] >= 0) {
-                fileName = new String(Arrays.copyOfRange(sector, i, i + 8), StandardCharsets.UTF_8);
-                executionAddress = getWord(sector, i + 8);
-                loadAddress = getWord(sector, i + 10);
-                startTrack = getByte(sector, i + 12);
-                startSector = getByte(sector, i + 13);
-                length = getWord(sector, i + 14);
-
-                System.out.print(fileName + " ");
-                System.out.print(Utilities.getWord(executionAddress) + " ");
-                System.out.print(Utilities.getWord(loadAddress) + " ");
-                System.out.print(Utilities.getWord(startTrack) + " ");
-                System.out.print(Utilities.getWord(startSector) + " ");
-                System.out.print(Utilities.getWord(length) + " ");
-                System.out.println();
+            if (NasDosDisk.DirectoryEntry.isFile(sector, i)) {
+                System.out.println(new NasDosDisk.DirectoryEntry(sector, i));
             }
         }
     }
@@ -352,8 +740,9 @@ public class DiskImage {
      *
      * @param fileName File to produce
      * @param fdc      Controller chip
+     * @throws IOException Thrown if the image can't be written
      */
-    public void dumpANADiskToFile(String fileName, FDC17xx.FDC_CHIP fdc) {
+    public void dumpANADiskToFile(String fileName, FDC17xx.FDC_CHIP fdc) throws IOException {
         try (FileOutputStream fos = new FileOutputStream(fileName)) {
             byte[] sectorData;
             //
@@ -377,8 +766,6 @@ public class DiskImage {
                     }
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 
@@ -423,4 +810,11 @@ public class DiskImage {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Fills a disk image from its source when it is first used
+     */
+    public interface DiskLoader {
+        void load(DiskImage disk) throws IOException;
+    }
+
+}
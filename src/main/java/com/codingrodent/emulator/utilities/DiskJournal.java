@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal for disk image updates. A batch of sector writes is saved to a journal file next to the image
+ * before any of it is applied to the image, so a crash part way through a batch can always be repaired. A complete
+ * journal found when an image is opened is replayed, an incomplete one is discarded.
+ */
+class DiskJournal {
+    private final static int MAGIC = 0x4E41534A; // NASJ
+    private final static int VERSION = 1;
+    private final ByteArrayOutputStream journal = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(journal);
+    private int entries;
+
+    DiskJournal() {
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to start disk journal. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the journal file used for an image
+     *
+     * @param image Disk image file
+     * @return Journal file
+     */
+    static File getJournalFile(File image) {
+        return new File(image.getPath() + ".journal");
+    }
+
+    /**
+     * Add a block of data to the batch
+     *
+     * @param position Position of the data in the image
+     * @param data     The data, from its position to its limit
+     */
+    void add(long position, ByteBuffer data) {
+        try {
+            out.writeLong(position);
+            byte[] block = new byte[data.remaining()];
+            data.get(block);
+            out.writeInt(block.length);
+            out.write(block);
+            entries++;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to add to disk journal. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check if anything has been added
+     *
+     * @return True if the batch is empty
+     */
+    boolean isEmpty() {
+        return 0 == entries;
+    }
+
+    /**
+     * Save the batch to the journal file, apply it to the image, then remove the journal
+     *
+     * @param journalFile Journal file
+     * @param image       Open image file
+     * @throws IOException Thrown if either file can't be written
+     */
+    void commit(File journalFile, FileChannel image) throws IOException {
+        save(journalFile);
+        if (!recover(journalFile, image)) {
+            throw new IOException("Journal did not read back correctly : " + journalFile);
+        }
+    }
+
+    /**
+     * Finish the batch and write it to the journal file
+     *
+     * @param journalFile Journal file
+     * @throws IOException Thrown if the file can't be written
+     */
+    void save(File journalFile) throws IOException {
+        out.writeLong(-1);
+        CRC32 crc = new CRC32();
+        crc.update(journal.toByteArray());
+        out.writeLong(crc.getValue());
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(journal.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Replay a journal left behind by an interrupted batch
+     *
+     * @param journalFile Journal file
+     * @param image       Open image file
+     * @return True if a complete journal was replayed, false if there was none or it was incomplete
+     * @throws IOException Thrown if either file can't be used
+     */
+    static boolean recover(File journalFile, FileChannel image) throws IOException {
+        if (!journalFile.exists()) {
+            return false;
+        }
+        boolean replayed = apply(Files.readAllBytes(journalFile.toPath()), image);
+        Files.delete(journalFile.toPath());
+        return replayed;
+    }
+
+    /**
+     * Write the entries of a journal into an image
+     *
+     * @param data  Journal contents
+     * @param image Open image file
+     * @return True if the journal was complete and has been applied
+     * @throws IOException Thrown if the image can't be written
+     */
+    private static boolean apply(byte[] data, FileChannel image) throws IOException {
+        if (data.length < 24) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 8);
+        ByteBuffer journal = ByteBuffer.wrap(data);
+        if ((MAGIC != journal.getInt()) || (VERSION != journal.getInt()) || (crc.getValue() != journal.getLong(data.length - 8))) {
+            return false;
+        }
+        long position;
+        while (-1 != (position = journal.getLong())) {
+            int length = journal.getInt();
+            ByteBuffer block = journal.slice(journal.position(), length);
+            journal.position(journal.position() + length);
+            while (block.hasRemaining()) {
+                image.write(block, position + block.position());
+            }
+        }
+        image.force(false);
+        return true;
+    }
+}
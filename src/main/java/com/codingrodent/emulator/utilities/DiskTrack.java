@@ -0,0 +1,425 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import com.codingrodent.emulator.cards.common.FDC17xx;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One side of one track of a disk. Sectors are packed one after another in a single buffer and found through a
+ * sector-indexed offset table, so every lookup is constant time. Missing sectors are marked ABSENT.
+ * <p>
+ * A track may be laid over a slice of a disk image file. Its sectors then have fixed home positions matching the file
+ * and written sectors are flagged dirty so they can be copied back.
+ * <p>
+ * A track read into memory may be shared, its data and sector layout then being held once in the process wide
+ * {@link ContentStore} for every disk and emulator with an identical track. A shared track is copied on its first change.
+ */
+public class DiskTrack {
+
+    public final static int ABSENT = -1;
+    public final static int MAX_SECTORS = 256;
+    private final static int INITIAL_SIZE = 16 * 256;
+    private final AtomicLongArray dirty = new AtomicLongArray(MAX_SECTORS / 64);
+    private final int firstHomeSector;
+    private final int homeSectors;
+    private final int homeLength;
+    private Layout layout = new Layout();
+    private boolean sharedLayout;
+    private ByteBuffer data;
+    private boolean sharedData;
+    private int used;
+    private volatile boolean relocated;
+    private byte[] rawTrack;
+
+    /**
+     * An empty track
+     */
+    public DiskTrack() {
+        data = ByteBuffer.allocate(INITIAL_SIZE);
+        firstHomeSector = 0;
+        homeSectors = 0;
+        homeLength = 0;
+        erase();
+    }
+
+    /**
+     * A track laid over part of a disk image, holding a run of equal sized sectors
+     *
+     * @param data        Buffer holding exactly the sectors of this track
+     * @param firstSector Number of the first sector
+     * @param sectors     Number of sectors
+     * @param sectorSize  Size of each sector
+     */
+    public DiskTrack(ByteBuffer data, int firstSector, int sectors, int sectorSize) {
+        this.data = data;
+        firstHomeSector = firstSector;
+        homeSectors = sectors;
+        homeLength = sectorSize;
+        erase();
+        used = sectors * sectorSize;
+        for (int sector = firstSector; sector < firstSector + sectors; sector++) {
+            layout.offsets[sector] = getHomeOffset(sector);
+            layout.lengths[sector] = sectorSize;
+        }
+        // Every track of an image has the same layout until it is reformatted
+        layout = ContentStore.intern(layout, Layout::copy);
+        sharedLayout = true;
+    }
+
+    /**
+     * Remove all sectors from the track
+     */
+    public void erase() {
+        if (sharedLayout) {
+            layout = new Layout();
+            sharedLayout = false;
+        } else {
+            Arrays.fill(layout.offsets, ABSENT);
+            Arrays.fill(layout.lengths, 0);
+        }
+        if (sharedData) {
+            copyData();
+        }
+        rawTrack = null;
+        used = (0 == homeSectors) ? 0 : Math.max(used, homeSectors * homeLength);
+    }
+
+    /**
+     * Swap the track data and layout for the shared copies in the process wide store, adding them if they are new. The
+     * track keeps reading the shared copies until it is next changed.
+     */
+    public void share() {
+        layout = ContentStore.intern(layout, Layout::copy);
+        sharedLayout = true;
+        data = ContentStore.intern(data.slice(0, used), ContentStore::copy);
+        sharedData = true;
+    }
+
+    /**
+     * Check if the track data is held in the process wide store
+     *
+     * @return True if the track data is shared
+     */
+    public boolean isShared() {
+        return sharedData;
+    }
+
+    /**
+     * Find the fixed position of a sector on an image backed track
+     *
+     * @param sector Sector number
+     * @return Offset in the track buffer, or ABSENT if the sector has no home position
+     */
+    public int getHomeOffset(int sector) {
+        if ((sector < firstHomeSector) || (sector >= firstHomeSector + homeSectors)) {
+            return ABSENT;
+        }
+        return (sector - firstHomeSector) * homeLength;
+    }
+
+    /**
+     * Check if the track still matches the layout of the image it was read from. A track reformatted with a different
+     * sector size has been moved to a private buffer.
+     *
+     * @return True if the track has moved away from its image
+     */
+    public boolean isRelocated() {
+        return relocated;
+    }
+
+    /**
+     * Flag a sector as changed. Any raw copy of the track is dropped.
+     *
+     * @param sector Sector number 0 to 255
+     */
+    public void markDirty(int sector) {
+        if ((sector >= 0) && (sector < MAX_SECTORS)) {
+            rawTrack = null;
+            dirty.getAndAccumulate(sector >> 6, 1L << (sector & 63), (value, bit) -> value | bit);
+        }
+    }
+
+    /**
+     * Check for any changed sectors
+     *
+     * @return True if any sector is flagged as changed
+     */
+    public boolean isDirty() {
+        for (int word = 0; word < dirty.length(); word++) {
+            if (0 != dirty.get(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fetch and clear the changed flags for a block of 64 sectors
+     *
+     * @param word Block number 0 to 3
+     * @return Bit n set if sector (word * 64 + n) has changed
+     */
+    public long takeDirty(int word) {
+        return dirty.getAndSet(word, 0);
+    }
+
+    /**
+     * Get the buffer holding the track data. Sector offsets index into this buffer, which is read only while the track
+     * is shared.
+     *
+     * @return The track buffer
+     */
+    public ByteBuffer getData() {
+        return data;
+    }
+
+    /**
+     * Find where a sector's data starts in the track buffer
+     *
+     * @param sector Sector number 0 to 255
+     * @return Offset in the track buffer, or ABSENT if there is no such sector
+     */
+    public int getOffset(int sector) {
+        return ((sector < 0) || (sector >= MAX_SECTORS)) ? ABSENT : layout.offsets[sector];
+    }
+
+    /**
+     * Get the length of a sector
+     *
+     * @param sector Sector number 0 to 255
+     * @return Length in bytes, or ABSENT if there is no such sector
+     */
+    public int getLength(int sector) {
+        return (ABSENT == getOffset(sector)) ? ABSENT : layout.lengths[sector];
+    }
+
+    /**
+     * Find the lowest numbered sector on the track
+     *
+     * @return Sector number, or ABSENT if the track is empty
+     */
+    public int getFirstSector() {
+        for (int sector = 0; sector < MAX_SECTORS; sector++) {
+            if (ABSENT != layout.offsets[sector]) {
+                return sector;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Count the sectors on the track
+     *
+     * @return Number of sectors
+     */
+    public int getSectorCount() {
+        int count = 0;
+        for (int offset : layout.offsets) {
+            if (ABSENT != offset) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the order of a sector on the track, taking sectors in number order
+     *
+     * @param sector Sector number 0 to 255
+     * @return Index of the sector from 0, or ABSENT if there is no such sector
+     */
+    public int getSectorIndex(int sector) {
+        if (ABSENT == getOffset(sector)) {
+            return ABSENT;
+        }
+        int index = 0;
+        for (int lower = 0; lower < sector; lower++) {
+            if (ABSENT != layout.offsets[lower]) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Find a sector by its order on the track
+     *
+     * @param index Index of the sector from 0
+     * @return Sector number, or ABSENT if there are not that many sectors
+     */
+    public int getSectorAt(int index) {
+        for (int sector = 0; sector < MAX_SECTORS; sector++) {
+            if ((ABSENT != layout.offsets[sector]) && (0 == index--)) {
+                return sector;
+            }
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Read a byte from the track buffer
+     *
+     * @param position Offset in the track buffer
+     * @return Byte value 0 to 255
+     */
+    public int readByte(int position) {
+        return data.get(position) & 0xFF;
+    }
+
+    /**
+     * Write a byte into the track buffer
+     *
+     * @param position Offset in the track buffer
+     * @param value    Byte value
+     */
+    public void writeByte(int position, int value) {
+        if (sharedData) {
+            copyData();
+        }
+        data.put(position, (byte) value);
+    }
+
+    /**
+     * Get a copy of a sector
+     *
+     * @param sector Sector number 0 to 255
+     * @return The sector data, or null if there is no such sector
+     */
+    public byte[] getSector(int sector) {
+        int offset = getOffset(sector);
+        if (ABSENT == offset) {
+            return null;
+        }
+        byte[] sectorData = new byte[layout.lengths[sector]];
+        data.get(offset, sectorData, 0, sectorData.length);
+        return sectorData;
+    }
+
+    /**
+     * Add or replace a sector. A replacement of the same size is written in place.
+     *
+     * @param sector     Sector number 0 to 255
+     * @param sectorData Source of the sector data
+     * @param offset     Offset of the sector in sectorData
+     * @param length     Sector length
+     */
+    public void putSector(int sector, byte[] sectorData, int offset, int length) {
+        if ((sector < 0) || (sector >= MAX_SECTORS)) {
+            throw new RuntimeException("Sector number out of range, <" + sector + ">");
+        }
+        if (sharedData) {
+            copyData();
+        }
+        if ((ABSENT == layout.offsets[sector]) || (layout.lengths[sector] != length)) {
+            if (sharedLayout) {
+                layout = layout.copy();
+                sharedLayout = false;
+            }
+            int home = getHomeOffset(sector);
+            layout.offsets[sector] = ((ABSENT != home) && (homeLength == length) && !relocated) ? home : allocate(length);
+            layout.lengths[sector] = length;
+        }
+        data.put(layout.offsets[sector], sectorData, offset, length);
+        markDirty(sector);
+    }
+
+    /**
+     * Get the track as a raw byte stream with gaps, address marks and CRCs. The stream is built on first use and kept
+     * until the track is next written.
+     *
+     * @param track Track number for the ID fields
+     * @param side  Side number for the ID fields
+     * @param fdc   Controller chip, for the length codes in the ID fields
+     * @return The raw track
+     */
+    public byte[] getRawTrack(int track, int side, FDC17xx.FDC_CHIP fdc) {
+        if (null == rawTrack) {
+            rawTrack = RawTrack.encode(this, track, side, fdc);
+        }
+        return rawTrack;
+    }
+
+    /**
+     * Give the track a private copy of its shared data before a change
+     */
+    private void copyData() {
+        ByteBuffer copy = ByteBuffer.allocate(Math.max(data.capacity(), INITIAL_SIZE));
+        copy.put(0, data, 0, used);
+        data = copy;
+        sharedData = false;
+    }
+
+    /**
+     * Take space for a sector from the end of the track buffer, growing it if needed
+     *
+     * @param length Sector length
+     * @return Offset of the space
+     */
+    private int allocate(int length) {
+        if (used + length > data.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(data.capacity() * 2, used + length));
+            larger.put(0, data, 0, used);
+            data = larger;
+            relocated = 0 != homeSectors;
+        }
+        int offset = used;
+        used = used + length;
+        return offset;
+    }
+
+    /**
+     * Sector offsets and lengths. Equal layouts are equal objects so they can be shared.
+     */
+    private static class Layout {
+        private final int[] offsets = new int[MAX_SECTORS];
+        private final int[] lengths = new int[MAX_SECTORS];
+
+        private Layout() {
+            Arrays.fill(offsets, ABSENT);
+        }
+
+        private Layout copy() {
+            Layout copy = new Layout();
+            System.arraycopy(offsets, 0, copy.offsets, 0, MAX_SECTORS);
+            System.arraycopy(lengths, 0, copy.lengths, 0, MAX_SECTORS);
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof Layout layout) && Arrays.equals(offsets, layout.offsets) && Arrays.equals(lengths, layout.lengths);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(offsets) + Arrays.hashCode(lengths);
+        }
+    }
+}
@@ -28,10 +28,17 @@ package com.codingrodent.emulator.utilities;
 import com.codingrodent.emulator.emulator.SystemContext;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FileHandler {
 
+    // .nas files already read, shared by all emulator instances in the VM
+    private static final Map<String, CachedFile> hexDumpFiles = new ConcurrentHashMap<>();
+    // decoded .nas files are saved beside the source with this added to the name
+    private static final String CACHE_SUFFIX = ".cache";
     private final SystemContext systemContext;
 
     /*
@@ -42,7 +49,8 @@ public class FileHandler {
     }
 
     /**
-     * Read a standard tape dump file into an array and return
+     * Read a standard tape dump file into an array and return. Files are only read once unless they change, later
+     * requests are given a copy of the memory already read. Line checksum errors are logged.
      *
      * @param fileName The file to read
      * @return The block of memory read
@@ -50,64 +58,96 @@ public class FileHandler {
      * @throws IOException           Thrown if a failure occurs while reading the file
      */
     public MemoryChunk readHexDumpFile(String fileName) throws IOException {
-        MemoryChunk memory = new MemoryChunk();
-        String line;
-        int address, base;
-
-        systemContext.logInfoEvent("Reading .nas format file : " + fileName);
-        LineNumberReader source = new LineNumberReader(new BufferedReader(new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8)));
-        //
-        boolean firstTime = true;
-        while (true) { // read a line
+        File file = new File(fileName);
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        CachedFile cached = hexDumpFiles.get(key);
+        if ((null == cached) || (cached.lastModified != lastModified) || (cached.length != length)) {
+            cached = new CachedFile(lastModified, length, parseHexDumpFile(fileName, lastModified));
+            hexDumpFiles.put(key, cached);
+        } else {
+            systemContext.logDebugEvent("Reusing .nas format file : " + fileName);
+        }
+        return new MemoryChunk(cached.memory);
+    }
 
-            String inputLine = source.readLine();
-            if ((null == inputLine) || (inputLine.charAt(0) == '.')) {
-                break;
-            }
-            line = inputLine.trim();
-            address = Utilities.getHexValue(line.substring(0, 4));
-            //System.out.println("Address : " + address + " : " + line.substring(0, 4));
-            if (firstTime) {
-                memory.setBase(address);
-                firstTime = false;
-            }
-            base = 5;
-            for (int i = 0; i < 8; i++) {
-                memory.writeByte(Utilities.getHexValue(line.substring(base, base + 2)));
-                base = base + 3;
+    /**
+     * Decode a standard tape dump file, or load the binary image cached beside it by an earlier decode if the file has
+     * not changed since
+     *
+     * @param fileName     The file to read
+     * @param lastModified Modification time of the file
+     * @return The block of memory read
+     * @throws IOException Thrown if a failure occurs while reading the file
+     */
+    private MemoryChunk parseHexDumpFile(String fileName, long lastModified) throws IOException {
+        ByteBuffer source = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName)));
+        long hash = HexDumpParser.hash(source);
+        File cacheFile = new File(fileName + CACHE_SUFFIX);
+        if (cacheFile.isFile()) {
+            try (InputStream in = new FileInputStream(cacheFile)) {
+                MemoryChunk memory = HexDumpParser.readCache(lastModified, source.remaining(), hash, in);
+                if (null != memory) {
+                    systemContext.logInfoEvent("Reading .nas format file : " + fileName + " (cached)");
+                    return memory;
+                }
+            } catch (IOException e) {
+                systemContext.logWarnEvent("Ignoring unreadable cache file : " + cacheFile);
             }
         }
-        source.close();
+        systemContext.logInfoEvent("Reading .nas format file : " + fileName);
+        List<String> checksumErrors = new ArrayList<>();
+        MemoryChunk memory = HexDumpParser.parse(source.duplicate(), fileName, checksumErrors);
+        for (String checksumError : checksumErrors) {
+            systemContext.logWarnEvent(checksumError);
+        }
+        writeCacheFile(cacheFile, memory, lastModified, source.remaining(), hash);
         return memory;
     }
 
     /**
-     * Write a standard tape dump file to a writer
+     * Save a decoded image beside its source. Written to a temporary file first so a reader never sees part of a file.
+     * Failure is not an error, the source is simply decoded again next time.
      *
-     * @param memory The chunk of memory to write
-     * @param out    The writer to be written to
-     * @throws IOException Thrown if a failure occurs while reading the file
+     * @param cacheFile    The cache file
+     * @param memory       The decoded image
+     * @param lastModified Modification time of the source file
+     * @param length       Length of the source file
+     * @param hash         Hash of the source file
      */
-    public void writeHexDumpFile(MemoryChunk memory, Writer out) throws IOException {
-        int checksum;
-        int size = memory.getSize();
-        int base = memory.getBase();
-        int end = base + size;
-        for (int address = base; address < end; address = address + 8) {
-            checksum = (address >> 8) + (address & 0x00FF);
-            out.write(Utilities.getWord(address) + " ");
-            for (int column = 0; column < 8; column++) {
-                int data = memory.readByte(address + column);
-                checksum = checksum + data;
-                out.write(Utilities.getByte(data) + " ");
+    private void writeCacheFile(File cacheFile, MemoryChunk memory, long lastModified, long length, long hash) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(cacheFile.getAbsoluteFile().getParentFile().toPath(), cacheFile.getName(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                HexDumpParser.writeCache(memory, lastModified, length, hash, out);
+            }
+            Files.move(temp, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | UnsupportedOperationException e) {
+            systemContext.logDebugEvent("Unable to write cache file : " + cacheFile + ", " + e.getMessage());
+            if (null != temp) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    // nothing more to do
+                }
             }
-            out.write(Utilities.getByte(checksum & 0x00FF));
-            out.write(0);
-            out.write(0);
-            out.write(13);
         }
     }
 
+    /**
+     * Write a standard tape dump file
+     *
+     * @param memory   The chunk of memory to write
+     * @param fileName The file to write
+     * @throws IOException Thrown if a failure occurs while writing the file
+     */
+    public void writeHexDumpFile(MemoryChunk memory, String fileName) throws IOException {
+        MemoryExporter.Range range = new MemoryExporter.Range(memory.getBase(), memory.getBase() + memory.getSize() - 1);
+        new MemoryExporter().export(memory::readByte, MemoryExporter.Format.NAS, fileName, range);
+    }
+
     /**
      * Read a binary dump of a piece of memory
      *
@@ -125,9 +165,24 @@ public class FileHandler {
         DataInputStream source = new DataInputStream(new FileInputStream(fileName));
         byte[] code = new byte[1];
         while (-1 != source.read(code)) {
-            memory.writeByte(code[0]);
+            memory.writeByte(code[0] & 0xFF);
         }
         source.close();
         return memory;
     }
+
+    /**
+     * A file already read, with the details needed to spot a change
+     */
+    private static class CachedFile {
+        private final long lastModified;
+        private final long length;
+        private final MemoryChunk memory;
+
+        private CachedFile(long lastModified, long length, MemoryChunk memory) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.memory = memory;
+        }
+    }
 }
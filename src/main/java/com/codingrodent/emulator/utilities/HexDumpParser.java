@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decodes .nas format hex dump files, "AAAA DD DD DD DD DD DD DD DD CS" per line, ending with a '.' line. Digits are
+ * decoded straight from the file bytes, so there is no per-line or per-byte allocation. When present, the checksum
+ * (the sum of the address bytes and data bytes, modulo 256) is checked.
+ * <p>
+ * A decoded image can also be held as a small binary file, tagged with the modification time, length and hash of the
+ * .nas file it came from, so later reads can skip the text decoding altogether.
+ */
+public final class HexDumpParser {
+
+    private final static int CACHE_MAGIC = 0x4E415343; // NASC
+    private final static int CACHE_VERSION = 1;
+    private final static long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private final static long FNV_PRIME = 0x100000001B3L;
+    private final static int FIELDS_PER_LINE = 10;     // address, 8 data bytes, checksum
+
+    /*
+      Constructor
+     */
+    private HexDumpParser() {
+    }
+
+    /**
+     * Decode a .nas file held in memory. Bytes are loaded consecutively from the address on the first line.
+     *
+     * @param source         The file contents
+     * @param name           Name used in error messages
+     * @param checksumErrors List to add checksum errors to, or null to treat them as fatal
+     * @return The block of memory decoded
+     * @throws IOException Thrown if the file is badly formed, or a checksum is wrong and no error list is given
+     */
+    public static MemoryChunk parse(ByteBuffer source, String name, List<String> checksumErrors) throws IOException {
+        MemoryChunk memory = new MemoryChunk();
+        int[] fields = new int[FIELDS_PER_LINE];
+        int lineNumber = 0;
+        boolean firstLine = true;
+        while (source.hasRemaining()) {
+            lineNumber++;
+            skipBlanks(source);
+            if (!source.hasRemaining() || ('.' == source.get(source.position()))) {
+                break;
+            }
+            if (isEndOfLine(source.get(source.position()))) {
+                source.get();
+                continue;
+            }
+            // decode the fields on the line
+            int count = 0;
+            while (source.hasRemaining() && !isEndOfLine(source.get(source.position()))) {
+                if (count == FIELDS_PER_LINE) {
+                    throw new IOException(name + " line " + lineNumber + " : too many fields");
+                }
+                int digits = 0;
+                int value = 0;
+                while (source.hasRemaining()) {
+                    int digit = hexDigit(source.get(source.position()));
+                    if (digit < 0) {
+                        break;
+                    }
+                    value = (value << 4) | digit;
+                    digits++;
+                    source.get();
+                }
+                if ((0 == count) ? (4 != digits) : (2 != digits)) {
+                    throw new IOException(name + " line " + lineNumber + " : bad hex value in field " + (count + 1));
+                }
+                fields[count++] = value;
+                skipBlanks(source);
+            }
+            if (source.hasRemaining() && ('\r' == source.get()) && source.hasRemaining() && ('\n' == source.get(source.position()))) {
+                source.get();
+            }
+            // data, with a checksum if the line is complete
+            int dataBytes = (FIELDS_PER_LINE == count) ? count - 2 : count - 1;
+            if (FIELDS_PER_LINE == count) {
+                int checksum = (fields[0] >> 8) + (fields[0] & 0x00FF);
+                for (int i = 1; i <= dataBytes; i++) {
+                    checksum = checksum + fields[i];
+                }
+                if ((checksum & 0x00FF) != fields[FIELDS_PER_LINE - 1]) {
+                    String msg = name + " line " + lineNumber + " : checksum error, expected " + Utilities.getByte(checksum) + " found " + Utilities.getByte(fields[FIELDS_PER_LINE - 1]);
+                    if (null == checksumErrors) {
+                        throw new IOException(msg);
+                    }
+                    checksumErrors.add(msg);
+                }
+            }
+            if (firstLine) {
+                memory.setBase(fields[0]);
+                firstLine = false;
+            }
+            if (memory.getBase() + memory.getSize() + dataBytes > 65536) {
+                throw new IOException(name + " line " + lineNumber + " : data runs past the top of memory");
+            }
+            for (int i = 1; i <= dataBytes; i++) {
+                memory.writeByte(fields[i]);
+            }
+        }
+        return memory;
+    }
+
+    /**
+     * Hash (64 bit FNV-1a) of a file's contents, used to spot a changed source file
+     *
+     * @param source The file contents
+     * @return Hash value
+     */
+    public static long hash(ByteBuffer source) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = source.position(); i < source.limit(); i++) {
+            hash = (hash ^ (source.get(i) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Write a decoded image to a binary cache file
+     *
+     * @param memory       The decoded image
+     * @param lastModified Modification time of the source file
+     * @param length       Length of the source file
+     * @param hash         Hash of the source file
+     * @param out          Stream to write to
+     * @throws IOException Thrown on write failure
+     */
+    public static void writeCache(MemoryChunk memory, long lastModified, long length, long hash, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(CACHE_MAGIC);
+        data.writeInt(CACHE_VERSION);
+        data.writeLong(lastModified);
+        data.writeLong(length);
+        data.writeLong(hash);
+        data.writeInt(memory.getBase());
+        data.writeInt(memory.getSize());
+        int end = memory.getBase() + memory.getSize();
+        for (int address = memory.getBase(); address < end; address++) {
+            data.writeByte(memory.readByte(address));
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a decoded image back from a binary cache file, if it was made from the same source file
+     *
+     * @param lastModified Modification time of the source file
+     * @param length       Length of the source file
+     * @param hash         Hash of the source file
+     * @param in           Stream to read from
+     * @return The decoded image, or null if the cache does not match the source
+     * @throws IOException Thrown on read failure
+     */
+    public static MemoryChunk readCache(long lastModified, long length, long hash, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if ((CACHE_MAGIC != data.readInt()) || (CACHE_VERSION != data.readInt()) || (lastModified != data.readLong()) || (length != data.readLong()) || (hash != data.readLong())) {
+            return null;
+        }
+        int base = data.readInt();
+        int size = data.readInt();
+        if ((base < 0) || (size < 0) || (base + size > 65536)) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        data.readFully(bytes);
+        MemoryChunk memory = new MemoryChunk();
+        memory.setBase(base);
+        for (byte b : bytes) {
+            memory.writeByte(b & 0xFF);
+        }
+        return memory;
+    }
+
+    /**
+     * Move past spaces and the control characters (backspace, NUL, ^Z) some tools put in .nas files
+     *
+     * @param source The file contents
+     */
+    private static void skipBlanks(ByteBuffer source) {
+        while (source.hasRemaining()) {
+            byte b = source.get(source.position());
+            if ((' ' != b) && ('\t' != b) && ('\b' != b) && (0 != b) && (0x1A != b)) {
+                break;
+            }
+            source.get();
+        }
+    }
+
+    /**
+     * Check for a line ending character
+     *
+     * @param b Character
+     * @return True if a line ending
+     */
+    private static boolean isEndOfLine(byte b) {
+        return ('\n' == b) || ('\r' == b);
+    }
+
+    /**
+     * Decode a hex digit
+     *
+     * @param b Character
+     * @return Value 0 to 15, or -1 if not a hex digit
+     */
+    private static int hexDigit(byte b) {
+        if ((b >= '0') && (b <= '9')) {
+            return b - '0';
+        } else if ((b >= 'A') && (b <= 'F')) {
+            return b - 'A' + 10;
+        } else if ((b >= 'a') && (b <= 'f')) {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+}
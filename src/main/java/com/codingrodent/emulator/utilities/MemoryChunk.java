@@ -52,6 +52,18 @@ public class MemoryChunk {
         System.arraycopy(memory, 0, this.memory, 0, memory.length);
     }
 
+    /**
+     * A copy of another memory chunk
+     *
+     * @param memoryChunk The memory chunk to copy
+     */
+    public MemoryChunk(MemoryChunk memoryChunk) {
+        memory = memoryChunk.memory.clone();
+        start = memoryChunk.start;
+        size = memoryChunk.size;
+        address = memoryChunk.address;
+    }
+
     /**
      * Get the block of memory represented by this object
      *
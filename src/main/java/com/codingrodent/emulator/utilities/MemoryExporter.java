@@ -0,0 +1,279 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Locale;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Writes memory out as .nas hex dump, raw binary or Intel HEX. Text is formatted straight into a byte buffer that is
+ * reused from one export to the next and written through a file channel, so repeated dumps (e.g. every few seconds of a
+ * long run) cost little more than the file write itself.
+ * <p>
+ * Not thread safe, use one exporter per thread.
+ */
+public class MemoryExporter {
+
+    public enum Format {
+        NAS, BINARY, INTEL_HEX;
+
+        /**
+         * Pick a format from a file name extension - .bin for binary, .hex / .ihx for Intel HEX, anything else .nas
+         *
+         * @param fileName File name
+         * @return Format
+         */
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".bin")) {
+                return BINARY;
+            } else if (name.endsWith(".hex") || name.endsWith(".ihx")) {
+                return INTEL_HEX;
+            }
+            return NAS;
+        }
+    }
+
+    /**
+     * An inclusive address range
+     */
+    public static class Range {
+        private final int start;
+        private final int end;
+
+        /**
+         * A range of addresses, 0x0000 to 0xFFFF
+         *
+         * @param start First address
+         * @param end   Last address
+         */
+        public Range(int start, int end) {
+            if ((start < 0) || (end > 0xFFFF) || (start > end)) {
+                throw new RuntimeException("Invalid address range, <" + Utilities.getWord(start) + "-" + Utilities.getWord(end) + ">");
+            }
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Decode a range written as hex ssss-eeee
+         *
+         * @param range Range text
+         * @return The range
+         */
+        public static Range parse(String range) {
+            int split = range.indexOf('-');
+            if ((split < 1) || (split == range.length() - 1)) {
+                throw new RuntimeException("Expected an address range ssss-eeee, <" + range + ">");
+            }
+            return new Range(Utilities.getHexValue(range.substring(0, split).toUpperCase(Locale.ROOT)), Utilities.getHexValue(range.substring(split + 1).toUpperCase(Locale.ROOT)));
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+
+    public final static Range ALL_MEMORY = new Range(0x0000, 0xFFFF);
+    private final static byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private final static int BUFFER_SIZE = 16384;
+    private final static int MAXIMUM_LINE = 64;        // longest line in any format, the buffer is flushed before it gets this full
+    private final static int NAS_LINE = 8;
+    private final static int HEX_RECORD = 16;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private WritableByteChannel channel;
+
+    /**
+     * Export memory to a file, replacing any existing file
+     *
+     * @param memory   Memory read function, address to byte
+     * @param format   Output format
+     * @param fileName File to write
+     * @param ranges   Address ranges to export in order, all 64K if none given
+     * @throws IOException Thrown on write failure
+     */
+    public void export(IntUnaryOperator memory, Format format, String fileName, Range... ranges) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            export(memory, format, fileChannel, ranges);
+        }
+    }
+
+    /**
+     * Export memory to a channel. The channel is not closed.
+     * <p>
+     * .nas output is written in whole lines of 8 bytes, so ranges are widened to line boundaries. Binary output is the
+     * bytes of each range one after another.
+     *
+     * @param memory  Memory read function, address to byte
+     * @param format  Output format
+     * @param channel Channel to write to
+     * @param ranges  Address ranges to export in order, all 64K if none given
+     * @throws IOException Thrown on write failure
+     */
+    public void export(IntUnaryOperator memory, Format format, WritableByteChannel channel, Range... ranges) throws IOException {
+        this.channel = channel;
+        buffer.clear();
+        try {
+            for (Range range : (0 == ranges.length) ? new Range[]{ALL_MEMORY} : ranges) {
+                switch (format) {
+                    case NAS -> writeNas(memory, range.start & 0xFFF8, range.end | 0x0007);
+                    case BINARY -> writeBinary(memory, range.start, range.end);
+                    case INTEL_HEX -> writeIntelHex(memory, range.start, range.end);
+                }
+            }
+            switch (format) {
+                case NAS -> buffer.put((byte) '.');
+                case INTEL_HEX -> putAscii(":00000001FF\r\n");
+                default -> {
+                }
+            }
+            flush();
+        } finally {
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Lines of "AAAA DD DD DD DD DD DD DD DD CS" each ending NUL NUL CR as written by NAS-SYS
+     *
+     * @param memory Memory read function
+     * @param start  First address, on a line boundary
+     * @param end    Last address, at the end of a line
+     * @throws IOException Thrown on write failure
+     */
+    private void writeNas(IntUnaryOperator memory, int start, int end) throws IOException {
+        for (int address = start; address <= end; address = address + NAS_LINE) {
+            makeRoom();
+            int checksum = (address >> 8) + (address & 0x00FF);
+            putWord(address);
+            buffer.put((byte) ' ');
+            for (int column = 0; column < NAS_LINE; column++) {
+                int data = memory.applyAsInt(address + column) & 0x00FF;
+                checksum = checksum + data;
+                putByte(data);
+                buffer.put((byte) ' ');
+            }
+            putByte(checksum);
+            buffer.put((byte) 0);
+            buffer.put((byte) 0);
+            buffer.put((byte) 13);
+        }
+    }
+
+    /**
+     * Raw bytes
+     *
+     * @param memory Memory read function
+     * @param start  First address
+     * @param end    Last address
+     * @throws IOException Thrown on write failure
+     */
+    private void writeBinary(IntUnaryOperator memory, int start, int end) throws IOException {
+        for (int address = start; address <= end; address++) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) memory.applyAsInt(address));
+        }
+    }
+
+    /**
+     * Intel HEX data records of up to 16 bytes
+     *
+     * @param memory Memory read function
+     * @param start  First address
+     * @param end    Last address
+     * @throws IOException Thrown on write failure
+     */
+    private void writeIntelHex(IntUnaryOperator memory, int start, int end) throws IOException {
+        for (int address = start; address <= end; address = address + HEX_RECORD) {
+            makeRoom();
+            int length = Math.min(HEX_RECORD, end - address + 1);
+            int checksum = length + (address >> 8) + (address & 0x00FF);
+            buffer.put((byte) ':');
+            putByte(length);
+            putWord(address);
+            putByte(0x00);
+            for (int i = 0; i < length; i++) {
+                int data = memory.applyAsInt(address + i) & 0x00FF;
+                checksum = checksum + data;
+                putByte(data);
+            }
+            putByte(-checksum);
+            buffer.put((byte) '\r');
+            buffer.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Make sure there is space for a whole line
+     *
+     * @throws IOException Thrown on write failure
+     */
+    private void makeRoom() throws IOException {
+        if (buffer.remaining() < MAXIMUM_LINE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write out everything in the buffer
+     *
+     * @throws IOException Thrown on write failure
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void putByte(int value) {
+        buffer.put(HEX[(value >> 4) & 0x0F]);
+        buffer.put(HEX[value & 0x0F]);
+    }
+
+    private void putWord(int value) {
+        putByte(value >> 8);
+        putByte(value);
+    }
+
+    private void putAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Host side access to the files on a NAS-DOS disk. The directory is read once into an index, and files can be read
+ * out, written in or loaded straight into memory without booting NAS-DOS.
+ * <p>
+ * NAS-DOS keeps its files on side 0 in 256 byte sectors numbered from 1. Track 0 holds the boot sector, the disk label
+ * in sector 2 and the directory from sector 3 to the end of the track. A directory entry is 16 bytes - name (8),
+ * execution address, load address, track, sector and length in sectors. Each file is held in consecutive sectors. An
+ * entry starting 0xFF is unused and any other first byte of 0x80 or more marks a deleted file.
+ */
+public class NasDosDisk {
+
+    public final static int SECTOR_SIZE = 256;
+    private final static int ENTRY_SIZE = 16;
+    private final static int NAME_LENGTH = 8;
+    private final static int FIRST_DIRECTORY_SECTOR = 3;
+    private final static int MAX_TRACKS = 256;
+    private final static int UNUSED = 0xFF;
+    private final static int DELETED = 0xFE;
+    private final static int SIDE = 0;
+    private final DiskImage disk;
+    private final int sectorsPerTrack;
+    private final int tracks;
+    private final List<DirectoryEntry> directory = new ArrayList<>();
+    private int nextFreeSector;
+
+    /**
+     * Read the directory of a NAS-DOS disk
+     *
+     * @param disk Disk holding a NAS-DOS file system
+     */
+    public NasDosDisk(DiskImage disk) {
+        this.disk = disk;
+        DiskTrack first = disk.getTrack(0, SIDE);
+        if ((null == first) || (SECTOR_SIZE != first.getLength(FIRST_DIRECTORY_SECTOR))) {
+            throw new RuntimeException("Not a NAS-DOS disk, no directory on track 0");
+        }
+        sectorsPerTrack = first.getSectorCount();
+        int count = 0;
+        while ((count < MAX_TRACKS) && (null != disk.getTrack(count, SIDE)) && (0 != disk.getTrack(count, SIDE).getSectorCount())) {
+            count++;
+        }
+        tracks = count;
+        readDirectory();
+    }
+
+    /**
+     * Build the index from the directory sectors. Space after the last file, live or deleted, is free.
+     */
+    private void readDirectory() {
+        directory.clear();
+        nextFreeSector = sectorsPerTrack;
+        for (int sector = FIRST_DIRECTORY_SECTOR; sector <= sectorsPerTrack; sector++) {
+            byte[] data = readDirectorySector(sector);
+            for (int offset = 0; offset < data.length; offset = offset + ENTRY_SIZE) {
+                if (UNUSED == (data[offset] & 0xFF)) {
+                    continue;
+                }
+                DirectoryEntry entry = new DirectoryEntry(data, offset, sector);
+                nextFreeSector = Math.max(nextFreeSector, firstSector(entry) + entry.getSectors());
+                if (DirectoryEntry.isFile(data, offset)) {
+                    directory.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a sector of the directory
+     *
+     * @param sector Sector number on track 0
+     * @return The sector
+     */
+    private byte[] readDirectorySector(int sector) {
+        byte[] data = disk.getSector(0, sector, SIDE);
+        if ((null == data) || (SECTOR_SIZE != data.length)) {
+            throw new RuntimeException("NAS-DOS directory sector " + sector + " is missing");
+        }
+        return data;
+    }
+
+    /**
+     * Get the index of files on the disk, in directory order
+     *
+     * @return The files
+     */
+    public List<DirectoryEntry> getDirectory() {
+        return Collections.unmodifiableList(directory);
+    }
+
+    /**
+     * Find a file by name, ignoring case
+     *
+     * @param name File name
+     * @return The file, or null if there is no such file
+     */
+    public DirectoryEntry find(String name) {
+        for (DirectoryEntry entry : directory) {
+            if (entry.getName().equalsIgnoreCase(name.strip())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the sectors not yet used by any file
+     *
+     * @return Free sectors
+     */
+    public int getFreeSectors() {
+        return Math.max(0, tracks * sectorsPerTrack - nextFreeSector);
+    }
+
+    /**
+     * Read a whole file
+     *
+     * @param entry File to read
+     * @return File data, a whole number of sectors
+     */
+    public byte[] readFile(DirectoryEntry entry) {
+        byte[] data = new byte[entry.getSectors() * SECTOR_SIZE];
+        for (int i = 0; i < entry.getSectors(); i++) {
+            int logical = firstSector(entry) + i;
+            byte[] sector = disk.getSector(logical / sectorsPerTrack, logical % sectorsPerTrack + 1, SIDE);
+            if ((null == sector) || (SECTOR_SIZE != sector.length)) {
+                throw new RuntimeException("File " + entry.getName() + " is missing track " + logical / sectorsPerTrack + " sector " + (logical % sectorsPerTrack + 1));
+            }
+            System.arraycopy(sector, 0, data, i * SECTOR_SIZE, SECTOR_SIZE);
+        }
+        return data;
+    }
+
+    /**
+     * Read a file as the block of memory NAS-DOS would load it into
+     *
+     * @param entry File to read
+     * @return The file at its load address
+     */
+    public MemoryChunk readMemoryChunk(DirectoryEntry entry) {
+        byte[] data = readFile(entry);
+        checkFits(entry.getName(), entry.getLoadAddress(), entry.getSectors());
+        MemoryChunk memory = new MemoryChunk();
+        memory.setBase(entry.getLoadAddress());
+        for (byte value : data) {
+            memory.writeByte(value & 0xFF);
+        }
+        return memory;
+    }
+
+    /**
+     * Write a file after the last file on the disk, replacing any file of the same name. The last sector is padded with
+     * zeros.
+     *
+     * @param name             File name, up to 8 characters
+     * @param loadAddress      Load address
+     * @param executionAddress Execution address
+     * @param data             File contents
+     * @return The new directory entry
+     */
+    public DirectoryEntry writeFile(String name, int loadAddress, int executionAddress, byte[] data) {
+        String fileName = name.strip().toUpperCase(Locale.ROOT);
+        if (fileName.isEmpty() || (fileName.length() > NAME_LENGTH) || !StandardCharsets.US_ASCII.newEncoder().canEncode(fileName)) {
+            throw new RuntimeException("NAS-DOS file names are 1 to 8 ASCII characters, <" + name + ">");
+        }
+        int sectors = Math.max(1, (data.length + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        checkFits(fileName, loadAddress, sectors);
+        if (sectors > getFreeSectors()) {
+            throw new RuntimeException("Not enough space on the disk for " + fileName + ", " + sectors + " sectors needed");
+        }
+        DirectoryEntry existing = find(fileName);
+        int[] slot = findUnusedSlot();
+        if ((null == slot) && (null == existing)) {
+            throw new RuntimeException("The NAS-DOS directory is full");
+        }
+        if (null != existing) {
+            deleteFile(existing);
+            if (null == slot) {
+                slot = new int[]{existing.directorySector, existing.directoryOffset};
+            }
+        }
+        // the file data
+        for (int i = 0; i < sectors; i++) {
+            byte[] sector = new byte[SECTOR_SIZE];
+            System.arraycopy(data, i * SECTOR_SIZE, sector, 0, Math.max(0, Math.min(SECTOR_SIZE, data.length - i * SECTOR_SIZE)));
+            int logical = nextFreeSector + i;
+            disk.putSector(logical / sectorsPerTrack, logical % sectorsPerTrack + 1, SIDE, sector);
+        }
+        // then the directory entry
+        byte[] directorySector = readDirectorySector(slot[0]);
+        int offset = slot[1];
+        Arrays.fill(directorySector, offset, offset + NAME_LENGTH, (byte) ' ');
+        System.arraycopy(fileName.getBytes(StandardCharsets.US_ASCII), 0, directorySector, offset, fileName.length());
+        putWord(directorySector, offset + 8, executionAddress);
+        putWord(directorySector, offset + 10, loadAddress);
+        directorySector[offset + 12] = (byte) (nextFreeSector / sectorsPerTrack);
+        directorySector[offset + 13] = (byte) (nextFreeSector % sectorsPerTrack + 1);
+        putWord(directorySector, offset + 14, sectors);
+        disk.putSector(0, slot[0], SIDE, directorySector);
+        readDirectory();
+        return find(fileName);
+    }
+
+    /**
+     * Check that a file loads below the top of memory
+     *
+     * @param name        File name
+     * @param loadAddress Load address
+     * @param sectors     Length of the file in sectors
+     */
+    private static void checkFits(String name, int loadAddress, int sectors) {
+        if (loadAddress + sectors * SECTOR_SIZE > 0x10000) {
+            throw new RuntimeException("File " + name + " does not fit in memory at " + Utilities.getWord(loadAddress));
+        }
+    }
+
+    /**
+     * Mark a file deleted. Its space is not reused until the disk is reorganised by NAS-DOS.
+     *
+     * @param entry File to delete
+     */
+    public void deleteFile(DirectoryEntry entry) {
+        byte[] directorySector = readDirectorySector(entry.directorySector);
+        directorySector[entry.directoryOffset] = (byte) DELETED;
+        disk.putSector(0, entry.directorySector, SIDE, directorySector);
+        readDirectory();
+    }
+
+    /**
+     * Find the first unused directory entry
+     *
+     * @return Sector number and offset of the entry, or null if the directory is full
+     */
+    private int[] findUnusedSlot() {
+        for (int sector = FIRST_DIRECTORY_SECTOR; sector <= sectorsPerTrack; sector++) {
+            byte[] data = readDirectorySector(sector);
+            for (int offset = 0; offset < data.length; offset = offset + ENTRY_SIZE) {
+                if (UNUSED == (data[offset] & 0xFF)) {
+                    return new int[]{sector, offset};
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the position of a file counted in sectors from the start of the disk
+     *
+     * @param entry File
+     * @return Sector index
+     */
+    private int firstSector(DirectoryEntry entry) {
+        return entry.getTrack() * sectorsPerTrack + entry.getSector() - 1;
+    }
+
+    /**
+     * Store a little endian word
+     *
+     * @param data     Buffer
+     * @param location Location in the buffer
+     * @param value    Word value
+     */
+    private static void putWord(byte[] data, int location, int value) {
+        data[location] = (byte) value;
+        data[location + 1] = (byte) (value >> 8);
+    }
+
+    /**
+     * One file in the directory
+     */
+    public static class DirectoryEntry {
+        private final String name;
+        private final int executionAddress;
+        private final int loadAddress;
+        private final int track;
+        private final int sector;
+        private final int sectors;
+        private final int directorySector;
+        private final int directoryOffset;
+
+        /**
+         * Decode a directory entry from a sector of unknown position
+         *
+         * @param data   Directory sector
+         * @param offset Offset of the entry in the sector
+         */
+        DirectoryEntry(byte[] data, int offset) {
+            this(data, offset, 0);
+        }
+
+        /**
+         * Decode a directory entry
+         *
+         * @param data            Directory sector
+         * @param offset          Offset of the entry in the sector
+         * @param directorySector Number of the directory sector
+         */
+        private DirectoryEntry(byte[] data, int offset, int directorySector) {
+            name = new String(data, offset, NAME_LENGTH, StandardCharsets.US_ASCII).stripTrailing();
+            executionAddress = (data[offset + 8] & 0xFF) | ((data[offset + 9] & 0xFF) << 8);
+            loadAddress = (data[offset + 10] & 0xFF) | ((data[offset + 11] & 0xFF) << 8);
+            track = data[offset + 12] & 0xFF;
+            sector = data[offset + 13] & 0xFF;
+            sectors = (data[offset + 14] & 0xFF) | ((data[offset + 15] & 0xFF) << 8);
+            this.directorySector = directorySector;
+            directoryOffset = offset;
+        }
+
+        /**
+         * Does a directory entry hold a file, rather than being unused or deleted
+         *
+         * @param data   Directory sector
+         * @param offset Offset of the entry in the sector
+         * @return True for a file
+         */
+        static boolean isFile(byte[] data, int offset) {
+            return (data[offset] & 0xFF) < 0x80;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getExecutionAddress() {
+            return executionAddress;
+        }
+
+        public int getLoadAddress() {
+            return loadAddress;
+        }
+
+        public int getTrack() {
+            return track;
+        }
+
+        public int getSector() {
+            return sector;
+        }
+
+        public int getSectors() {
+            return sectors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s %s %s %3d %3d %5d", name, Utilities.getWord(loadAddress), Utilities.getWord(executionAddress), track, sector, sectors);
+        }
+    }
+}
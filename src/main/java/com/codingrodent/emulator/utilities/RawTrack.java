@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.codingrodent.emulator.utilities;
+
+import com.codingrodent.emulator.cards.common.FDC17xx;
+
+import java.util.Arrays;
+
+/**
+ * Builds the raw byte stream of a track, as returned by a 17xx Read Track command, in IBM System 34 double density
+ * format: index gap, index mark, then an ID field and a data field per sector, each with its CRC, separated by gaps.
+ * Sectors are laid out in number order.
+ */
+public final class RawTrack {
+    public final static int TRACK_LENGTH = 0x1856;
+    private final static int GAP_BYTE = 0x4E;
+    private final static int GAP_4A = 80;
+    private final static int GAP_1 = 50;
+    private final static int GAP_2 = 22;
+    private final static int GAP_3 = 54;
+    private final static int SYNC = 12;
+    private final static int MARK_PREFIX = 0xA1;
+    private final static int INDEX_PREFIX = 0xC2;
+    private final static int INDEX_MARK = 0xFC;
+    private final static int ID_MARK = 0xFE;
+    private final static int DATA_MARK = 0xFB;
+    // sync, 3 prefix bytes, mark and CRC for both the ID and data fields, plus the 4 ID bytes and gap 2
+    private final static int SECTOR_OVERHEAD = 2 * (SYNC + 3 + 1 + 2) + 4 + GAP_2;
+    private final static int TRACK_OVERHEAD = GAP_4A + SYNC + 3 + 1 + GAP_1;
+
+    private RawTrack() {
+    }
+
+    /**
+     * Encode a track
+     *
+     * @param diskTrack Sectors on the track, null for an unformatted track
+     * @param track     Track number written in the ID fields
+     * @param side      Side number written in the ID fields
+     * @param fdc       Controller chip, which decides the length codes in the ID fields
+     * @return The raw track, at least TRACK_LENGTH bytes
+     */
+    public static byte[] encode(DiskTrack diskTrack, int track, int side, FDC17xx.FDC_CHIP fdc) {
+        int count = (null == diskTrack) ? 0 : diskTrack.getSectorCount();
+        if (0 == count) {
+            byte[] blank = new byte[TRACK_LENGTH];
+            Arrays.fill(blank, (byte) GAP_BYTE);
+            return blank;
+        }
+        int needed = TRACK_OVERHEAD;
+        for (int index = 0; index < count; index++) {
+            needed = needed + SECTOR_OVERHEAD + diskTrack.getLength(diskTrack.getSectorAt(index));
+        }
+        // shrink gap 3 if the sectors would not otherwise fit
+        int gap3 = Math.max(1, Math.min(GAP_3, (TRACK_LENGTH - needed) / count));
+        byte[] raw = new byte[Math.max(TRACK_LENGTH, needed + gap3 * count)];
+        int position = fill(raw, 0, GAP_BYTE, GAP_4A);
+        position = fill(raw, position, 0x00, SYNC);
+        position = fill(raw, position, INDEX_PREFIX, 3);
+        raw[position++] = (byte) INDEX_MARK;
+        position = fill(raw, position, GAP_BYTE, GAP_1);
+        for (int index = 0; index < count; index++) {
+            int sector = diskTrack.getSectorAt(index);
+            int length = diskTrack.getLength(sector);
+            // ID field
+            position = fill(raw, position, 0x00, SYNC);
+            int start = position;
+            position = fill(raw, position, MARK_PREFIX, 3);
+            raw[position++] = (byte) ID_MARK;
+            raw[position++] = (byte) track;
+            raw[position++] = (byte) side;
+            raw[position++] = (byte) sector;
+            raw[position++] = (byte) FDC17xx.getLengthCode(fdc, length);
+            position = putCRC(raw, start, position);
+            position = fill(raw, position, GAP_BYTE, GAP_2);
+            // data field
+            position = fill(raw, position, 0x00, SYNC);
+            start = position;
+            position = fill(raw, position, MARK_PREFIX, 3);
+            raw[position++] = (byte) DATA_MARK;
+            int offset = diskTrack.getOffset(sector);
+            for (int i = 0; i < length; i++) {
+                raw[position++] = (byte) diskTrack.readByte(offset + i);
+            }
+            position = putCRC(raw, start, position);
+            position = fill(raw, position, GAP_BYTE, gap3);
+        }
+        fill(raw, position, GAP_BYTE, raw.length - position);
+        return raw;
+    }
+
+    /**
+     * Update a CRC-CCITT (polynomial 0x1021) with one byte
+     *
+     * @param crc   Current CRC, start with 0xFFFF
+     * @param value Byte to add
+     * @return New CRC
+     */
+    public static int updateCRC(int crc, int value) {
+        crc = crc ^ ((value & 0xFF) << 8);
+        for (int bit = 0; bit < 8; bit++) {
+            crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * Append the CRC of a field, high byte first
+     *
+     * @param raw      Track being built
+     * @param start    Start of the field, including its address mark prefix
+     * @param position End of the field
+     * @return Position after the CRC
+     */
+    private static int putCRC(byte[] raw, int start, int position) {
+        int crc = 0xFFFF;
+        for (int i = start; i < position; i++) {
+            crc = updateCRC(crc, raw[i]);
+        }
+        raw[position++] = (byte) (crc >> 8);
+        raw[position++] = (byte) crc;
+        return position;
+    }
+
+    /**
+     * Fill part of the track with one value
+     *
+     * @param raw      Track being built
+     * @param position Where to start
+     * @param value    Fill value
+     * @param count    Number of bytes
+     * @return Position after the filled bytes
+     */
+    private static int fill(byte[] raw, int position, int value, int count) {
+        Arrays.fill(raw, position, position + count, (byte) value);
+        return position + count;
+    }
+}
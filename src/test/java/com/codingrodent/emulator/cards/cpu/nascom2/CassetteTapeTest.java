@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.cards.cpu.nascom2;
+
+import com.codingrodent.microprocessor.IMemory;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CassetteTapeTest {
+    private static final int[] READ_CODE = {0x06, 0x03, 0x4F, 0xCF, 0xB9, 0x20, 0xF9, 0x10, 0xFA, 0xFE, 0xFF};
+    private final int[] ram = new int[0x10000];
+    private final IMemory memory = new IMemory() {
+        @Override
+        public int readByte(int address) {
+            return ram[address];
+        }
+
+        @Override
+        public int readWord(int address) {
+            return ram[address] | (ram[(address + 1) & 0xFFFF] << 8);
+        }
+
+        @Override
+        public void writeByte(int address, int data) {
+            ram[address] = data;
+        }
+
+        @Override
+        public void writeWord(int address, int data) {
+            ram[address] = data & 0xFF;
+            ram[(address + 1) & 0xFFFF] = data >> 8;
+        }
+    };
+    private CassetteTape tape;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < READ_CODE.length; i++) {
+            ram[CassetteTape.NAS_SYS_READ + i] = READ_CODE[i];
+        }
+        ram[0x0C2B] = 'R';
+        tape = new CassetteTape();
+        tape.setFastLoad(true);
+    }
+
+    @Test
+    public void fastLoad() throws IOException {
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        block(image, 0x1000, 256, 1, 0x11);
+        block(image, 0x1100, 16, 0, 0x22);
+        tape.setTapeRead(tapeFile(image));
+        assertEquals(CassetteTape.NAS_SYS_READ_END, tape.fastLoad(memory));
+        assertEquals(0x11, ram[0x1000]);
+        assertEquals(0x11, ram[0x10FF]);
+        assertEquals(0x22, ram[0x110F]);
+        assertEquals(0, ram[0x1110]);
+        // the trailing nulls are left on the tape
+        assertTrue(tape.isInputOpen());
+        assertEquals(0, tape.readDataFromUART());
+    }
+
+    @Test
+    public void checksumError() throws IOException {
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        block(image, 0x2000, 8, 1, 0x33);
+        byte[] bad = image.toByteArray();
+        bad[bad.length - 11]++;
+        image.reset();
+        image.write(bad);
+        block(image, 0x2000, 8, 0, 0x44);
+        tape.setTapeRead(tapeFile(image));
+        assertEquals(CassetteTape.NAS_SYS_READ_ERROR, tape.fastLoad(memory));
+        // NAS-SYS goes back to the block search, which carries on with the next block
+        assertEquals(CassetteTape.NAS_SYS_READ_END, tape.fastLoad(memory));
+        assertEquals(0x44, ram[0x2007]);
+    }
+
+    @Test
+    public void normalLoad() throws IOException {
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        block(image, 0x3000, 8, 0, 0x55);
+        tape.setTapeRead(tapeFile(image));
+        // verify only, then fast load off
+        ram[0x0C2B] = 'V';
+        assertEquals(CassetteTape.NAS_SYS_READ_END, tape.fastLoad(memory));
+        assertEquals(0, ram[0x3000]);
+        tape.setTapeRead(tapeFile(image));
+        tape.setFastLoad(false);
+        ram[0x0C2B] = 'R';
+        assertEquals(CassetteTape.NAS_SYS_READ, tape.fastLoad(memory));
+        assertEquals(0, tape.readDataFromUART());
+        // not NAS-SYS 3
+        tape.setFastLoad(true);
+        ram[CassetteTape.NAS_SYS_READ] = 0;
+        assertEquals(CassetteTape.NAS_SYS_READ, tape.fastLoad(memory));
+        assertEquals(0xFF, tape.readDataFromUART());
+    }
+
+    private void block(ByteArrayOutputStream image, int address, int length, int block, int value) {
+        image.write(0);
+        for (int i = 0; i < 4; i++) {
+            image.write(0xFF);
+        }
+        int[] header = {address & 0xFF, address >> 8, length & 0xFF, block};
+        for (int data : header) {
+            image.write(data);
+        }
+        image.write((header[0] + header[1] + header[2] + header[3]) & 0xFF);
+        for (int i = 0; i < length; i++) {
+            image.write(value);
+        }
+        image.write((value * length) & 0xFF);
+        for (int i = 0; i < 10; i++) {
+            image.write(0);
+        }
+    }
+
+    private String tapeFile(ByteArrayOutputStream image) throws IOException {
+        File file = Files.createTempFile("tape", ".cas").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), image.toByteArray());
+        return file.getPath();
+    }
+}
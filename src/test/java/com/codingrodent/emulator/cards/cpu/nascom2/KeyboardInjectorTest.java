@@ -0,0 +1,93 @@
+package com.codingrodent.emulator.cards.cpu.nascom2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyboardInjectorTest {
+
+    private final Keyboard keyboard = new Keyboard();
+    private final KeyboardInjector injector = new KeyboardInjector(keyboard);
+
+    /**
+     * Emulate one monitor keyboard scan - a reset pulse then read each row, incrementing between reads
+     */
+    private int[] scan() {
+        int[] rows = new int[8];
+        keyboard.IOWrite(0, 0x02);
+        keyboard.IOWrite(0, 0x00);
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = keyboard.IORead(0);
+            keyboard.IOWrite(0, 0x01);
+            keyboard.IOWrite(0, 0x00);
+        }
+        return rows;
+    }
+
+    @Test
+    public void typeInStepWithScan() {
+        keyboard.setInjector(injector);
+        assertTrue(injector.isIdle());
+        injector.type("Ab");
+        assertFalse(injector.isIdle());
+        assertEquals(2, injector.getPending());
+        // 'A' held for two scans, unshifted
+        for (int i = 0; i < 2; i++) {
+            int[] rows = scan();
+            assertEquals(0xEF, rows[4]);
+            assertEquals(0xFF, rows[0]);
+        }
+        // released for two scans
+        for (int i = 0; i < 2; i++) {
+            assertArrayEquals(new int[]{0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF}, scan());
+        }
+        // 'b' is shift + B
+        int[] rows = scan();
+        assertEquals(0xFD, rows[1]);
+        assertEquals(0xEF, rows[0]);
+        scan();
+        scan();
+        scan();
+        // the release is only known to have been seen at the start of the next scan
+        assertFalse(injector.isIdle());
+        scan();
+        assertTrue(injector.isIdle());
+        assertEquals(2, injector.getKeysTyped());
+        assertEquals(0xFF, scan()[0]);
+    }
+
+    @Test
+    public void specialKeys() {
+        keyboard.setInjector(injector);
+        injector.setScansPerState(1);
+        injector.type("\n" + KeyboardInjector.ESCAPE + KeyboardInjector.KEY_UP);
+        assertEquals(0xFD, scan()[0]);
+        scan();
+        assertEquals(0xED, scan()[0]);
+        scan();
+        assertEquals(0xBF, scan()[1]);
+    }
+
+    @Test
+    public void hostKeysKept() {
+        keyboard.setInjector(injector);
+        injector.setScansPerState(1);
+        // space held down on the host keyboard
+        keyboard.setKeyStroke(new int[]{0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xEF});
+        injector.type("a");
+        int[] rows = scan();
+        assertEquals(0xEF, rows[4]);
+        assertEquals(0xEF, rows[0]);
+        assertEquals(0xEF, rows[7]);
+        // only the typed key and shift are released
+        assertArrayEquals(new int[]{0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xEF}, scan());
+    }
+
+    @Test
+    public void unmappedCharacter() {
+        assertTrue(KeyboardInjector.canType('z'));
+        assertFalse(KeyboardInjector.canType('~'));
+        assertThrows(RuntimeException.class, () -> injector.type("ok~"));
+        assertEquals(0, injector.getPending());
+    }
+}
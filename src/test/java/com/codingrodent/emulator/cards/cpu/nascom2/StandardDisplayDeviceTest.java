@@ -0,0 +1,34 @@
+package com.codingrodent.emulator.cards.cpu.nascom2;
+
+import com.codingrodent.emulator.utilities.MemoryChunk;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardDisplayDeviceTest {
+
+    @Test
+    public void readScreen() {
+        StandardDisplayDevice display = new StandardDisplayDevice(new MemoryChunk(new short[4096]));
+        assertEquals(48, display.getColumns());
+        assertEquals(16, display.getRows());
+        //
+        // the top line is held at the end of video RAM, margin cells are not visible
+        display.writeByte(0x3C0 + 0x0A, 'T');
+        display.writeByte(0x3C0 + 0x39, 't');
+        display.writeByte(0x3C0 + 0x09, '<');
+        display.writeByte(0x3C0 + 0x3A, '>');
+        display.writeByte(0x000 + 0x0A, 'S');
+        display.writeByte(0x380 + 0x0B, 'E');
+        char[] screen = new char[48 * 16];
+        display.readScreen(screen);
+        assertEquals('T', screen[0]);
+        assertEquals('t', screen[47]);
+        assertEquals('S', screen[48]);
+        assertEquals('E', screen[15 * 48 + 1]);
+        for (char c : screen) {
+            assertNotEquals('<', c);
+            assertNotEquals('>', c);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.cards.fdc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DriveTimingTest {
+
+    @Test
+    public void stepRates() {
+        DriveTiming timing = new DriveTiming(true, 4);
+        assertTrue(timing.isAccurate());
+        // 6, 12, 20 and 30ms at 4000 T states per ms
+        assertEquals(6 * 4000, timing.getStepTime(1, 0x00));
+        assertEquals(12 * 4000, timing.getStepTime(1, 0x01));
+        assertEquals(20 * 4000, timing.getStepTime(1, 0x02));
+        assertEquals(30 * 4000, timing.getStepTime(1, 0x03));
+        assertEquals(10 * 6 * 4000, timing.getStepTime(10, 0x00));
+        // verify adds the head settle time
+        assertEquals((2 * 12 + 30) * 4000, timing.getStepTime(2, 0x05));
+        assertEquals(30 * 2000, new DriveTiming(true, 2).getStepTime(1, 0x03));
+    }
+
+    @Test
+    public void rotation() {
+        DriveTiming timing = new DriveTiming(true, 4);
+        long revolution = 200 * 4000;
+        // a sector not found is given up on after 5 revolutions
+        assertEquals(5 * revolution, timing.getSearchTime());
+        assertEquals(30 * 4000, timing.getSettleTime(0x04));
+        assertEquals(0, timing.getSettleTime(0x00));
+        assertEquals(128, timing.getByteTime());
+        assertEquals(revolution / 2, timing.getRotationTime(0, 0.5));
+        assertEquals(revolution / 4, timing.getRotationTime(revolution + revolution / 4, 0.5));
+        assertEquals(0.25, timing.getPosition(5 * revolution + revolution / 4), 1e-9);
+    }
+
+    @Test
+    public void turbo() {
+        DriveTiming timing = new DriveTiming(false, 4);
+        assertFalse(timing.isAccurate());
+        assertEquals(0, timing.getStepTime(40, 0x07));
+        assertEquals(0, timing.getSettleTime(0x04));
+        assertEquals(0, timing.getRotationTime(1234, 0.5));
+        assertEquals(0, timing.getSearchTime());
+        assertEquals(0, timing.getByteTime());
+    }
+}
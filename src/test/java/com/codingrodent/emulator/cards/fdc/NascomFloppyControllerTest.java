@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.cards.fdc;
+
+import com.codingrodent.emulator.nas80Bus.INasBus;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NascomFloppyControllerTest {
+
+    private final static int STATUS = 0xE0;
+    private final static int COMMAND = 0xE0;
+    private final static int SECTOR = 0xE2;
+    private final static int DATA = 0xE3;
+    private final static int DRIVE = 0xE4;
+    private final static int INTRQ = 0xE5;
+    private NascomFloppyController controller;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // 1 track, 1 side, 4 sectors of 128 bytes, each filled with its sector number
+        byte[] image = new byte[4 * 128];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (1 + i / 128);
+        }
+        File file = Files.createTempFile("disk", ".dsk").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), image);
+        Map<String, String> cardProperties = new HashMap<>();
+        cardProperties.put("Dump0", file.getPath());
+        cardProperties.put("Dump0_Tracks", "1");
+        cardProperties.put("Dump0_Sectors", "4");
+        cardProperties.put("Dump0_Sides", "1");
+        cardProperties.put("Dump0_Size", "128");
+        cardProperties.put("Dump0_Overlay", "true");
+        cardProperties.put("FlushInterval", "0");
+        controller = new NascomFloppyController();
+        controller.setNasBus(new TestBus());
+        controller.setCardProperties(cardProperties);
+        controller.initialise();
+        controller.ioWrite(DRIVE, 0x01);
+    }
+
+    @Test
+    public void readMultipleRecords() {
+        controller.ioWrite(SECTOR, 2);
+        controller.ioWrite(COMMAND, 0x90);
+        assertEquals(0x03, controller.ioRead(STATUS)); // DRQ, BUSY
+        for (int sector = 2; sector <= 4; sector++) {
+            assertEquals(sector, controller.ioRead(SECTOR));
+            for (int i = 0; i < 128; i++) {
+                assertEquals(sector, controller.ioRead(DATA));
+            }
+        }
+        // the command runs on past the last sector on the track and ends with Record Not Found
+        assertEquals(5, controller.ioRead(SECTOR));
+        assertEquals(0x10, controller.ioRead(STATUS));
+        assertEquals(0x01, controller.ioRead(INTRQ));
+    }
+
+    @Test
+    public void writeMultipleRecords() {
+        controller.ioWrite(SECTOR, 3);
+        controller.ioWrite(COMMAND, 0xB0);
+        assertEquals(0x03, controller.ioRead(STATUS));
+        for (int i = 0; i < 2 * 128; i++) {
+            controller.ioWrite(DATA, 0x77);
+        }
+        assertEquals(5, controller.ioRead(SECTOR));
+        assertEquals(0x10, controller.ioRead(STATUS));
+        assertEquals(0x01, controller.ioRead(INTRQ));
+        // sectors 3 and 4 written, sector 2 untouched
+        assertArrayEquals(new int[]{2, 0x77, 0x77}, new int[]{firstByte(2), firstByte(3), firstByte(4)});
+    }
+
+    @Test
+    public void forceInterrupt() {
+        controller.ioWrite(SECTOR, 1);
+        controller.ioWrite(COMMAND, 0x90);
+        for (int i = 0; i < 128 + 10; i++) {
+            controller.ioRead(DATA);
+        }
+        assertEquals(2, controller.ioRead(SECTOR));
+        controller.ioWrite(COMMAND, 0xD0);
+        assertEquals(0x00, controller.ioRead(STATUS));
+        assertEquals(0x01, controller.ioRead(INTRQ));
+        // no more data once the transfer has been stopped
+        int last = controller.ioRead(DATA);
+        assertEquals(last, controller.ioRead(DATA));
+        assertEquals(2, controller.ioRead(SECTOR));
+        assertEquals(0x00, controller.ioRead(STATUS));
+        assertEquals(0x01, controller.ioRead(INTRQ));
+        // a partly written sector keeps the bytes sent before the interrupt
+        controller.ioWrite(SECTOR, 1);
+        controller.ioWrite(COMMAND, 0xB0);
+        controller.ioWrite(DATA, 0x42);
+        controller.ioWrite(COMMAND, 0xD0);
+        controller.ioWrite(DATA, 0x43);
+        assertEquals(0x00, controller.ioRead(STATUS));
+        assertEquals(0x42, firstByte(1));
+        assertEquals(1, controller.ioRead(SECTOR));
+    }
+
+    /**
+     * Read a sector with a single record command
+     *
+     * @param sector Sector number
+     * @return First byte of the sector
+     */
+    private int firstByte(int sector) {
+        controller.ioWrite(SECTOR, sector);
+        controller.ioWrite(COMMAND, 0x80);
+        int first = controller.ioRead(DATA);
+        for (int i = 1; i < 128; i++) {
+            controller.ioRead(DATA);
+        }
+        assertEquals(0x00, controller.ioRead(STATUS));
+        return first;
+    }
+
+    /**
+     * Bus with a stopped clock, so commands never time out
+     */
+    private static class TestBus implements INasBus {
+
+        @Override
+        public boolean memoryWrite(int address, int data, boolean ramdis) {
+            return false;
+        }
+
+        @Override
+        public int memoryRead(int address, boolean ramdis) {
+            return NO_MEMORY_PRESENT;
+        }
+
+        @Override
+        public int memoryRead(int address) {
+            return NO_MEMORY_PRESENT;
+        }
+
+        @Override
+        public void ioWrite(int address, int data) {
+        }
+
+        @Override
+        public int ioRead(int address) {
+            return 0;
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public void halt() {
+        }
+
+        @Override
+        public boolean assertRAMDIS(int address) {
+            return false;
+        }
+
+        @Override
+        public boolean assertRAMDISCapable(int address) {
+            return false;
+        }
+
+        @Override
+        public long getClock() {
+            return 0;
+        }
+
+        @Override
+        public void setClock(long t) {
+        }
+    }
+}
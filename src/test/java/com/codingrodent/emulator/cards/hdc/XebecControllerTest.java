@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.cards.hdc;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class XebecControllerTest {
+
+    private final static int CONTROL = 0xE6;
+    private final static int DATA = 0xE7;
+    private File image;
+    private XebecController controller;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        image = Files.createTempFile("hard", ".hdd").toFile();
+        image.deleteOnExit();
+        Files.delete(image.toPath());
+        Map<String, String> cardProperties = new HashMap<>();
+        cardProperties.put("Drive0", image.getPath());
+        cardProperties.put("Drive0_Size", "128K");
+        cardProperties.put("CacheSize", "1");
+        controller = new XebecController();
+        controller.setCardProperties(cardProperties);
+        controller.initialise();
+    }
+
+    @Test
+    public void ports() {
+        assertTrue(controller.isInputPort(CONTROL));
+        assertTrue(controller.isOutputPort(DATA));
+        assertFalse(controller.isInputPort(0xE5));
+        assertEquals(128 * 1024, image.length());
+        assertEquals(0, controller.ioRead(CONTROL));
+    }
+
+    @Test
+    public void badCacheSize() {
+        Map<String, String> cardProperties = new HashMap<>();
+        cardProperties.put("Drive0", image.getPath());
+        cardProperties.put("CacheSize", "-1");
+        XebecController other = new XebecController();
+        other.setCardProperties(cardProperties);
+        other.initialise();
+        assertEquals(0, other.ioRead(CONTROL));
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        // write 2 blocks, crossing the first 64K window
+        command(0x0A, 0, 0x00, 0xFF, 2, 0);
+        assertEquals(0x03, controller.ioRead(CONTROL)); // BSY, REQ - data out
+        for (int i = 0; i < 512; i++) {
+            controller.ioWrite(DATA, i);
+        }
+        assertEquals(0, finish());
+        //
+        command(0x08, 0, 0x01, 0x00, 1, 0);
+        assertEquals(0x13, controller.ioRead(CONTROL)); // BSY, REQ, I/O - data in
+        for (int i = 256; i < 512; i++) {
+            assertEquals(i & 0xFF, controller.ioRead(DATA));
+        }
+        assertEquals(0, finish());
+        controller.reset();
+        byte[] file = Files.readAllBytes(image.toPath());
+        assertEquals(0x7F, file[0xFF * 256 + 0x7F]);
+        assertEquals((byte) 0xFF, file[0x100 * 256 + 0xFF]);
+    }
+
+    @Test
+    public void errors() {
+        // past the end of the disk, 512 blocks of 256 bytes
+        command(0x08, 0, 0x02, 0x00, 1, 0);
+        assertEquals(0x02, finish());
+        command(0x03, 0, 0, 0, 0, 0);
+        assertEquals(0xA1, controller.ioRead(DATA));
+        assertEquals(0x00, controller.ioRead(DATA));
+        assertEquals(0x02, controller.ioRead(DATA));
+        assertEquals(0x00, controller.ioRead(DATA));
+        assertEquals(0, finish());
+        // no drive 1
+        command(0x00, 0x20, 0, 0, 0, 0);
+        assertEquals(0x22, finish());
+        // unknown command
+        command(0x1F, 0, 0, 0, 0, 0);
+        assertEquals(0x02, finish());
+    }
+
+    @Test
+    public void format() throws Exception {
+        command(0x06, 0, 0, 33, 0, 0);
+        assertEquals(0, finish());
+        controller.reset();
+        byte[] file = Files.readAllBytes(image.toPath());
+        assertEquals(0, file[32 * 256 - 1]);
+        assertEquals((byte) 0xE5, file[32 * 256]);
+        assertEquals((byte) 0xE5, file[64 * 256 - 1]);
+        assertEquals(0, file[64 * 256]);
+    }
+
+    /**
+     * Select the controller and send a command
+     *
+     * @param bytes Six command bytes
+     */
+    private void command(int... bytes) {
+        controller.ioWrite(DATA, 0x01);
+        controller.ioWrite(CONTROL, 0x01);
+        controller.ioWrite(CONTROL, 0x00);
+        assertEquals(0x0B, controller.ioRead(CONTROL)); // BSY, REQ, C/D - command
+        for (int value : bytes) {
+            controller.ioWrite(DATA, value);
+        }
+    }
+
+    /**
+     * Read the status and message bytes, leaving the bus free
+     *
+     * @return Status byte
+     */
+    private int finish() {
+        assertEquals(0x1B, controller.ioRead(CONTROL)); // BSY, REQ, C/D, I/O - status
+        int status = controller.ioRead(DATA);
+        assertEquals(0x1F, controller.ioRead(CONTROL)); // and MSG - message
+        assertEquals(0, controller.ioRead(DATA));
+        assertEquals(0, controller.ioRead(CONTROL));
+        return status;
+    }
+}
@@ -107,6 +107,36 @@ public class Nascom32KRAMATest {
         assertEquals(0x0000, ramA.memoryRead(0x1001));
     }
 
+    @Test
+    public void memoryBlock() {
+        ramA.setCardProperties(cardProperties);
+        ramA.initialise();
+        //
+        // 0FF0 - 100F straddles the bottom of the RAM
+        short[] data = new short[32];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (short) (i + 1);
+        }
+        ramA.memoryWriteBlock(0x0FF0, data, 0, data.length);
+        assertEquals(0x007F, ramA.memoryRead(0x0FFF));
+        assertEquals(17, ramA.memoryRead(0x1000));
+        assertEquals(32, ramA.memoryRead(0x100F));
+        //
+        // block read matches byte reads, including the ROM
+        short[] read = new short[40];
+        ramA.memoryReadBlock(0x0FF0, read, 8, 32);
+        for (int i = 0; i < 32; i++) {
+            assertEquals(ramA.memoryRead(0x0FF0 + i), read[8 + i]);
+        }
+        ramA.memoryReadBlock(0xD000, read, 0, 8);
+        assertEquals(ramA.memoryRead(0xD000), read[0]);
+        //
+        // ROM is not written
+        ramA.memoryWriteBlock(0xD000, data, 0, 8);
+        ramA.memoryReadBlock(0xD000, read, 8, 8);
+        assertArrayEquals(Arrays.copyOfRange(read, 0, 8), Arrays.copyOfRange(read, 8, 16));
+    }
+
     @Test
     public void noEffect() {
         ramA.reset();
@@ -0,0 +1,155 @@
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.cards.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutomationTest {
+
+    /**
+     * A CPU that does nothing but count T states in slices, writing the slice count to the screen
+     */
+    private static class FakeCPU implements ICPUControl, ITextDisplay {
+        private final char[] screen = new char[48 * 16];
+        private volatile boolean run = true;
+        private volatile boolean terminated;
+        private long elapsed;
+        private long limit = Long.MAX_VALUE;
+        private int breakpoint = -1;
+        private long version;
+        private IExecutionListener listener;
+
+        @Override
+        public void start() {
+            Arrays.fill(screen, ' ');
+            while (!terminated) {
+                if (run) {
+                    elapsed = elapsed + 1000;
+                    // the PC is the slice count
+                    String count = Long.toString(elapsed / 1000);
+                    count.getChars(0, count.length(), screen, 0);
+                    version++;
+                    IExecutionListener.Event event = IExecutionListener.Event.SLICE;
+                    if (elapsed / 1000 == breakpoint) {
+                        event = IExecutionListener.Event.BREAKPOINT;
+                    } else if (elapsed >= limit) {
+                        event = IExecutionListener.Event.T_STATE_LIMIT;
+                    } else if (elapsed >= 50000) {
+                        event = IExecutionListener.Event.HALT;
+                    }
+                    if (listener.executionEvent(event)) {
+                        run = false;
+                        listener.executionStopped();
+                    }
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        @Override
+        public void stop() {
+            run = false;
+        }
+
+        @Override
+        public void restart() {
+            run = true;
+        }
+
+        @Override
+        public void setSpeedMHz(int mhz) {
+        }
+
+        @Override
+        public void toggleNMI() {
+        }
+
+        @Override
+        public boolean blockMoveInProgress() {
+            return false;
+        }
+
+        @Override
+        public void terminate() {
+            terminated = true;
+        }
+
+        @Override
+        public long getElapsedTStates() {
+            return elapsed;
+        }
+
+        @Override
+        public boolean isHalted() {
+            return elapsed >= 50000;
+        }
+
+        @Override
+        public void setBreakpoint(int address) {
+            breakpoint = address;
+        }
+
+        @Override
+        public void setTStateLimit(long elapsedTStates) {
+            limit = elapsedTStates;
+        }
+
+        @Override
+        public void setExecutionListener(IExecutionListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public int getScreenColumns() {
+            return 48;
+        }
+
+        @Override
+        public int getScreenRows() {
+            return 16;
+        }
+
+        @Override
+        public void readScreen(char[] screen) {
+            System.arraycopy(this.screen, 0, screen, 0, this.screen.length);
+        }
+
+        @Override
+        public String[] getScreenLines() {
+            return new String[0];
+        }
+
+        @Override
+        public long getScreenVersion() {
+            return version;
+        }
+    }
+
+    @Test
+    public void runUntil() throws Exception {
+        FakeCPU cpu = new FakeCPU();
+        Automation automation = new Automation(cpu, cpu);
+        //
+        assertEquals(Automation.StopReason.T_STATES, automation.runFor(5000).get(10, TimeUnit.SECONDS));
+        assertEquals(5000, cpu.getElapsedTStates());
+        //
+        assertEquals(Automation.StopReason.TEXT, automation.runUntilText("12 ", 0).get(10, TimeUnit.SECONDS));
+        assertEquals(12000, cpu.getElapsedTStates());
+        assertTrue(automation.screenContains("12"));
+        //
+        assertEquals(Automation.StopReason.ADDRESS, automation.runUntilAddress(20, 0).get(10, TimeUnit.SECONDS));
+        assertEquals(20000, cpu.getElapsedTStates());
+        //
+        assertEquals(Automation.StopReason.T_STATES, automation.runUntilText("never", 3000).get(10, TimeUnit.SECONDS));
+        assertEquals(23000, cpu.getElapsedTStates());
+        //
+        assertEquals(Automation.StopReason.HALT, automation.runUntilHalt(0).get(10, TimeUnit.SECONDS));
+        assertEquals(50000, cpu.getElapsedTStates());
+        automation.terminate();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.emulator;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRunnerTest {
+
+    private File directory;
+    private File config;
+    private File program;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("batch").toFile();
+        directory.deleteOnExit();
+        config = writeConfig(directory);
+        // text straight into video RAM, line 9 of the screen
+        program = writeProgram(directory, "hello.nas", 0x0A0A, "HELLO");
+    }
+
+    @Test
+    public void badArguments() {
+        assertEquals(BatchRunner.EXIT_USAGE, run());
+        assertEquals(BatchRunner.EXIT_USAGE, run("--cycles"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--cycles", "0"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--cycles", "many"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--cycles", "100", "--colour", "red"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--until-halt", "--until-text", "READY"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--until-address", "10000"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--until-address", "-1"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--start", "XYZ", "--cycles", "100"));
+        assertEquals(BatchRunner.EXIT_USAGE, run("--cycles", "100", "--dump-memory", "memory.hex@2000-1000"));
+    }
+
+    @Test
+    public void runAndDump() throws Exception {
+        File screen = new File(directory, "screen.txt");
+        File memory = new File(directory, "memory.bin");
+        screen.deleteOnExit();
+        memory.deleteOnExit();
+        assertEquals(BatchRunner.EXIT_OK, isolated("--config", config.getPath(), "--load", program.getPath(), "--cycles", "100", "--dump-screen", screen.getPath(),
+                "--dump-memory", memory.getPath() + "@0A0A-0A0E"));
+        assertTrue(Files.readString(screen.toPath(), StandardCharsets.UTF_8).contains("HELLO"));
+        assertArrayEquals("HELLO".getBytes(StandardCharsets.US_ASCII), Files.readAllBytes(memory.toPath()));
+    }
+
+    @Test
+    public void limitAndErrors() throws Exception {
+        assertEquals(BatchRunner.EXIT_LIMIT, isolated("--config", config.getPath(), "--load", program.getPath(), "--until-text", "GOODBYE", "--cycles", "1000"));
+        File binary = new File(directory, "program.bin");
+        binary.deleteOnExit();
+        Files.write(binary.toPath(), new byte[]{0x76});
+        assertEquals(BatchRunner.EXIT_ERROR, isolated("--config", config.getPath(), "--load", binary.getPath(), "--cycles", "100"));
+        assertEquals(BatchRunner.EXIT_ERROR, isolated("--config", config.getPath(), "--load", new File(directory, "missing.nas").getPath(), "--cycles", "100"));
+    }
+
+    private int run(String... args) {
+        return new BatchRunner().run(args);
+    }
+
+    /**
+     * Run with the test configuration bound to this thread, leaving the VM wide context alone
+     *
+     * @param args Command line
+     * @return Exit status
+     */
+    private int isolated(String... args) {
+        SystemContext.createIsolatedInstance(config.getPath());
+        try {
+            return run(args);
+        } finally {
+            SystemContext.releaseIsolatedInstance();
+        }
+    }
+
+    /**
+     * Write a configuration of a Nascom 2 on its own, NAS-SYS 3 with no disks
+     *
+     * @param directory Where to put the file
+     * @return The configuration file
+     * @throws IOException Thrown on write failure
+     */
+    static File writeConfig(File directory) throws IOException {
+        File config = new File(directory, "config.json");
+        write(config, """
+                [
+                  {
+                    "name": "Nascom 2",
+                    "clazz": "com.codingrodent.emulator.cards.cpu.nascom2.Nascom2CPUCard",
+                    "order": "0",
+                    "properties": {
+                      "VideoROM": "resources/hexdumpImages/ROM/system/CharacterGraphicsROM.nas",
+                      "OperatingSystem": "resources/hexdumpImages/ROM/system/NAS_SYS_3.nas",
+                      "VideoRAMAddress": "0800",
+                      "ScratchpadAddress": "0C00",
+                      "StartAddress": "0000",
+                      "BankAEnabled": "false",
+                      "BankBEnabled": "false"
+                    }
+                  }
+                ]
+                """);
+        return config;
+    }
+
+    /**
+     * Write text to memory as a one line .nas program
+     *
+     * @param directory Where to put the file
+     * @param name      File name
+     * @param address   Load address
+     * @param text      Up to 8 characters
+     * @return The program file
+     * @throws IOException Thrown on write failure
+     */
+    static File writeProgram(File directory, String name, int address, String text) throws IOException {
+        StringBuilder line = new StringBuilder(String.format("%04X", address));
+        int checksum = (address >> 8) + (address & 0xFF);
+        for (char c : String.format("%-8s", text).toCharArray()) {
+            line.append(String.format(" %02X", (int) c));
+            checksum = checksum + c;
+        }
+        File program = new File(directory, name);
+        write(program, line + String.format(" %02X%n.%n", checksum & 0xFF));
+        return program;
+    }
+
+    static void write(File file, String text) throws IOException {
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.emulator;
+
+import com.codingrodent.emulator.utilities.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiskToolRunnerTest {
+
+    @Test
+    public void putIntoDump() throws Exception {
+        // 4 tracks, 2 sides, 16 sectors of 256 bytes with an empty directory
+        byte[] image = new byte[4 * 2 * 16 * 256];
+        Arrays.fill(image, 2 * 256, 16 * 256, (byte) 0xFF);
+        File dump = Files.createTempFile("nasdos", ".dsk").toFile();
+        dump.deleteOnExit();
+        Files.write(dump.toPath(), image);
+        byte[] program = new byte[300];
+        Arrays.fill(program, (byte) 0x5A);
+        File binary = Files.createTempFile("program", ".bin").toFile();
+        binary.deleteOnExit();
+        Files.write(binary.toPath(), program);
+        //
+        assertEquals(DiskToolRunner.EXIT_OK, new DiskToolRunner().run(new String[]{"put", dump.getPath(), binary.getPath(), "PROG", "1000"}));
+        DiskImage disk = DiskToolRunner.openImage(dump, true);
+        try {
+            NasDosDisk nasDos = new NasDosDisk(disk);
+            NasDosDisk.DirectoryEntry entry = nasDos.find("PROG");
+            assertNotNull(entry);
+            assertEquals(0x1000, entry.getLoadAddress());
+            assertEquals(2, entry.getSectors());
+            assertEquals(0x5A, nasDos.readFile(entry)[299]);
+        } finally {
+            disk.ejectDisk();
+        }
+        // the file is in the image at track 1 side 0 sector 1
+        assertEquals(0x5A, Files.readAllBytes(dump.toPath())[2 * 16 * 256]);
+        assertEquals(DiskToolRunner.EXIT_ERROR, new DiskToolRunner().run(new String[]{"get", dump.getPath(), "NONE", binary.getPath()}));
+        assertEquals(DiskToolRunner.EXIT_USAGE, new DiskToolRunner().run(new String[]{"put", dump.getPath(), binary.getPath(), "PROG"}));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.emulator;
+
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegressionRunnerTest {
+
+    private File directory;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("regression").toFile();
+        directory.deleteOnExit();
+    }
+
+    @Test
+    public void badArguments() {
+        assertEquals(RegressionRunner.EXIT_USAGE, new RegressionRunner().run(new String[]{}));
+        assertEquals(RegressionRunner.EXIT_USAGE, new RegressionRunner().run(new String[]{"one", "two"}));
+        assertEquals(RegressionRunner.EXIT_USAGE, new RegressionRunner().run(new String[]{"--threads", "0", directory.getPath()}));
+        assertEquals(RegressionRunner.EXIT_USAGE, new RegressionRunner().run(new String[]{directory.getPath(), "--timeout"}));
+        assertEquals(RegressionRunner.EXIT_USAGE, new RegressionRunner().run(new String[]{"--verbose", "yes", directory.getPath()}));
+        // no tests
+        assertEquals(RegressionRunner.EXIT_ERROR, new RegressionRunner().run(new String[]{directory.getPath()}));
+    }
+
+    @Test
+    public void passAndFail() throws Exception {
+        File config = BatchRunnerTest.writeConfig(directory);
+        // both tests put HELLO on the screen, only one expects it
+        BatchRunnerTest.writeProgram(directory, "fail.nas", 0x0A0A, "HELLO");
+        BatchRunnerTest.writeProgram(directory, "pass.nas", 0x0A0A, "HELLO");
+        BatchRunnerTest.write(new File(directory, "fail.expected"), "GOODBYE\n");
+        BatchRunnerTest.write(new File(directory, "pass.expected"), "\nHELLO\n");
+        BatchRunnerTest.write(new File(directory, "empty.expected"), "\n");
+        //
+        PrintStream out = System.out;
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        int status;
+        System.setOut(new PrintStream(summary, true, StandardCharsets.UTF_8));
+        try {
+            status = new RegressionRunner().run(new String[]{"--config", config.getPath(), "--cycles", "1000000", "--timeout", "30", directory.getPath()});
+        } finally {
+            System.setOut(out);
+        }
+        String[] lines = summary.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(RegressionRunner.EXIT_FAIL, status);
+        assertEquals(4, lines.length);
+        // in name order
+        assertEquals("FAIL empty : nothing expected", lines[0]);
+        assertTrue(lines[1].startsWith("FAIL fail : "));
+        assertTrue(lines[2].startsWith("PASS pass : "));
+        assertEquals("1 passed, 2 failed", lines[3]);
+    }
+}
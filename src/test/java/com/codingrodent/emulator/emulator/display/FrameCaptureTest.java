@@ -0,0 +1,67 @@
+package com.codingrodent.emulator.emulator.display;
+
+import com.codingrodent.emulator.cards.IDisplayCard;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrameCaptureTest {
+
+    private final int[] frame = new int[4 * 2];
+
+    private final IDisplayCard display = new IDisplayCard() {
+        @Override
+        public void paintFrame() {
+        }
+
+        @Override
+        public int getFrameWidth() {
+            return 4;
+        }
+
+        @Override
+        public int getFrameHeight() {
+            return 2;
+        }
+
+        @Override
+        public void getFrame(int[] pixels) {
+            System.arraycopy(frame, 0, pixels, 0, frame.length);
+        }
+    };
+
+    @Test
+    public void hash() {
+        FrameCapture frameCapture = new FrameCapture(display);
+        long blank = frameCapture.hash();
+        assertEquals(blank, frameCapture.hash());
+        // alpha is ignored
+        frame[3] = 0xFF000000;
+        assertEquals(blank, frameCapture.hash());
+        // any pixel change is seen
+        frame[3] = 0xFF00FF00;
+        long changed = frameCapture.hash();
+        assertNotEquals(blank, changed);
+        assertEquals(changed, FrameCapture.hash(frame, frame.length));
+        // position matters
+        frame[3] = 0;
+        frame[4] = 0xFF00FF00;
+        assertNotEquals(changed, frameCapture.hash());
+    }
+
+    @Test
+    public void writeRaw() throws Exception {
+        frame[0] = 0x00123456;
+        File file = File.createTempFile("frame", ".raw");
+        file.deleteOnExit();
+        new FrameCapture(display).writeRaw(file);
+        byte[] raw = Files.readAllBytes(file.toPath());
+        assertEquals(4 * 2 * 4, raw.length);
+        assertEquals(0x12, raw[1]);
+        assertEquals(0x34, raw[2]);
+        assertEquals(0x56, raw[3]);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedImageTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        DiskImage disk = new DiskImage();
+        for (int track = 0; track < 77; track++) {
+            for (int sector = 1; sector <= 16; sector++) {
+                disk.putSector(track, sector, 0, filled(256, 0xE5));
+            }
+        }
+        disk.putSector(3, 7, 0, filled(256, 0x42));
+        disk.putSector(9, 1, 1, filled(128, 0x24));
+        File file = Files.createTempFile("disk", CompressedImage.EXTENSION).toFile();
+        file.deleteOnExit();
+        disk.saveCompressedImage(file);
+        assertTrue(CompressedImage.isCompressedImage(file));
+        assertTrue(file.length() < 77 * 16 * 256 / 20);
+        //
+        try (CompressedImage image = new CompressedImage(file)) {
+            assertTrue(image.hasTrack(76, 0));
+            assertFalse(image.hasTrack(77, 0));
+            assertFalse(image.hasTrack(0, 1));
+            DiskTrack track = image.readTrack(3, 0);
+            assertEquals(16, track.getSectorCount());
+            assertArrayEquals(filled(256, 0x42), track.getSector(7));
+            assertNull(image.readTrack(0, 1));
+        }
+        //
+        DiskImage copy = new DiskImage();
+        copy.openCompressedImage(file);
+        assertArrayEquals(filled(256, 0xE5), copy.getSector(76, 16, 0));
+        assertArrayEquals(filled(128, 0x24), copy.getSector(9, 1, 1));
+        assertEquals(DiskTrack.ABSENT, copy.getSectorLength(9, 2, 1));
+        copy.putSector(3, 8, 0, filled(256, 0x11));
+        assertArrayEquals(filled(256, 0x42), copy.getSector(3, 7, 0));
+        copy.ejectDisk();
+        assertNull(copy.getSector(3, 7, 0));
+    }
+
+    @Test
+    public void dumpConversion() throws Exception {
+        DiskImage disk = new DiskImage();
+        for (int track = 0; track < 2; track++) {
+            for (int side = 0; side < 2; side++) {
+                for (int sector = 1; sector <= 4; sector++) {
+                    disk.putSector(track, sector, side, filled(128, track * 16 + side * 4 + sector));
+                }
+            }
+        }
+        File file = Files.createTempFile("disk", ".dsk").toFile();
+        file.deleteOnExit();
+        disk.saveDumpImage(file);
+        byte[] image = Files.readAllBytes(file.toPath());
+        assertEquals(2 * 2 * 4 * 128, image.length);
+        assertEquals(16 + 1, image[2 * 4 * 128 + 5]);
+        //
+        DiskImage copy = new DiskImage();
+        copy.diskDumpReader(file, 2, 4, 128, 1);
+        assertArrayEquals(filled(128, 16 + 4 + 3), copy.getSector(1, 3, 1));
+    }
+
+    @Test
+    public void notCompressed() throws Exception {
+        File file = Files.createTempFile("disk", ".dmp").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertFalse(CompressedImage.isCompressedImage(file));
+        assertThrows(IOException.class, () -> new CompressedImage(file));
+    }
+
+    @Test
+    public void corruptIndex() throws Exception {
+        DiskImage disk = new DiskImage();
+        disk.putSector(0, 1, 0, filled(256, 0xE5));
+        disk.putSector(1, 1, 0, filled(256, 0xE5));
+        File file = Files.createTempFile("disk", CompressedImage.EXTENSION).toFile();
+        file.deleteOnExit();
+        disk.saveCompressedImage(file);
+        byte[] image = Files.readAllBytes(file.toPath());
+        // more tracks than the index holds
+        byte[] truncated = image.clone();
+        truncated[15] = 3;
+        Files.write(file.toPath(), truncated);
+        assertThrows(IOException.class, () -> new CompressedImage(file));
+        // index entries cut short
+        truncated = image.clone();
+        truncated[11] = 20;
+        Files.write(file.toPath(), truncated);
+        assertThrows(IOException.class, () -> new CompressedImage(file));
+        // a negative compressed length for the first track
+        byte[] negative = image.clone();
+        negative[16 + 8] = (byte) 0x80;
+        Files.write(file.toPath(), negative);
+        assertThrows(IOException.class, () -> new CompressedImage(file));
+        // a huge sector length, only that track is lost
+        byte[] huge = image.clone();
+        huge[16 + 12 + 1] = (byte) 0xFF;
+        huge[16 + 12 + 2] = (byte) 0xFF;
+        Files.write(file.toPath(), huge);
+        DiskImage copy = new DiskImage();
+        copy.openCompressedImage(file);
+        assertNull(copy.getSector(0, 1, 0));
+        assertArrayEquals(filled(256, 0xE5), copy.getSector(1, 1, 0));
+    }
+
+    private byte[] filled(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import com.codingrodent.emulator.cards.common.FDC17xx;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiskImageTest {
+
+    @Test
+    public void anaDiskRoundTrip() throws Exception {
+        DiskImage disk = new DiskImage();
+        disk.putSector(0, 1, 0, filled(128, 1));
+        disk.putSector(3, 200, 1, filled(256, 2));
+        disk.putSector(79, 9, 1, filled(1024, 3));
+        File file = Files.createTempFile("disk", ".dmp").toFile();
+        file.deleteOnExit();
+        disk.dumpANADiskToFile(file.getPath(), FDC17xx.FDC_CHIP.FDC_1793);
+        //
+        DiskImage copy = new DiskImage();
+        copy.loadANADisk(file);
+        assertArrayEquals(filled(128, 1), copy.getSector(0, 1, 0));
+        assertArrayEquals(filled(256, 2), copy.getSector(3, 200, 1));
+        assertArrayEquals(filled(1024, 3), copy.getSector(79, 9, 1));
+        assertNull(copy.getSector(0, 2, 0));
+        // a short last sector is dropped
+        byte[] image = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(image, image.length - 10));
+        DiskImage truncated = new DiskImage();
+        truncated.loadANADisk(file);
+        assertArrayEquals(filled(256, 2), truncated.getSector(3, 200, 1));
+        assertEquals(DiskTrack.ABSENT, truncated.getSectorLength(79, 9, 1));
+    }
+
+    @Test
+    public void diskDumpReader() throws Exception {
+        // 2 tracks, 2 sides, 4 sectors of 128 bytes, with the last sector missing
+        byte[] image = new byte[2 * 2 * 4 * 128 - 128];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i / 128);
+        }
+        File file = Files.createTempFile("disk", ".dsk").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), image);
+        //
+        DiskImage disk = new DiskImage();
+        disk.diskDumpReader(file, 2, 4, 128, 1);
+        assertEquals(0, disk.getSector(0, 1, 0)[0]);
+        assertEquals(4, disk.getSector(0, 1, 1)[0]);
+        assertEquals(14, disk.getSector(1, 3, 1)[127]);
+        assertEquals((byte) 0xFF, disk.getSector(1, 4, 1)[0]);
+        assertEquals(DiskTrack.ABSENT, disk.getSectorLength(0, 0, 0));
+        assertEquals(DiskTrack.ABSENT, disk.getSectorLength(2, 1, 0));
+    }
+
+    @Test
+    public void dumpWriteBack() throws Exception {
+        // 2 tracks, 2 sides, 16 sectors of 256 bytes
+        byte[] image = new byte[2 * 2 * 16 * 256];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i / 256);
+        }
+        File file = Files.createTempFile("disk", ".dsk").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), image);
+        //
+        DiskImage disk = new DiskImage();
+        disk.setFlushInterval(0);
+        disk.openDumpImage(file, 2, 16, 256, 1, false);
+        assertTrue(disk.isWriteBack());
+        // as the FDC writes a sector, byte by byte into the track then flagged as changed
+        DiskTrack track = disk.getTrack(1, 1);
+        int offset = track.getOffset(16);
+        for (int i = 0; i < 256; i++) {
+            track.writeByte(offset + i, 0xA5);
+        }
+        track.markDirty(16);
+        // changed in memory but never flagged, so not written
+        track.writeByte(track.getOffset(1), 0x5A);
+        // a sector of a different size has no home in the image
+        disk.putSector(0, 2, 0, filled(128, 0x33));
+        disk.flush();
+        assertFalse(track.isDirty());
+        byte[] saved = Files.readAllBytes(file.toPath());
+        int home = ((1 * 2 + 1) * 16 + 15) * 256;
+        assertArrayEquals(filled(256, 0xA5), Arrays.copyOfRange(saved, home, home + 256));
+        assertEquals(((1 * 2 + 1) * 16), saved[home - 15 * 256]);
+        assertEquals(1, saved[256]);
+        assertFalse(new File(file.getPath() + ".journal").exists());
+        disk.ejectDisk();
+        // the sector is read back from the file
+        DiskImage copy = new DiskImage();
+        copy.setFlushInterval(0);
+        copy.openDumpImage(file, 2, 16, 256, 1, true);
+        assertArrayEquals(filled(256, 0xA5), copy.getSector(1, 16, 1));
+        copy.ejectDisk();
+    }
+
+    @Test
+    public void dumpOverlay() throws Exception {
+        byte[] image = new byte[2 * 16 * 256];
+        Arrays.fill(image, (byte) 0xE5);
+        File file = Files.createTempFile("disk", ".dsk").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), image);
+        //
+        DiskImage disk = new DiskImage();
+        disk.setFlushInterval(0);
+        disk.openDumpImage(file, 1, 16, 256, 1, true);
+        assertFalse(disk.isWriteBack());
+        disk.putSector(0, 3, 1, filled(256, 0x42));
+        disk.flush();
+        assertArrayEquals(filled(256, 0x42), disk.getSector(0, 3, 1));
+        disk.ejectDisk();
+        assertArrayEquals(image, Files.readAllBytes(file.toPath()));
+    }
+
+    private byte[] filled(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+}
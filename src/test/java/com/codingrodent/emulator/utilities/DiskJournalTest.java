@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiskJournalTest {
+
+    @Test
+    public void commit() throws Exception {
+        File image = createImage(1024);
+        File journalFile = DiskJournal.getJournalFile(image);
+        //
+        DiskJournal journal = new DiskJournal();
+        assertTrue(journal.isEmpty());
+        journal.add(256, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        journal.add(1020, ByteBuffer.wrap(new byte[]{4, 5, 6, 7}));
+        assertFalse(journal.isEmpty());
+        try (FileChannel channel = open(image)) {
+            journal.commit(journalFile, channel);
+        }
+        assertFalse(journalFile.exists());
+        byte[] data = Files.readAllBytes(image.toPath());
+        assertEquals(1024, data.length);
+        assertEquals(2, data[257]);
+        assertEquals(7, data[1023]);
+    }
+
+    @Test
+    public void recover() throws Exception {
+        File image = createImage(512);
+        File journalFile = DiskJournal.getJournalFile(image);
+        // A journal left behind by a crash before it was applied is replayed
+        DiskJournal journal = new DiskJournal();
+        journal.add(10, ByteBuffer.wrap(new byte[]{9, 9}));
+        journal.save(journalFile);
+        byte[] complete = Files.readAllBytes(journalFile.toPath());
+        try (FileChannel channel = open(image)) {
+            assertTrue(DiskJournal.recover(journalFile, channel));
+        }
+        assertFalse(journalFile.exists());
+        assertEquals(9, Files.readAllBytes(image.toPath())[11]);
+        // A torn journal is thrown away without touching the image
+        Files.write(image.toPath(), new byte[512]);
+        Files.write(journalFile.toPath(), Arrays.copyOf(complete, complete.length - 3));
+        try (FileChannel channel = open(image)) {
+            assertFalse(DiskJournal.recover(journalFile, channel));
+            assertFalse(DiskJournal.recover(journalFile, channel));
+        }
+        assertFalse(journalFile.exists());
+        assertEquals(0, Files.readAllBytes(image.toPath())[11]);
+    }
+
+    private File createImage(int size) throws Exception {
+        File image = Files.createTempFile("journal", ".dsk").toFile();
+        image.deleteOnExit();
+        Files.write(image.toPath(), new byte[size]);
+        return image;
+    }
+
+    private FileChannel open(File image) throws Exception {
+        return FileChannel.open(image.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiskTrackTest {
+
+    @Test
+    public void putAndGetSectors() {
+        DiskTrack track = new DiskTrack();
+        assertEquals(DiskTrack.ABSENT, track.getFirstSector());
+        assertEquals(DiskTrack.ABSENT, track.getLength(1));
+        assertNull(track.getSector(1));
+        //
+        byte[] data = new byte[256];
+        for (int sector = 16; sector > 0; sector--) {
+            data[0] = (byte) sector;
+            track.putSector(sector, data, 0, data.length);
+        }
+        assertEquals(1, track.getFirstSector());
+        assertEquals(256, track.getLength(16));
+        assertEquals(16, track.readByte(track.getOffset(16)));
+        assertEquals(1, track.getSector(1)[0]);
+        //
+        track.writeByte(track.getOffset(3) + 1, 0xE5);
+        assertEquals(0xE5, track.readByte(track.getOffset(3) + 1));
+        assertEquals((byte) 0xE5, track.getSector(3)[1]);
+    }
+
+    @Test
+    public void replaceSector() {
+        DiskTrack track = new DiskTrack();
+        track.putSector(1, new byte[]{1, 2, 3, 4}, 0, 4);
+        int offset = track.getOffset(1);
+        track.putSector(1, new byte[]{5, 6, 7, 8}, 0, 4);
+        assertEquals(offset, track.getOffset(1));
+        track.putSector(1, new byte[]{9, 10}, 0, 2);
+        assertArrayEquals(new byte[]{9, 10}, track.getSector(1));
+        //
+        track.erase();
+        assertEquals(DiskTrack.ABSENT, track.getOffset(1));
+        assertEquals(DiskTrack.ABSENT, track.getOffset(-1));
+        assertEquals(DiskTrack.ABSENT, track.getOffset(256));
+    }
+
+    @Test
+    public void shareEqualTracks() {
+        DiskTrack first = new DiskTrack();
+        DiskTrack second = new DiskTrack();
+        for (int sector = 1; sector <= 4; sector++) {
+            first.putSector(sector, new byte[]{1, 2, 3, (byte) sector}, 0, 4);
+            second.putSector(sector, new byte[]{1, 2, 3, (byte) sector}, 0, 4);
+        }
+        first.share();
+        second.share();
+        assertTrue(first.isShared());
+        assertSame(first.getData(), second.getData());
+        assertEquals(16, first.getData().capacity());
+        //
+        second.writeByte(second.getOffset(2), 0x55);
+        assertFalse(second.isShared());
+        assertEquals(0x55, second.readByte(second.getOffset(2)));
+        assertEquals(1, first.readByte(first.getOffset(2)));
+        //
+        first.putSector(5, new byte[]{9}, 0, 1);
+        assertEquals(9, first.getSector(5)[0]);
+        assertEquals(DiskTrack.ABSENT, second.getOffset(5));
+    }
+}
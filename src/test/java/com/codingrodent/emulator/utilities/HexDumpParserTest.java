@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HexDumpParserTest {
+
+    private static final String GOOD = "1000 01 02 03 04 05 06 07 08 34\b\b\n1008 FF FE FD FC FB FA F9 F8 F4\b\b\n.\n";
+    private static final String BAD_CHECKSUM = "1000 01 02 03 04 05 06 07 08 35\0\0\r.";
+
+    private static ByteBuffer source(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void parse() throws IOException {
+        MemoryChunk memory = HexDumpParser.parse(source(GOOD), "good", null);
+        assertEquals(0x1000, memory.getBase());
+        assertEquals(16, memory.getSize());
+        assertEquals(0x01, memory.readByte(0x1000));
+        assertEquals(0xF8, memory.readByte(0x100F));
+    }
+
+    @Test
+    public void checksum() throws IOException {
+        assertThrows(IOException.class, () -> HexDumpParser.parse(source(BAD_CHECKSUM), "bad", null));
+        List<String> errors = new ArrayList<>();
+        MemoryChunk memory = HexDumpParser.parse(source(BAD_CHECKSUM), "bad", errors);
+        assertEquals(1, errors.size());
+        assertEquals(8, memory.getSize());
+    }
+
+    @Test
+    public void badField() {
+        assertThrows(IOException.class, () -> HexDumpParser.parse(source("1000 01 2X\n"), "bad", null));
+        assertThrows(IOException.class, () -> HexDumpParser.parse(source("100 01\n"), "bad", null));
+    }
+
+    @Test
+    public void cache() throws IOException {
+        MemoryChunk memory = HexDumpParser.parse(source(GOOD), "good", null);
+        long hash = HexDumpParser.hash(source(GOOD));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HexDumpParser.writeCache(memory, 1234, GOOD.length(), hash, out);
+        //
+        MemoryChunk cached = HexDumpParser.readCache(1234, GOOD.length(), hash, new ByteArrayInputStream(out.toByteArray()));
+        assertNotNull(cached);
+        assertArrayEquals(memory.getMemoryChunk(), cached.getMemoryChunk());
+        assertEquals(memory.getBase(), cached.getBase());
+        // source changed
+        assertNull(HexDumpParser.readCache(1234, GOOD.length(), hash + 1, new ByteArrayInputStream(out.toByteArray())));
+        assertNull(HexDumpParser.readCache(1235, GOOD.length(), hash, new ByteArrayInputStream(out.toByteArray())));
+    }
+}
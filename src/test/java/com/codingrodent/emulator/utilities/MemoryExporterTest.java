@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryExporterTest {
+
+    private final IntUnaryOperator memory = address -> (address * 7) & 0xFF;
+
+    private byte[] export(MemoryExporter exporter, MemoryExporter.Format format, MemoryExporter.Range... ranges) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(memory, format, Channels.newChannel(out), ranges);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void nas() throws IOException {
+        MemoryExporter exporter = new MemoryExporter();
+        byte[] nas = export(exporter, MemoryExporter.Format.NAS, new MemoryExporter.Range(0x1003, 0x1009));
+        // widened to whole lines, 1000-100F
+        String text = new String(nas, StandardCharsets.US_ASCII);
+        assertTrue(text.startsWith("1000 00 07 0E 15 1C 23 2A 31 D4\0\0\r1008 "));
+        assertTrue(text.endsWith("\0\0\r."));
+        MemoryChunk chunk = HexDumpParser.parse(ByteBuffer.wrap(nas), "export", null);
+        assertEquals(0x1000, chunk.getBase());
+        assertEquals(16, chunk.getSize());
+        for (int address = 0x1000; address < 0x1010; address++) {
+            assertEquals(memory.applyAsInt(address), chunk.readByte(address));
+        }
+        // all memory, buffer reused
+        chunk = HexDumpParser.parse(ByteBuffer.wrap(export(exporter, MemoryExporter.Format.NAS)), "export", null);
+        assertEquals(65536, chunk.getSize());
+        assertEquals(memory.applyAsInt(0xFFFF), chunk.readByte(0xFFFF));
+    }
+
+    @Test
+    public void binary() throws IOException {
+        byte[] binary = export(new MemoryExporter(), MemoryExporter.Format.BINARY, new MemoryExporter.Range(0x0010, 0x0011), new MemoryExporter.Range(0x0001, 0x0001));
+        assertArrayEquals(new byte[]{0x70, 0x77, 0x07}, binary);
+    }
+
+    @Test
+    public void intelHex() throws IOException {
+        String hex = new String(export(new MemoryExporter(), MemoryExporter.Format.INTEL_HEX, new MemoryExporter.Range(0x0100, 0x0102)), StandardCharsets.US_ASCII);
+        assertEquals(":0301000000070EE7\r\n:00000001FF\r\n", hex);
+    }
+
+    @Test
+    public void ranges() {
+        MemoryExporter.Range range = MemoryExporter.Range.parse("e000-EFFF");
+        assertEquals(0xE000, range.getStart());
+        assertEquals(0xEFFF, range.getEnd());
+        assertThrows(RuntimeException.class, () -> MemoryExporter.Range.parse("2000-1000"));
+        assertThrows(RuntimeException.class, () -> MemoryExporter.Range.parse("2000"));
+        assertEquals(MemoryExporter.Format.INTEL_HEX, MemoryExporter.Format.fromFileName("a.HEX"));
+        assertEquals(MemoryExporter.Format.BINARY, MemoryExporter.Format.fromFileName("a.bin"));
+        assertEquals(MemoryExporter.Format.NAS, MemoryExporter.Format.fromFileName("a.nas"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NasDosDiskTest {
+
+    @Test
+    public void directory() {
+        DiskImage disk = blankDisk(4);
+        byte[] directory = disk.getSector(0, 3, 0);
+        System.arraycopy(entry("PROG", 0x1003, 0x1000, 1, 2, 2), 0, directory, 0, 16);
+        System.arraycopy(entry("OLD", 0x2000, 0x2000, 1, 4, 1), 0, directory, 16, 16);
+        directory[16] = (byte) 0xFE;
+        disk.putSector(0, 3, 0, directory);
+        disk.putSector(1, 2, 0, filled(1));
+        disk.putSector(1, 3, 0, filled(2));
+        //
+        NasDosDisk nasDos = new NasDosDisk(disk);
+        assertEquals(1, nasDos.getDirectory().size());
+        NasDosDisk.DirectoryEntry prog = nasDos.find("prog");
+        assertEquals("PROG", prog.getName());
+        assertEquals(0x1000, prog.getLoadAddress());
+        assertEquals(0x1003, prog.getExecutionAddress());
+        assertEquals(1, prog.getTrack());
+        assertEquals(2, prog.getSector());
+        assertEquals(2, prog.getSectors());
+        assertNull(nasDos.find("OLD"));
+        // the deleted file still holds its space
+        assertEquals(4 * 16 - 20, nasDos.getFreeSectors());
+        byte[] data = nasDos.readFile(prog);
+        assertEquals(512, data.length);
+        assertEquals(1, data[0]);
+        assertEquals(2, data[511]);
+        MemoryChunk memory = nasDos.readMemoryChunk(prog);
+        assertEquals(1, memory.readByte(0x1000));
+        assertEquals(2, memory.readByte(0x11FF));
+    }
+
+    @Test
+    public void writeFile() {
+        DiskImage disk = blankDisk(3);
+        NasDosDisk nasDos = new NasDosDisk(disk);
+        byte[] data = new byte[300];
+        Arrays.fill(data, (byte) 0x55);
+        NasDosDisk.DirectoryEntry first = nasDos.writeFile("test", 0x3000, 0x3010, data);
+        assertEquals("TEST", first.getName());
+        assertEquals(1, first.getTrack());
+        assertEquals(1, first.getSector());
+        assertEquals(2, first.getSectors());
+        assertEquals(0x55, disk.getSector(1, 2, 0)[43]);
+        assertEquals(0, disk.getSector(1, 2, 0)[44]);
+        // a second copy replaces the first and goes after it
+        NasDosDisk.DirectoryEntry second = nasDos.writeFile("TEST", 0x4000, 0x4000, new byte[16 * 256]);
+        assertEquals(1, nasDos.getDirectory().size());
+        assertEquals(1, second.getTrack());
+        assertEquals(3, second.getSector());
+        assertEquals(0x4000, new NasDosDisk(disk).find("TEST").getLoadAddress());
+        assertEquals(3 * 16 - 34, nasDos.getFreeSectors());
+        assertThrows(RuntimeException.class, () -> nasDos.writeFile("BIG", 0x1000, 0x1000, new byte[15 * 256]));
+        assertThrows(RuntimeException.class, () -> nasDos.writeFile("TOOLONGNAME", 0x1000, 0x1000, data));
+        assertThrows(RuntimeException.class, () -> nasDos.writeFile("HIGH", 0xFF00, 0xFF00, data));
+        nasDos.deleteFile(second);
+        assertTrue(nasDos.getDirectory().isEmpty());
+    }
+
+    @Test
+    public void notNasDos() {
+        DiskImage disk = new DiskImage();
+        disk.putSector(0, 1, 0, new byte[128]);
+        assertThrows(RuntimeException.class, () -> new NasDosDisk(disk));
+    }
+
+    private DiskImage blankDisk(int tracks) {
+        DiskImage disk = new DiskImage();
+        for (int track = 0; track < tracks; track++) {
+            for (int sector = 1; sector <= 16; sector++) {
+                byte[] data = new byte[256];
+                if ((0 == track) && (sector > 2)) {
+                    Arrays.fill(data, (byte) 0xFF);
+                }
+                disk.putSector(track, sector, 0, data);
+            }
+        }
+        return disk;
+    }
+
+    private byte[] entry(String name, int exec, int load, int track, int sector, int sectors) {
+        byte[] entry = new byte[16];
+        Arrays.fill(entry, 0, 8, (byte) ' ');
+        System.arraycopy(name.getBytes(), 0, entry, 0, name.length());
+        entry[8] = (byte) exec;
+        entry[9] = (byte) (exec >> 8);
+        entry[10] = (byte) load;
+        entry[11] = (byte) (load >> 8);
+        entry[12] = (byte) track;
+        entry[13] = (byte) sector;
+        entry[14] = (byte) sectors;
+        entry[15] = (byte) (sectors >> 8);
+        return entry;
+    }
+
+    private byte[] filled(int value) {
+        byte[] data = new byte[256];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+}
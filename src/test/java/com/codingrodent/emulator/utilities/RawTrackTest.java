@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2016
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.codingrodent.emulator.utilities;
+
+import com.codingrodent.emulator.cards.common.FDC17xx;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.codingrodent.emulator.cards.common.FDC17xx.FDC_CHIP.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RawTrackTest {
+
+    @Test
+    public void crc() {
+        int crc = 0xFFFF;
+        for (char c : "123456789".toCharArray()) {
+            crc = RawTrack.updateCRC(crc, c);
+        }
+        assertEquals(0x29B1, crc);
+    }
+
+    @Test
+    public void encode() {
+        DiskTrack track = new DiskTrack();
+        byte[] data = new byte[256];
+        data[0] = 0x55;
+        track.putSector(1, data, 0, 256);
+        track.putSector(2, data, 0, 256);
+        byte[] raw = RawTrack.encode(track, 5, 1, FDC_1793);
+        assertEquals(RawTrack.TRACK_LENGTH, raw.length);
+        assertEquals((byte) 0xFC, raw[80 + 12 + 3]);
+        // first ID field follows the index gap
+        int id = 80 + 12 + 4 + 50 + 12;
+        assertArrayEquals(new byte[]{(byte) 0xA1, (byte) 0xA1, (byte) 0xA1, (byte) 0xFE, 5, 1, 1, 1}, Arrays.copyOfRange(raw, id, id + 8));
+        assertEquals(0, crcOf(raw, id, id + 10));
+        // data field follows gap 2
+        int dataField = id + 10 + 22 + 12;
+        assertEquals((byte) 0xFB, raw[dataField + 3]);
+        assertEquals(0x55, raw[dataField + 4]);
+        assertEquals(0, crcOf(raw, dataField, dataField + 4 + 256 + 2));
+        assertEquals((byte) 0x4E, raw[raw.length - 1]);
+        // unformatted tracks are all gap
+        assertEquals((byte) 0x4E, RawTrack.encode(null, 0, 0, FDC_1793)[100]);
+        // the 1795 counts its length codes from 256 bytes
+        assertEquals(0x00, RawTrack.encode(track, 5, 1, FDC_1795)[id + 7]);
+    }
+
+    @Test
+    public void cache() {
+        DiskTrack track = new DiskTrack();
+        track.putSector(1, new byte[128], 0, 128);
+        byte[] raw = track.getRawTrack(0, 0, FDC_1793);
+        assertSame(raw, track.getRawTrack(0, 0, FDC_1793));
+        track.writeByte(track.getOffset(1), 1);
+        track.markDirty(1);
+        assertNotSame(raw, track.getRawTrack(0, 0, FDC_1793));
+    }
+
+    @Test
+    public void lengthCodes() {
+        assertEquals(0x00, FDC17xx.getLengthCode(FDC_1793, 128));
+        assertEquals(0x01, FDC17xx.getLengthCode(FDC_1793, 256));
+        assertEquals(0x02, FDC17xx.getLengthCode(FDC_1793, 512));
+        assertEquals(0x03, FDC17xx.getLengthCode(FDC_1793, 1024));
+        assertEquals(0x03, FDC17xx.getLengthCode(FDC_1797, 128));
+        assertEquals(0x02, FDC17xx.getLengthCode(FDC_1797, 1024));
+    }
+
+    private int crcOf(byte[] raw, int start, int end) {
+        int crc = 0xFFFF;
+        for (int i = start; i < end; i++) {
+            crc = RawTrack.updateCRC(crc, raw[i]);
+        }
+        return crc;
+    }
+}